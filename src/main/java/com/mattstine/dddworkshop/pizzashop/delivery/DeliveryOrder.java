@@ -1,9 +1,9 @@
 package com.mattstine.dddworkshop.pizzashop.delivery;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.function.BiFunction;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Aggregate;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateState;
@@ -30,10 +30,14 @@ public final class DeliveryOrder implements Aggregate {
 
 	@Singular List<Pizza> pizzas;
 
+	@NonFinal
+
 	@NonNull EventLog $eventLog;
 
 	@NonFinal
 	State state;
+	@NonFinal
+	long $version;
 
 	@Builder
 	public DeliveryOrder(@NonNull DeliveryOrderRef ref,
@@ -58,10 +62,27 @@ public final class DeliveryOrder implements Aggregate {
 		this.pizzas = null;
 	}
 
+	@Override
+	public long version() {
+		return $version;
+	}
+
+	@Override
+	public DeliveryOrder boundTo(EventLog eventLog) {
+		this.$eventLog = eventLog;
+		return this;
+	}
+
+	@Override
+	public DeliveryOrder atVersion(long version) {
+		this.$version = version;
+		return this;
+	}
+
 	@Override
 	public DeliveryOrder identity() {
 		return DeliveryOrder.builder().
-				eventLog(InProcessEventLog.IDENTITY).
+				eventLog(EventLog.IDENTITY).
 				kitchenOrderRef(KitchenOrderRef.IDENTITY).
 				onlineOrderRef(OnlineOrderRef.IDENTITY).
 				ref(DeliveryOrderRef.IDENTITY).
@@ -76,7 +97,7 @@ public final class DeliveryOrder implements Aggregate {
 				return DeliveryOrder.builder().
 						ref(doae.getRef()).
 						kitchenOrderRef(doae.getState().getKitchenOrderRef()).
-						eventLog(InProcessEventLog.instance()).
+						eventLog(order.$eventLog).
 						onlineOrderRef(doae.getState().getOnlineOrderRef()).
 						pizzas(doae.getState().getPizzas()).
 						build();
@@ -100,6 +121,18 @@ public final class DeliveryOrder implements Aggregate {
 				build();
 	}
 
+	@Override
+	public DeliveryOrder restore(AggregateState aggregateState) {
+		OrderState orderState = (OrderState) aggregateState;
+		return DeliveryOrder.builder().
+				ref(orderState.getRef()).
+				kitchenOrderRef(orderState.getKitchenOrderRef()).
+				eventLog($eventLog).
+				onlineOrderRef(orderState.getOnlineOrderRef()).
+				pizzas(orderState.getPizzas()).
+				build();
+	}
+
 	boolean isReadyForDelivery() {
 		return this.state == State.READY_FOR_DELIVERY;
 	}
@@ -120,7 +153,9 @@ public final class DeliveryOrder implements Aggregate {
 	 * Pizza Value Object for KitchenOrder Details Only
 	 */
 	@Value
-	public static final class Pizza {
+	public static final class Pizza implements Serializable {
+		private static final long serialVersionUID = 1L;
+
 		Size size;
 
 		@Builder
@@ -135,9 +170,13 @@ public final class DeliveryOrder implements Aggregate {
 
 	@Value @Builder
 	static class OrderState implements AggregateState {
+		private static final long serialVersionUID = 1L;
+
 		@NonNull DeliveryOrderRef ref;
 		@NonNull KitchenOrderRef kitchenOrderRef;
 		@NonNull OnlineOrderRef onlineOrderRef;
+		// Always the builder's serializable @Singular list
+		@SuppressWarnings("serial")
 		@Singular List<Pizza> pizzas;
 	}
 }
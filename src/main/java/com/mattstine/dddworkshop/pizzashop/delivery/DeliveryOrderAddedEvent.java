@@ -8,6 +8,8 @@ import lombok.Value;
  */
 @Value
 final class DeliveryOrderAddedEvent implements DeliveryOrderEvent, RepositoryAddEvent {
+	private static final long serialVersionUID = 1L;
+
 	DeliveryOrderRef ref;
 	DeliveryOrder.OrderState state;
 }
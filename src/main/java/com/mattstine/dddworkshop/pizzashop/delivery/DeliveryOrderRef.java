@@ -1,30 +1,41 @@
 package com.mattstine.dddworkshop.pizzashop.delivery;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefStringGenerator;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 /**
  * @author Matt Stine
  */
 @Value
-public final class DeliveryOrderRef implements Ref {
+@EqualsAndHashCode(exclude = "reference")
+public final class DeliveryOrderRef implements IdRef {
+	private static final long serialVersionUID = 1L;
 
-	public static final DeliveryOrderRef IDENTITY = new DeliveryOrderRef("");
-
-	private String reference;
+	public static final DeliveryOrderRef IDENTITY = new DeliveryOrderRef(0, 0);
+	long id;
+	long node;
+	@NonFinal
+	transient String reference;
 
 	public DeliveryOrderRef() {
-		this(RefStringGenerator.generateRefString());
+		this(RefIdGenerator.nextId(), RefIdGenerator.node());
 	}
 
-	@SuppressWarnings("SameParameterValue")
-	private DeliveryOrderRef(String reference) {
-		this.reference = reference;
+	private DeliveryOrderRef(long id, long node) {
+		this.id = id;
+		this.node = node;
 	}
 
 	@Override
 	public String getReference() {
+		String reference = this.reference;
+		if (reference == null) {
+			reference = RefIdGenerator.format(id, node);
+			this.reference = reference;
+		}
 		return reference;
 	}
 }
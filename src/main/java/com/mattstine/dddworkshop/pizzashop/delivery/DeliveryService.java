@@ -3,10 +3,8 @@ package com.mattstine.dddworkshop.pizzashop.delivery;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrder;
 import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrderAssemblyFinishedEvent;
 import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrderRef;
@@ -27,7 +25,7 @@ final class DeliveryService {
 		this.deliveryOrderRepository = deliveryOrderRepository;
 		this.orderingService = orderingService;
 		this.kitchenService = kitchenService;
-		eventLog.subscribe(new Topic("kitchen_orders"), this::handleKitchenOrderEvent);
+		eventLog.subscribe(KitchenOrder.TOPIC, this::handleKitchenOrderEvent);
 	}
 
 	private void handleKitchenOrderEvent(Event event) {
@@ -47,7 +45,7 @@ final class DeliveryService {
 
 		return DeliveryOrder.builder().
 			onlineOrderRef(kOrder.getOnlineOrderRef()).
-			eventLog(InProcessEventLog.instance()).
+			eventLog(eventLog).
 			kitchenOrderRef(kOrder.getRef()).
 			pizzas(pizzas).
 			ref(deliveryOrderRepository.nextIdentity()).
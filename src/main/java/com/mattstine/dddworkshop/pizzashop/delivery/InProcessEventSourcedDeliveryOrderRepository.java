@@ -1,7 +1,7 @@
 package com.mattstine.dddworkshop.pizzashop.delivery;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
@@ -15,7 +15,7 @@ import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrderRef;
 
 final class InProcessEventSourcedDeliveryOrderRepository extends InProcessEventSourcedRepository<DeliveryOrderRef, DeliveryOrder, DeliveryOrder.OrderState, DeliveryOrderEvent, DeliveryOrderAddedEvent> implements DeliveryOrderRepository {
 
-	Map<KitchenOrderRef, DeliveryOrderRef> kitchenOrderRefDeliveryOrderRefMap = new HashMap<>();
+	Map<KitchenOrderRef, DeliveryOrderRef> kitchenOrderRefDeliveryOrderRefMap = new ConcurrentHashMap<>();
 
 	InProcessEventSourcedDeliveryOrderRepository(EventLog eventLog, Topic topic) {
 		super(eventLog,
@@ -24,7 +24,7 @@ final class InProcessEventSourcedDeliveryOrderRepository extends InProcessEventS
 				DeliveryOrder.OrderState.class,
 				DeliveryOrderAddedEvent.class,
 				topic);
-		eventLog.subscribe(topic, this::handleEvent);
+		eventLog.subscribe(topic, EventLog.FROM_BEGINNING, this::handleEvent);
 	}
 
 	private void handleEvent(Event event) {
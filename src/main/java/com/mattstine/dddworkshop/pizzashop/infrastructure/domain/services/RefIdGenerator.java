@@ -0,0 +1,103 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free source of 128-bit, time-ordered reference ids held as two longs. The high long is the
+ * wall-clock millisecond shifted left by 16 bits plus a sequence within that millisecond; it is
+ * strictly increasing within the process, borrowing from the next millisecond when more than 65536
+ * ids are minted in one. The low long is a random node id chosen once per process.
+ * <p>
+ * {@link #format(long, long)} renders an id in the upper-case 8-4-4-4-12 hex form that
+ * {@link RefStringGenerator} has always produced, and {@link #parseId(String)} and
+ * {@link #parseNode(String)} read that form back. The all-zero id of the {@code IDENTITY} refs keeps its
+ * historical empty reference.
+ *
+ * @author Matt Stine
+ */
+public final class RefIdGenerator {
+    private static final int SEQUENCE_BITS = 16;
+    private static final long NODE = new SecureRandom().nextLong();
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private RefIdGenerator() {
+    }
+
+    public static long nextId() {
+        return LAST.accumulateAndGet(System.currentTimeMillis() << SEQUENCE_BITS,
+                (last, now) -> now > last ? now : last + 1);
+    }
+
+    public static long node() {
+        return NODE;
+    }
+
+    public static String format(long id, long node) {
+        if (id == 0 && node == 0) {
+            return "";
+        }
+        char[] chars = new char[36];
+        hex(chars, 0, id >>> 32, 8);
+        chars[8] = '-';
+        hex(chars, 9, id >>> 16, 4);
+        chars[13] = '-';
+        hex(chars, 14, id, 4);
+        chars[18] = '-';
+        hex(chars, 19, node >>> 48, 4);
+        chars[23] = '-';
+        hex(chars, 24, node, 12);
+        return new String(chars);
+    }
+
+    public static long parseId(String reference) {
+        if (reference.isEmpty()) {
+            return 0;
+        }
+        check(reference);
+        return Long.parseUnsignedLong(reference.substring(0, 8) + reference.substring(9, 13) + reference.substring(14, 18), 16);
+    }
+
+    public static long parseNode(String reference) {
+        if (reference.isEmpty()) {
+            return 0;
+        }
+        check(reference);
+        return Long.parseUnsignedLong(reference.substring(19, 23) + reference.substring(24, 36), 16);
+    }
+
+    /**
+     * Whether {@code reference} is in the form {@link #format(long, long)} produces.
+     */
+    public static boolean isFormatted(String reference) {
+        if (reference.isEmpty()) {
+            return true;
+        }
+        if (reference.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = reference.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : (c < '0' || c > '9') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String reference) {
+        if (reference.length() != 36 || reference.charAt(8) != '-' || reference.charAt(13) != '-'
+                || reference.charAt(18) != '-' || reference.charAt(23) != '-') {
+            throw new IllegalArgumentException("Cannot parse reference: " + reference);
+        }
+    }
+
+    private static void hex(char[] chars, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services;
 
-import java.util.UUID;
-
 /**
  * @author Matt Stine
  */
 public final class RefStringGenerator {
     public static String generateRefString() {
-        return UUID.randomUUID().toString().toUpperCase();
+        return RefIdGenerator.format(RefIdGenerator.nextId(), RefIdGenerator.node());
     }
 }
@@ -0,0 +1,66 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Single-writer, multi-reader event sequence. Appends must be serialized by the caller;
+ * {@link #snapshot()} may be called from any thread and returns an immutable view of every
+ * event appended before the call, without copying.
+ *
+ * @author Matt Stine
+ */
+final class AppendOnlyEventList {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile Event[] elements = new Event[INITIAL_CAPACITY];
+    private volatile int size;
+
+    void append(Event event) {
+        Event[] current = elements;
+        int index = size;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length << 1);
+            elements = current;
+        }
+        current[index] = event;
+        size = index + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<Event> snapshot() {
+        // size must be read before elements: any array published after size is at least as complete
+        int snapshotSize = size;
+        return new Snapshot(elements, snapshotSize);
+    }
+
+    private static final class Snapshot extends AbstractList<Event> implements RandomAccess {
+        private final Event[] elements;
+        private final int size;
+
+        private Snapshot(Event[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        public Event get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+
+/**
+ * Subscriber that a {@link Mailbox.Source} offers events to under its append lock, and whose publisher
+ * waits for room only once it has released that lock.
+ *
+ * @author Matt Stine
+ */
+interface BackpressuredSubscriber extends EventHandler {
+
+    /**
+     * Takes the event at {@code offset} of {@code source} without blocking; called under the source's
+     * append lock.
+     */
+    void offer(Event e, Mailbox.Source source, int offset);
+
+    /**
+     * Waits until the subscriber can take more events; called with no lock of the log held.
+     */
+    void awaitRoom();
+}
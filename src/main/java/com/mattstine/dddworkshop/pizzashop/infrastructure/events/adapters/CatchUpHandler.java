@@ -0,0 +1,64 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synchronous-dispatch subscriber that is registered before its history is replayed. Live events
+ * that arrive during the replay are held back and handed over, in arrival order, once the history
+ * has been delivered; after that, events pass straight through.
+ *
+ * @author Matt Stine
+ */
+final class CatchUpHandler implements EventHandler {
+    private final EventHandler handler;
+    private final List<Event> held = new ArrayList<>();
+    private boolean replaying = true;
+    private volatile boolean live;
+
+    CatchUpHandler(EventHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handleEvent(Event e) {
+        if (!live) {
+            synchronized (this) {
+                if (replaying) {
+                    held.add(e);
+                    return;
+                }
+            }
+        }
+        handler.handleEvent(e);
+    }
+
+    /**
+     * Delivers {@code history} in a tight loop, then the events held back meanwhile, then goes live.
+     */
+    void replay(List<Event> history) {
+        for (Event event : history) {
+            handler.handleEvent(event);
+        }
+        while (true) {
+            List<Event> batch;
+            synchronized (this) {
+                if (held.isEmpty()) {
+                    replaying = false;
+                    live = true;
+                    return;
+                }
+                batch = new ArrayList<>(held);
+                held.clear();
+            }
+            batch.forEach(handler::handleEvent);
+        }
+    }
+
+    EventHandler handler() {
+        return handler;
+    }
+}
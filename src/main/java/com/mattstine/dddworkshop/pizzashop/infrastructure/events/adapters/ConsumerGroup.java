@@ -0,0 +1,136 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Members of one consumer group on one topic, and which member owns each of the topic's partitions.
+ * Partitions are dealt out round-robin in join order and dealt again whenever a member joins or leaves;
+ * members beyond the partition count own nothing until another member leaves. Each partition's
+ * {@link #router(int) router} is subscribed once and forwards to the partition's current owner, so an
+ * event reaches exactly one member. Joins and leaves must be made under the owning topic's lock.
+ * <p>
+ * A router hands events on to an owner's {@link Mailbox} with the partition they came from, so a
+ * bounded member mailbox applies its policy as it would to a partition it subscribed to directly; a
+ * member spilling a partition it then loses to a rebalance still reads its missed events back.
+ *
+ * @author Matt Stine
+ */
+final class ConsumerGroup {
+    private final List<EventHandler> members = new ArrayList<>();
+    private final EventHandler[] routers;
+    private volatile EventHandler[] owners;
+
+    ConsumerGroup(int partitions) {
+        this.routers = new EventHandler[partitions];
+        this.owners = new EventHandler[partitions];
+        for (int i = 0; i < partitions; i++) {
+            routers[i] = new Router(i);
+        }
+    }
+
+    EventHandler router(int partition) {
+        return routers[partition];
+    }
+
+    /**
+     * Adds {@code member} and rebalances; returns {@code false} if an equal member already belongs.
+     */
+    boolean join(EventHandler member) {
+        if (indexOf(member) >= 0) {
+            return false;
+        }
+        members.add(member);
+        rebalance();
+        return true;
+    }
+
+    /**
+     * Removes {@code member} and rebalances; returns {@code false} if it did not belong.
+     */
+    boolean leave(EventHandler member) {
+        int index = indexOf(member);
+        if (index < 0) {
+            return false;
+        }
+        members.remove(index);
+        rebalance();
+        return true;
+    }
+
+    List<EventHandler> members() {
+        return new ArrayList<>(members);
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * The member that owns {@code partition}, or {@code null} if the group is empty.
+     */
+    EventHandler owner(int partition) {
+        return owners[partition];
+    }
+
+    private void rebalance() {
+        EventHandler[] next = new EventHandler[routers.length];
+        if (!members.isEmpty()) {
+            for (int i = 0; i < next.length; i++) {
+                next[i] = members.get(i % members.size());
+            }
+        }
+        owners = next;
+    }
+
+    private final class Router implements BackpressuredSubscriber {
+        private final int partition;
+
+        private Router(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void handleEvent(Event event) {
+            EventHandler owner = owners[partition];
+            if (owner != null) {
+                owner.handleEvent(event);
+            }
+        }
+
+        @Override
+        public void offer(Event event, Mailbox.Source source, int offset) {
+            EventHandler owner = owners[partition];
+            if (owner instanceof BackpressuredSubscriber) {
+                ((BackpressuredSubscriber) owner).offer(event, source, offset);
+            } else if (owner != null) {
+                owner.handleEvent(event);
+            }
+        }
+
+        @Override
+        public void awaitRoom() {
+            EventHandler owner = owners[partition];
+            if (owner instanceof BackpressuredSubscriber) {
+                ((BackpressuredSubscriber) owner).awaitRoom();
+            }
+        }
+    }
+
+    private int indexOf(EventHandler member) {
+        EventHandler handler = SubscriberList.unwrap(member);
+        for (int i = 0; i < members.size(); i++) {
+            if (SubscriberList.unwrap(members.get(i)).equals(handler)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
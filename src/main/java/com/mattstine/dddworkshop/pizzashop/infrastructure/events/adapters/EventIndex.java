@@ -0,0 +1,73 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of one topic: every event in append order plus a per-{@link Ref} stream for
+ * {@link AggregateEvent}s. Appends must be serialized by the owning topic; reads are lock-free.
+ *
+ * @author Matt Stine
+ */
+final class EventIndex {
+    private final AppendOnlyEventList events = new AppendOnlyEventList();
+    private final Map<Ref, AppendOnlyEventList> eventsByRef = new ConcurrentHashMap<>();
+
+    void append(Event event) {
+        events.append(event);
+        if (event instanceof AggregateEvent) {
+            Ref ref = ((AggregateEvent) event).getRef();
+            AppendOnlyEventList refEvents = eventsByRef.get(ref);
+            if (refEvents == null) {
+                refEvents = eventsByRef.computeIfAbsent(ref, k -> new AppendOnlyEventList());
+            }
+            refEvents.append(event);
+        }
+    }
+
+    int size() {
+        return events.size();
+    }
+
+    List<Event> all() {
+        return events.snapshot();
+    }
+
+    List<Event> byRef(Ref ref) {
+        AppendOnlyEventList refEvents = eventsByRef.get(ref);
+        return refEvents == null ? Collections.emptyList() : refEvents.snapshot();
+    }
+
+    /**
+     * Length of {@code ref}'s stream, i.e. its version, without taking a snapshot of it.
+     */
+    int sizeOf(Ref ref) {
+        AppendOnlyEventList refEvents = eventsByRef.get(ref);
+        return refEvents == null ? 0 : refEvents.size();
+    }
+
+    static void requireStreamOf(Ref ref, List<? extends AggregateEvent> events) {
+        if (ref == null) {
+            throw new IllegalArgumentException("Cannot append events without an aggregate Ref");
+        }
+        for (AggregateEvent event : events) {
+            if (!ref.equals(event.getRef())) {
+                throw new IllegalArgumentException("Cannot append an event of " + event.getRef() + " to the stream of " + ref);
+            }
+        }
+    }
+
+    static void requireStreamsOf(Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+        for (AggregateEvent event : events) {
+            if (event.getRef() == null || !expectedVersions.containsKey(event.getRef())) {
+                throw new IllegalArgumentException("Cannot append an event of " + event.getRef() + " without its expected version");
+            }
+        }
+    }
+}
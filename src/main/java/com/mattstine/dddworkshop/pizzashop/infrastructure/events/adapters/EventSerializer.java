@@ -0,0 +1,22 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts events to and from the payload bytes stored by durable {@link com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog}s.
+ *
+ * @author Matt Stine
+ */
+public interface EventSerializer {
+
+    EventSerializer JAVA = new JavaEventSerializer();
+
+    byte[] serialize(Event event);
+
+    /**
+     * Decodes the event held between the buffer's position and limit.
+     */
+    Event deserialize(ByteBuffer payload);
+}
@@ -0,0 +1,48 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * When a durable event log forces appended records to stable storage.
+ *
+ * @author Matt Stine
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FsyncPolicy {
+    Mode mode;
+    long maxDelayMillis;
+
+    /**
+     * Force after every append; an event is durable before {@code publish} returns.
+     */
+    public static FsyncPolicy everyEvent() {
+        return new FsyncPolicy(Mode.EVERY_EVENT, 0);
+    }
+
+    /**
+     * Coalesce concurrent publishers' events into one write and fsync per topic. A commit waits up
+     * to {@code maxDelayMillis} for more publishers to join it ({@code 0} commits immediately,
+     * batching only what arrived during the previous fsync); each publisher returns once the batch
+     * holding its event is durable.
+     */
+    public static FsyncPolicy groupCommit(long maxDelayMillis) {
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Cannot build group commit FsyncPolicy with max delay < 0");
+        }
+        return new FsyncPolicy(Mode.GROUP_COMMIT, maxDelayMillis);
+    }
+
+    /**
+     * Never force explicitly; leave write-back to the operating system.
+     */
+    public static FsyncPolicy osManaged() {
+        return new FsyncPolicy(Mode.OS_MANAGED, 0);
+    }
+
+    public enum Mode {
+        EVERY_EVENT, GROUP_COMMIT, OS_MANAGED
+    }
+}
@@ -0,0 +1,77 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that runs a commit whenever one is requested. After the first request of a
+ * round it lingers for up to the configured delay so that publishers arriving meanwhile share the
+ * same write and fsync; requests made while a commit is running are served by the next round.
+ *
+ * @author Matt Stine
+ */
+final class GroupCommitter implements Closeable {
+    private final long lingerNanos;
+    private final Runnable commit;
+    private final Thread thread;
+    private final Object signal = new Object();
+    private boolean requested;
+    private boolean closed;
+
+    GroupCommitter(String name, long lingerMillis, Runnable commit) {
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.commit = commit;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void requestCommit() {
+        synchronized (signal) {
+            if (closed) {
+                throw new IllegalStateException("Cannot commit after close");
+            }
+            requested = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (signal) {
+                while (!requested && !closed) {
+                    try {
+                        signal.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!requested) {
+                    return;
+                }
+                requested = false;
+            }
+            if (lingerNanos > 0) {
+                LockSupport.parkNanos(lingerNanos);
+            }
+            commit.run();
+        }
+    }
+
+    /**
+     * Stops the thread once any outstanding request has been committed.
+     */
+    @Override
+    public void close() {
+        synchronized (signal) {
+            closed = true;
+            signal.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,53 +4,680 @@ import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
-import lombok.AccessLevel;
-import lombok.NoArgsConstructor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
+ * Thread-safe in-memory {@link EventLog}. State is striped per {@link Topic}: appends to one topic
+ * never contend with appends to another, and readers of {@link #eventsBy} get an immutable
+ * snapshot without taking any lock.
+ * <p>
+ * By default subscribers run synchronously on the publishing thread. In asynchronous mode each
+ * subscription gets its own {@link Mailbox} drained by an {@link Executor}: {@link #publish} returns
+ * as soon as the event is appended, and every handler still sees each topic's events in append order.
+ * {@link #withVirtualThreadDispatch(int) Virtual-thread dispatch} drains each mailbox on a virtual
+ * thread of its own, so handlers written in a blocking style cost no platform thread while they wait.
+ * The shared {@link #instance()} runs asynchronously when the {@value #DISPATCH_PROPERTY} system
+ * property is set to {@code async}, or on virtual threads when it is set to {@code virtual}.
+ * <p>
+ * A log built {@link #withPartitions(int) with partitions} splits every topic by the hash of
+ * {@link AggregateEvent#getRef()}; other events go to partition 0. Each partition has its own lock,
+ * so one busy topic is no longer a single serialization point, and one aggregate's events stay in
+ * order in one partition. Subscribers of a single {@link #subscribeToPartition partition} run
+ * independently of the others. Events carry a topic-wide sequence number, from which
+ * {@link #eventsBy(Topic)} merges the partitions back into one stable order. That merge copies the
+ * topic; {@link #eventsBy(Topic, Ref)} reads only the aggregate's partition. The shared
+ * {@link #instance()} takes its partition count from the {@value #PARTITIONS_PROPERTY} system property.
+ * <p>
+ * An {@link #append versioned append} checks the aggregate's stream length under its partition's lock,
+ * so conflicting writers to one aggregate are caught without serializing writers to any other.
+ * <p>
+ * A batch from {@link #publishAll} or {@link #appendAll} takes the lock of each partition it touches
+ * once, in partition order, and holds them all while its versions are checked and its events appended.
+ * Synchronous subscribers are then handed the batch in order, so none of them sees part of it before the
+ * rest is stored.
+ * <p>
+ * A {@link #subscribeToGroup consumer group} shares a topic's partitions among its members, so a handler
+ * can be scaled out to as many workers as there are partitions. In asynchronous mode each member has
+ * one mailbox and sees each of its partitions in order; right after a rebalance, the previous owner
+ * may still be draining a partition's earlier events while the new owner starts on later ones.
+ * <p>
+ * Asynchronous mailboxes are unbounded unless the log is built with a bounded {@link MailboxPolicy}, so
+ * that one slow subscriber cannot take unbounded memory; {@link #lag(Topic)} reports each subscriber's
+ * backlog. A publisher held back by a full blocking mailbox waits after its event is appended and all
+ * partition locks are released, so subscribers may publish into the topics they consume.
+ * <p>
+ * Per-topic state is indexed by {@link Topic#getId()}, so publishing to a known topic does no hashing
+ * and allocates nothing but the event's own storage.
+ * <p>
+ * A catch-up {@link #subscribe(Topic, long, EventHandler) subscription} is registered and its history
+ * snapshotted under all of the topic's partition locks, so every event lands either in the replayed
+ * history or in live delivery, never both. The history is replayed on the subscribing thread while live events are held
+ * back, then the subscription goes live.
+ *
  * @author Matt Stine
  */
-@NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class InProcessEventLog implements EventLog {
-    private final Map<Topic, Set<EventHandler>> topics = new HashMap<>();
-    private final Map<Topic, List<Event>> events = new HashMap<>();
-    private static InProcessEventLog singleton;
+    static final String DISPATCH_PROPERTY = "pizzashop.eventlog.dispatch";
+    static final String PARTITIONS_PROPERTY = "pizzashop.eventlog.partitions";
+
+    private volatile TopicLog[] topics = new TopicLog[16];
+    private final Executor dispatchExecutor;
+    private final int partitions;
+    private final MailboxPolicy mailboxPolicy;
+
+    InProcessEventLog() {
+        this(null, 1, MailboxPolicy.unbounded());
+    }
+
+    private InProcessEventLog(Executor dispatchExecutor, int partitions, MailboxPolicy mailboxPolicy) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Cannot build InProcessEventLog with " + partitions + " partitions");
+        }
+        if (mailboxPolicy == null) {
+            throw new IllegalArgumentException("Cannot build InProcessEventLog without a MailboxPolicy");
+        }
+        this.dispatchExecutor = dispatchExecutor;
+        this.partitions = partitions;
+        this.mailboxPolicy = mailboxPolicy;
+    }
 
     public static InProcessEventLog instance() {
-        if (singleton == null) {
-            singleton = new InProcessEventLog();
+        return Holder.SINGLETON;
+    }
+
+    /**
+     * Creates an isolated log whose subscribers are invoked from {@code dispatchExecutor}.
+     */
+    public static InProcessEventLog withAsynchronousDispatch(Executor dispatchExecutor) {
+        return withAsynchronousDispatch(dispatchExecutor, 1);
+    }
+
+    /**
+     * Creates an isolated log that splits every topic into {@code partitions} partitions and invokes
+     * subscribers from {@code dispatchExecutor}.
+     */
+    public static InProcessEventLog withAsynchronousDispatch(Executor dispatchExecutor, int partitions) {
+        return withAsynchronousDispatch(dispatchExecutor, partitions, MailboxPolicy.unbounded());
+    }
+
+    /**
+     * Creates an isolated log that splits every topic into {@code partitions} partitions and invokes
+     * subscribers from {@code dispatchExecutor}, through mailboxes bounded by {@code mailboxPolicy}.
+     */
+    public static InProcessEventLog withAsynchronousDispatch(Executor dispatchExecutor, int partitions, MailboxPolicy mailboxPolicy) {
+        if (dispatchExecutor == null) {
+            throw new IllegalArgumentException("Cannot build asynchronous InProcessEventLog without an Executor");
         }
-        return singleton;
+        return new InProcessEventLog(dispatchExecutor, partitions, mailboxPolicy);
+    }
+
+    /**
+     * Creates an isolated log that splits every topic into {@code partitions} partitions and drains
+     * every subscriber's mailbox on a new virtual thread.
+     */
+    public static InProcessEventLog withVirtualThreadDispatch(int partitions) {
+        return new InProcessEventLog(Executors.newVirtualThreadPerTaskExecutor(), partitions, MailboxPolicy.unbounded());
+    }
+
+    /**
+     * Creates an isolated, synchronously dispatching log that splits every topic into {@code partitions}
+     * partitions.
+     */
+    public static InProcessEventLog withPartitions(int partitions) {
+        return new InProcessEventLog(null, partitions, MailboxPolicy.unbounded());
+    }
+
+    public boolean isAsynchronous() {
+        return dispatchExecutor != null;
     }
 
     @Override
     public void publish(Topic topic, Event event) {
-        List<Event> events = this.events.computeIfAbsent(topic, k -> new ArrayList<>());
-        events.add(event);
-        Set<EventHandler> subscribers = this.topics.computeIfAbsent(topic, k -> new HashSet<>());
-        subscribers
-                .forEach(subscriber -> subscriber.handleEvent(event));
+        Partition partition = topicLog(topic).partitionFor(event);
+        if (isAsynchronous()) {
+            awaitRoom(partition.appendAndEnqueue(event));
+        } else {
+            for (EventHandler subscriber : partition.append(event)) {
+                subscriber.handleEvent(event);
+            }
+        }
+    }
+
+    @Override
+    public void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events) {
+        EventIndex.requireStreamOf(ref, events);
+        Partition partition = topicLog(topic).partitionFor(ref);
+        if (isAsynchronous()) {
+            awaitRoom(partition.appendAndEnqueue(ref, expectedVersion, events));
+        } else {
+            EventHandler[] subscribers = partition.append(ref, expectedVersion, events);
+            for (Event event : events) {
+                for (EventHandler subscriber : subscribers) {
+                    subscriber.handleEvent(event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void publishAll(Topic topic, List<? extends Event> events) {
+        appendBatch(topic, Collections.emptyMap(), events);
+    }
+
+    @Override
+    public void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+        EventIndex.requireStreamsOf(expectedVersions, events);
+        appendBatch(topic, expectedVersions, events);
+    }
+
+    private void appendBatch(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends Event> events) {
+        if (events.isEmpty() && expectedVersions.isEmpty()) {
+            return;
+        }
+        EventHandler[][] subscribers = topicLog(topic).appendAll(expectedVersions, events, isAsynchronous());
+        if (isAsynchronous()) {
+            for (EventHandler[] eventSubscribers : subscribers) {
+                awaitRoom(eventSubscribers);
+            }
+        } else {
+            for (int i = 0; i < events.size(); i++) {
+                for (EventHandler subscriber : subscribers[i]) {
+                    subscriber.handleEvent(events.get(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getVersion(Topic topic, Ref ref) {
+        return topicLog(topic).partitionFor(ref).events.sizeOf(ref);
     }
 
     @Override
     public void subscribe(Topic topic, EventHandler handler) {
-        Set<EventHandler> subscribers = this.topics.computeIfAbsent(topic, k -> new HashSet<>());
-        subscribers.add(handler);
+        topicLog(topic).subscribe(isAsynchronous() ? mailbox(handler) : handler);
+    }
+
+    @Override
+    public void subscribe(Topic topic, long fromOffset, EventHandler handler) {
+        TopicLog topicLog = topicLog(topic);
+        if (fromOffset < 0 || fromOffset > topicLog.size()) {
+            throw new IllegalArgumentException("Cannot subscribe to " + topic.getName() + " from offset " + fromOffset);
+        }
+
+        if (isAsynchronous()) {
+            Mailbox mailbox = new Mailbox(handler, dispatchExecutor, true, mailboxPolicy);
+            List<Event> history = topicLog.subscribeWithHistory(mailbox);
+            if (history != null) {
+                replay(topicLog, mailbox, () -> mailbox.replay(history.subList((int) fromOffset, history.size())));
+                mailbox.release();
+            }
+        } else {
+            CatchUpHandler catchUp = new CatchUpHandler(handler);
+            List<Event> history = topicLog.subscribeWithHistory(catchUp);
+            if (history != null) {
+                replay(topicLog, catchUp, () -> catchUp.replay(history.subList((int) fromOffset, history.size())));
+            }
+        }
+    }
+
+    /*
+     * Publishers wait for room in full blocking mailboxes only after letting go of every partition
+     * lock, so a subscriber that publishes back into a partition it consumes can still drain.
+     */
+    private static void awaitRoom(EventHandler[] subscribers) {
+        for (EventHandler subscriber : subscribers) {
+            if (subscriber instanceof BackpressuredSubscriber) {
+                ((BackpressuredSubscriber) subscriber).awaitRoom();
+            }
+        }
+    }
+
+    private static void replay(TopicLog topicLog, EventHandler subscriber, Runnable replay) {
+        try {
+            replay.run();
+        } catch (RuntimeException e) {
+            topicLog.unsubscribe(subscriber);
+            throw e;
+        }
+    }
+
+    @Override
+    public void subscribeToPartition(Topic topic, int partition, EventHandler handler) {
+        if (partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("Cannot subscribe to " + topic.getName() + " partition " + partition);
+        }
+        topicLog(topic).subscribeToPartition(partition, isAsynchronous() ? mailbox(handler) : handler);
+    }
+
+    @Override
+    public void subscribeToGroup(Topic topic, String group, EventHandler handler) {
+        topicLog(topic).subscribeToGroup(group, isAsynchronous() ? mailbox(handler) : handler);
+    }
+
+    @Override
+    public void unsubscribeFromGroup(Topic topic, String group, EventHandler handler) {
+        topicLog(topic).unsubscribeFromGroup(group, handler);
     }
 
     @Override
     public int getNumberOfSubscribers(Topic topic) {
-        return this.topics.computeIfAbsent(topic, k -> new HashSet<>()).size();
+        return topicLog(topic).subscriberCount();
+    }
+
+    @Override
+    public int getNumberOfPartitions(Topic topic) {
+        return partitions;
     }
 
     @Override
     public List<Event> eventsBy(Topic topic) {
-        return this.events.computeIfAbsent(topic, k -> new ArrayList<>());
+        return topicLog(topic).all();
+    }
+
+    @Override
+    public List<Event> eventsBy(Topic topic, Ref ref) {
+        return topicLog(topic).partitionFor(ref).events.byRef(ref);
+    }
+
+    /**
+     * Backlog of every asynchronous subscriber of {@code topic}, including consumer-group members; empty
+     * when subscribers run synchronously.
+     */
+    public List<SubscriberLag> lag(Topic topic) {
+        return topicLog(topic).lag();
     }
 
     public void purgeSubscribers() {
-        this.topics.clear();
+        for (TopicLog topicLog : topics) {
+            if (topicLog != null) {
+                topicLog.clearSubscribers();
+            }
+        }
+    }
+
+    private Mailbox mailbox(EventHandler handler) {
+        return new Mailbox(handler, dispatchExecutor, false, mailboxPolicy);
+    }
+
+    /*
+     * Topic state lives in an array indexed by the topic's dense id, so resolving a known topic is a
+     * bounds check and an array load. Only a topic's first use takes the lock.
+     */
+    private TopicLog topicLog(Topic topic) {
+        TopicLog[] current = topics;
+        int id = topic.getId();
+        TopicLog topicLog = id < current.length ? current[id] : null;
+        return topicLog != null ? topicLog : createTopicLog(id);
+    }
+
+    private synchronized TopicLog createTopicLog(int id) {
+        TopicLog[] current = topics;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length << 1, id + 1));
+        }
+        TopicLog topicLog = current[id];
+        if (topicLog == null) {
+            topicLog = new TopicLog(partitions);
+            current[id] = topicLog;
+            topics = current;
+        }
+        return topicLog;
+    }
+
+    private static final class Holder {
+        private static final int PARTITIONS = Integer.getInteger(PARTITIONS_PROPERTY, 1);
+        private static final InProcessEventLog SINGLETON = create(System.getProperty(DISPATCH_PROPERTY));
+
+        private static InProcessEventLog create(String dispatch) {
+            if ("async".equals(dispatch)) {
+                return new InProcessEventLog(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "event-dispatch");
+                    thread.setDaemon(true);
+                    return thread;
+                }), PARTITIONS, MailboxPolicy.unbounded());
+            }
+            if ("virtual".equals(dispatch)) {
+                return withVirtualThreadDispatch(PARTITIONS);
+            }
+            return new InProcessEventLog(null, PARTITIONS, MailboxPolicy.unbounded());
+        }
+    }
+
+    /**
+     * A topic's partitions, plus the subscribers and consumer groups registered for all of them.
+     * Whole-topic subscribers and each group's per-partition routers are also added to every
+     * partition's own list, so an append only ever reads its partition's subscribers.
+     */
+    private static final class TopicLog {
+        private final Partition[] partitions;
+        private final SubscriberList subscribers = new SubscriberList();
+        private final Map<String, ConsumerGroup> groups = new HashMap<>();
+        private int partitionSubscriptions;
+
+        private TopicLog(int count) {
+            AtomicLong sequence = count > 1 ? new AtomicLong() : null;
+            partitions = new Partition[count];
+            for (int i = 0; i < count; i++) {
+                partitions[i] = new Partition(sequence);
+            }
+        }
+
+        private Partition partitionFor(Event event) {
+            return partitions[indexOf(event)];
+        }
+
+        private Partition partitionFor(Ref ref) {
+            return partitions[indexOf(ref)];
+        }
+
+        private int indexOf(Event event) {
+            if (partitions.length == 1 || !(event instanceof AggregateEvent)) {
+                return 0;
+            }
+            return indexOf(((AggregateEvent) event).getRef());
+        }
+
+        private int indexOf(Ref ref) {
+            if (partitions.length == 1) {
+                return 0;
+            }
+            int hash = ref.hashCode();
+            return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+        }
+
+        private int size() {
+            int size = 0;
+            for (Partition partition : partitions) {
+                size += partition.events.size();
+            }
+            return size;
+        }
+
+        private synchronized void subscribe(EventHandler subscriber) {
+            if (subscribers.add(subscriber)) {
+                for (Partition partition : partitions) {
+                    partition.subscribe(subscriber);
+                }
+            }
+        }
+
+        /**
+         * Registers {@code subscriber} and returns the history it has not been sent, or {@code null}
+         * if an equal subscriber was already registered.
+         */
+        private synchronized List<Event> subscribeWithHistory(EventHandler subscriber) {
+            if (!subscribers.add(subscriber)) {
+                return null;
+            }
+            return withPartitionsLocked(0, () -> {
+                for (Partition partition : partitions) {
+                    partition.subscribe(subscriber);
+                }
+                return all();
+            });
+        }
+
+        /*
+         * Holding every partition lock means no append is in flight, so the merged history has no
+         * gaps and no event can be both in it and dispatched live.
+         */
+        private <T> T withPartitionsLocked(int from, Supplier<T> action) {
+            return withPartitionsLocked(null, from, action);
+        }
+
+        /*
+         * Locks are always taken in partition order, so batches and catch-up subscriptions that need
+         * several of them cannot deadlock. A null mask takes every lock.
+         */
+        private <T> T withPartitionsLocked(boolean[] mask, int from, Supplier<T> action) {
+            while (from < partitions.length && mask != null && !mask[from]) {
+                from++;
+            }
+            if (from == partitions.length) {
+                return action.get();
+            }
+            synchronized (partitions[from]) {
+                return withPartitionsLocked(mask, from + 1, action);
+            }
+        }
+
+        /**
+         * Checks every expected version and then appends the whole batch under the locks of the
+         * partitions it touches. Returns each event's subscribers, which have already been handed the
+         * event when {@code enqueue} is set.
+         */
+        private EventHandler[][] appendAll(Map<? extends Ref, Long> expectedVersions, List<? extends Event> batch, boolean enqueue) {
+            Partition[] targets = new Partition[batch.size()];
+            boolean[] touched = new boolean[partitions.length];
+            for (int i = 0; i < targets.length; i++) {
+                int index = indexOf(batch.get(i));
+                targets[i] = partitions[index];
+                touched[index] = true;
+            }
+            for (Ref ref : expectedVersions.keySet()) {
+                touched[indexOf(ref)] = true;
+            }
+            return withPartitionsLocked(touched, 0, () -> {
+                expectedVersions.forEach((ref, version) -> partitionFor(ref).checkVersion(ref, version));
+                EventHandler[][] subscribers = new EventHandler[targets.length][];
+                for (int i = 0; i < targets.length; i++) {
+                    subscribers[i] = enqueue ? targets[i].appendAndEnqueue(batch.get(i)) : targets[i].append(batch.get(i));
+                }
+                return subscribers;
+            });
+        }
+
+        private synchronized void subscribeToPartition(int partition, EventHandler subscriber) {
+            if (partitions[partition].subscribe(subscriber)) {
+                partitionSubscriptions++;
+            }
+        }
+
+        private synchronized void subscribeToGroup(String name, EventHandler member) {
+            ConsumerGroup group = groups.get(name);
+            if (group == null) {
+                group = new ConsumerGroup(partitions.length);
+                for (int i = 0; i < partitions.length; i++) {
+                    partitions[i].subscribe(group.router(i));
+                }
+                groups.put(name, group);
+            }
+            group.join(member);
+        }
+
+        private synchronized void unsubscribeFromGroup(String name, EventHandler member) {
+            ConsumerGroup group = groups.get(name);
+            if (group != null && group.leave(member) && group.isEmpty()) {
+                for (int i = 0; i < partitions.length; i++) {
+                    partitions[i].unsubscribe(group.router(i));
+                }
+                groups.remove(name);
+            }
+        }
+
+        private synchronized void unsubscribe(EventHandler subscriber) {
+            subscribers.remove(subscriber);
+            for (Partition partition : partitions) {
+                partition.unsubscribe(subscriber);
+            }
+        }
+
+        private synchronized void clearSubscribers() {
+            subscribers.clear();
+            groups.clear();
+            partitionSubscriptions = 0;
+            for (Partition partition : partitions) {
+                partition.clearSubscribers();
+            }
+        }
+
+        private synchronized List<SubscriberLag> lag() {
+            Set<Mailbox> mailboxes = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Partition partition : partitions) {
+                for (EventHandler subscriber : partition.subscribers.handlers()) {
+                    if (subscriber instanceof Mailbox) {
+                        mailboxes.add((Mailbox) subscriber);
+                    }
+                }
+            }
+            for (ConsumerGroup group : groups.values()) {
+                for (EventHandler member : group.members()) {
+                    if (member instanceof Mailbox) {
+                        mailboxes.add((Mailbox) member);
+                    }
+                }
+            }
+            List<SubscriberLag> lag = new ArrayList<>(mailboxes.size());
+            mailboxes.forEach(mailbox -> lag.add(mailbox.lag()));
+            return lag;
+        }
+
+        private synchronized int subscriberCount() {
+            int count = subscribers.size() + partitionSubscriptions;
+            for (ConsumerGroup group : groups.values()) {
+                count += group.size();
+            }
+            return count;
+        }
+
+        /**
+         * Every partition's events in topic-wide sequence order. The merge stops at the first missing
+         * sequence number, which belongs to an append still in progress, so the result only ever grows
+         * at the end from one call to the next.
+         */
+        private List<Event> all() {
+            if (partitions.length == 1) {
+                return partitions[0].events.all();
+            }
+            List<List<Event>> events = new ArrayList<>(partitions.length);
+            long[][] sequences = new long[partitions.length][];
+            int total = 0;
+            for (int i = 0; i < partitions.length; i++) {
+                List<Event> partitionEvents = partitions[i].events.all();
+                events.add(partitionEvents);
+                sequences[i] = partitions[i].sequences.snapshot(partitionEvents.size());
+                total += partitionEvents.size();
+            }
+
+            Event[] merged = new Event[total];
+            int[] cursors = new int[partitions.length];
+            int count = 0;
+            int current = 0;
+            while (count < total) {
+                int found = -1;
+                for (int probe = 0; probe < partitions.length; probe++) {
+                    int i = (current + probe) % partitions.length;
+                    if (cursors[i] < sequences[i].length && sequences[i][cursors[i]] == count) {
+                        found = i;
+                        break;
+                    }
+                }
+                if (found < 0) {
+                    break;
+                }
+                merged[count++] = events.get(found).get(cursors[found]++);
+                current = found;
+            }
+            return Collections.unmodifiableList(Arrays.asList(merged).subList(0, count));
+        }
+    }
+
+    private static final class Partition implements Mailbox.Source {
+        private final SubscriberList subscribers = new SubscriberList();
+        private final EventIndex events = new EventIndex();
+        private final AtomicLong topicSequence;
+        private final SequenceList sequences;
+
+        private Partition(AtomicLong topicSequence) {
+            this.topicSequence = topicSequence;
+            this.sequences = topicSequence != null ? new SequenceList() : null;
+        }
+
+        /*
+         * Reading the subscribers under the lock that orders appends means a subscriber registered
+         * by subscribeWithHistory either sees this event in its history or is handed it here.
+         */
+        private synchronized EventHandler[] append(Event event) {
+            if (sequences != null) {
+                sequences.append(topicSequence.getAndIncrement());
+            }
+            events.append(event);
+            return subscribers.handlers();
+        }
+
+        /*
+         * An aggregate's stream lives in a single partition, so its lock is all the version check needs.
+         */
+        private synchronized EventHandler[] append(Ref ref, long expectedVersion, List<? extends AggregateEvent> batch) {
+            checkVersion(ref, expectedVersion);
+            batch.forEach(this::append);
+            return subscribers.handlers();
+        }
+
+        private synchronized EventHandler[] appendAndEnqueue(Ref ref, long expectedVersion, List<? extends AggregateEvent> batch) {
+            checkVersion(ref, expectedVersion);
+            batch.forEach(this::appendAndEnqueue);
+            return subscribers.handlers();
+        }
+
+        private void checkVersion(Ref ref, long expectedVersion) {
+            int version = events.sizeOf(ref);
+            if (version != expectedVersion) {
+                throw new VersionConflictException(ref, expectedVersion, version);
+            }
+        }
+
+        /*
+         * Enqueueing under the partition lock keeps every mailbox in append order, and gives a
+         * spilling mailbox offsets that agree with resume. Nothing here waits for a full mailbox;
+         * the caller does that with the returned subscribers once the lock is released.
+         */
+        private synchronized EventHandler[] appendAndEnqueue(Event event) {
+            EventHandler[] subscribers = append(event);
+            int offset = events.size() - 1;
+            for (EventHandler subscriber : subscribers) {
+                if (subscriber instanceof BackpressuredSubscriber) {
+                    ((BackpressuredSubscriber) subscriber).offer(event, this, offset);
+                } else {
+                    subscriber.handleEvent(event);
+                }
+            }
+            return subscribers;
+        }
+
+        @Override
+        public synchronized List<Event> resume(Mailbox mailbox, int offset) {
+            mailbox.endSpill(this);
+            List<Event> all = events.all();
+            return all.subList(offset, all.size());
+        }
+
+        private synchronized boolean subscribe(EventHandler subscriber) {
+            return subscribers.add(subscriber);
+        }
+
+        private synchronized void unsubscribe(EventHandler subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        private synchronized void clearSubscribers() {
+            subscribers.clear();
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static java.io.ObjectStreamConstants.STREAM_MAGIC;
+import static java.io.ObjectStreamConstants.STREAM_VERSION;
+
+/**
+ * {@link EventSerializer} backed by Java serialization with compact class descriptors: instead of
+ * its full field list, each class in a payload is described by its name, its
+ * {@code serialVersionUID} and a fingerprint of its serialized fields. The event, state and reference
+ * types pin their {@code serialVersionUID}s, so payloads stay readable across recompiles; decoding
+ * checks both against the local class, so a class whose serialized fields have changed since the
+ * event was written is rejected rather than misread.
+ * <p>
+ * Each thread reuses one {@link ObjectOutputStream}, reset after every event so that each payload is
+ * a stream of its own, rather than building a stream and its buffers per event.
+ *
+ * @author Matt Stine
+ */
+final class JavaEventSerializer implements EventSerializer {
+    private static final ClassValue<byte[]> DESCRIPTORS = new ClassValue<byte[]>() {
+        @Override
+        protected byte[] computeValue(Class<?> type) {
+            ObjectStreamClass descriptor = ObjectStreamClass.lookupAny(type);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(descriptor.getName());
+                out.writeLong(descriptor.getSerialVersionUID());
+                out.writeInt(fingerprint(descriptor));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot describe class: " + type.getName(), e);
+            }
+            return bytes.toByteArray();
+        }
+    };
+
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    @Override
+    public byte[] serialize(Event event) {
+        try {
+            return encoders.get().encode(event);
+        } catch (IOException e) {
+            encoders.remove();
+            throw new IllegalStateException("Cannot serialize event of type: " + event.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Event deserialize(ByteBuffer payload) {
+        try (ObjectInputStream in = new CompactDescriptorInputStream(new ByteBufferInputStream(payload))) {
+            return (Event) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot deserialize event", e);
+        }
+    }
+
+    private static int fingerprint(ObjectStreamClass descriptor) {
+        StringBuilder fields = new StringBuilder();
+        for (ObjectStreamField field : descriptor.getFields()) {
+            fields.append(field.getTypeCode()).append(field.getName());
+            if (!field.isPrimitive()) {
+                fields.append(field.getTypeString());
+            }
+            fields.append(';');
+        }
+        return fields.toString().hashCode();
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        private final ObjectOutputStream out;
+
+        private Encoder() {
+            try {
+                out = new CompactDescriptorOutputStream(bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create serialization stream", e);
+            }
+        }
+
+        /*
+         * The stream header was written once, when the stream was created, so each payload gets its
+         * own copy in front of the event. The reset marker written after the event is dropped with
+         * the rest of the buffer before the next one.
+         */
+        private byte[] encode(Event event) throws IOException {
+            bytes.reset();
+            bytes.write(STREAM_MAGIC >>> 8);
+            bytes.write(STREAM_MAGIC & 0xFF);
+            bytes.write(STREAM_VERSION >>> 8);
+            bytes.write(STREAM_VERSION & 0xFF);
+            out.writeObject(event);
+            out.flush();
+            byte[] payload = bytes.toByteArray();
+            out.reset();
+            out.flush();
+            return payload;
+        }
+    }
+
+    private static final class CompactDescriptorOutputStream extends ObjectOutputStream {
+
+        private CompactDescriptorOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass descriptor) throws IOException {
+            write(DESCRIPTORS.get(descriptor.forClass()));
+        }
+    }
+
+    private static final class CompactDescriptorInputStream extends ObjectInputStream {
+
+        private CompactDescriptorInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            String name = readUTF();
+            long serialVersionUID = readLong();
+            int fingerprint = readInt();
+            Class<?> type = Class.forName(name, false, JavaEventSerializer.class.getClassLoader());
+            ObjectStreamClass local = ObjectStreamClass.lookupAny(type);
+            if (local.getSerialVersionUID() != serialVersionUID || fingerprint(local) != fingerprint) {
+                throw new InvalidClassException(name, "Cannot read class changed since the event was written");
+            }
+            return local;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
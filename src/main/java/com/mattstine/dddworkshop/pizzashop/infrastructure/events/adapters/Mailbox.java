@@ -0,0 +1,259 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered, asynchronously drained inbox for one subscriber of one topic. Events are handed to the
+ * wrapped handler in the order they were offered, and at most one drain task runs at a time, so the
+ * handler never sees two events of the same topic concurrently. A mailbox created held accepts
+ * events but does not deliver them until {@link #release()}.
+ * <p>
+ * A bounded {@link MailboxPolicy} caps the events queued or being handled. When full, the publisher
+ * blocks, the event is dropped, or the mailbox spills: it stops queueing that {@link Source}'s events,
+ * and once the queue is empty it reads them back from the source, from the offset it stopped at.
+ * Spilling needs to know where an event came from, so a spilling mailbox rejects an event handed to
+ * {@link #handleEvent} without one.
+ * <p>
+ * A source offers events under its append lock, which the drain may need if the handler publishes back
+ * into it, so {@link #offer} never blocks: a blocking mailbox queues the event regardless, and the
+ * publisher waits in {@link #awaitRoom()} once it has let go of the lock. A handler is never held back
+ * this way, since its own drain, or another one waiting on it, may be the one that has to make room;
+ * what handlers publish can take a blocking mailbox over its capacity.
+ *
+ * @author Matt Stine
+ */
+final class Mailbox implements BackpressuredSubscriber {
+    private static final ThreadLocal<Boolean> DRAINING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final EventHandler handler;
+    private final Executor executor;
+    private final MailboxPolicy policy;
+    private final Semaphore permits;
+    private final boolean blocking;
+    private final ReentrantLock roomLock = new ReentrantLock();
+    private final Condition room = roomLock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Map<Source, Integer> spills = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    Mailbox(EventHandler handler, Executor executor) {
+        this(handler, executor, false);
+    }
+
+    Mailbox(EventHandler handler, Executor executor, boolean held) {
+        this(handler, executor, held, MailboxPolicy.unbounded());
+    }
+
+    Mailbox(EventHandler handler, Executor executor, boolean held, MailboxPolicy policy) {
+        this.handler = handler;
+        this.executor = executor;
+        this.policy = policy;
+        this.blocking = policy.isBounded() && policy.getOverflow() == MailboxPolicy.Overflow.BLOCK;
+        this.permits = policy.isBounded() && !blocking ? new Semaphore(policy.getCapacity()) : null;
+        this.scheduled.set(held);
+    }
+
+    EventHandler handler() {
+        return handler;
+    }
+
+    void release() {
+        scheduled.set(false);
+        if (!queue.isEmpty() || !spills.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Hands the history of a held mailbox to the handler on the calling thread, ahead of anything
+     * queued since; events the handler publishes meanwhile must not wait for this mailbox to drain.
+     */
+    void replay(List<Event> history) {
+        Boolean outer = DRAINING.get();
+        DRAINING.set(Boolean.TRUE);
+        try {
+            history.forEach(handler::handleEvent);
+        } finally {
+            DRAINING.set(outer);
+        }
+    }
+
+    /**
+     * Offers an event from no particular source, waiting first for room in a full blocking mailbox.
+     * Must not be called under a lock the drain may need.
+     */
+    @Override
+    public void handleEvent(Event e) {
+        awaitRoom(policy.getCapacity() - 1);
+        offer(e, null, -1);
+    }
+
+    /**
+     * Offers the event at {@code offset} of {@code source}. Must be called under the source's append
+     * lock, so that the offsets a spilling mailbox records are consistent with {@link Source#resume}.
+     */
+    @Override
+    public void offer(Event e, Source source, int offset) {
+        if (permits != null && source == null && policy.getOverflow() == MailboxPolicy.Overflow.SPILL) {
+            throw new IllegalStateException("Cannot spill an event offered without a source");
+        }
+        if (permits != null && !reserve(source)) {
+            if (policy.getOverflow() == MailboxPolicy.Overflow.DROP) {
+                dropped.incrementAndGet();
+            } else {
+                spills.putIfAbsent(source, offset);
+                spilled.incrementAndGet();
+            }
+            return;
+        }
+        queued.incrementAndGet();
+        queue.offer(e);
+        scheduleDrain();
+    }
+
+    SubscriberLag lag() {
+        return new SubscriberLag(handler, queued.get(), spilled.get(), delivered.get(), dropped.get(),
+                dropped.get() > 0 || !spills.isEmpty());
+    }
+
+    /**
+     * Waits until a blocking mailbox is back within its capacity. Returns at once on a drain thread.
+     */
+    @Override
+    public void awaitRoom() {
+        awaitRoom(policy.getCapacity());
+    }
+
+    private boolean reserve(Source source) {
+        if (policy.getOverflow() == MailboxPolicy.Overflow.SPILL && spills.containsKey(source)) {
+            return false;
+        }
+        return permits.tryAcquire();
+    }
+
+    /*
+     * Registering as a waiter before looking at the count means a drain that empties the mailbox
+     * afterwards always sees the waiter and signals it.
+     */
+    private void awaitRoom(int limit) {
+        if (!blocking || queued.get() <= limit || DRAINING.get()) {
+            return;
+        }
+        roomLock.lock();
+        waiting.incrementAndGet();
+        try {
+            while (queued.get() > limit) {
+                room.await();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cannot wait for room in a full mailbox: interrupted", ex);
+        } finally {
+            waiting.decrementAndGet();
+            roomLock.unlock();
+        }
+    }
+
+    private void signalRoom() {
+        roomLock.lock();
+        try {
+            room.signalAll();
+        } finally {
+            roomLock.unlock();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Boolean outer = DRAINING.get();
+        DRAINING.set(Boolean.TRUE);
+        try {
+            do {
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    deliver(event);
+                    queued.decrementAndGet();
+                    if (permits != null) {
+                        permits.release();
+                    } else if (waiting.get() > 0) {
+                        signalRoom();
+                    }
+                }
+            } while (resumeSpills());
+        } finally {
+            DRAINING.set(outer);
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty() || !spills.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /*
+     * Reads back what each spilled source appended since the mailbox stopped queueing its events.
+     * The source ends the spill under its append lock, so its later events are queued again and none
+     * is both read back and queued.
+     */
+    private boolean resumeSpills() {
+        boolean resumed = false;
+        for (Map.Entry<Source, Integer> spill : spills.entrySet()) {
+            List<Event> missed = spill.getKey().resume(this, spill.getValue());
+            spilled.addAndGet(-missed.size());
+            missed.forEach(this::deliver);
+            resumed = true;
+        }
+        return resumed;
+    }
+
+    /**
+     * Called by a {@link Source} under its append lock to end this mailbox's spill of it.
+     */
+    void endSpill(Source source) {
+        spills.remove(source);
+    }
+
+    private void deliver(Event event) {
+        try {
+            handler.handleEvent(event);
+        } catch (RuntimeException ex) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+        delivered.incrementAndGet();
+    }
+
+    /**
+     * Where a spilling mailbox reads its missed events back from.
+     */
+    interface Source {
+        /**
+         * Under the append lock: calls {@link Mailbox#endSpill(Source)} and returns every event from
+         * {@code offset} to the current end.
+         */
+        List<Event> resume(Mailbox mailbox, int offset);
+    }
+}
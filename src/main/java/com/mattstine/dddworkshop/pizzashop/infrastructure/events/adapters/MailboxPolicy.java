@@ -0,0 +1,64 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * How many events an asynchronous subscriber's {@link Mailbox} may hold, and what a publisher does
+ * when it is full.
+ *
+ * @author Matt Stine
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MailboxPolicy {
+    int capacity;
+    Overflow overflow;
+
+    /**
+     * No limit; a slow subscriber's backlog grows in memory.
+     */
+    public static MailboxPolicy unbounded() {
+        return new MailboxPolicy(Integer.MAX_VALUE, Overflow.BLOCK);
+    }
+
+    /**
+     * A full mailbox blocks the publisher until the subscriber has made room. The publisher waits once its
+     * event is stored, outside the log's locks; subscribers publishing from their handlers are never
+     * held back, so what they publish may take a mailbox over its capacity.
+     */
+    public static MailboxPolicy block(int capacity) {
+        return new MailboxPolicy(checked(capacity), Overflow.BLOCK);
+    }
+
+    /**
+     * A full mailbox drops the event for that subscriber and marks it as lagging for good.
+     */
+    public static MailboxPolicy dropAndMarkLagging(int capacity) {
+        return new MailboxPolicy(checked(capacity), Overflow.DROP);
+    }
+
+    /**
+     * A full mailbox stops queueing and remembers the log offset it stopped at. Once the subscriber
+     * has drained its mailbox it reads the missed events back from the log and resumes live delivery.
+     */
+    public static MailboxPolicy spillToLog(int capacity) {
+        return new MailboxPolicy(checked(capacity), Overflow.SPILL);
+    }
+
+    boolean isBounded() {
+        return capacity != Integer.MAX_VALUE;
+    }
+
+    private static int checked(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cannot build MailboxPolicy with capacity < 1");
+        }
+        return capacity;
+    }
+
+    public enum Overflow {
+        BLOCK, DROP, SPILL
+    }
+}
@@ -0,0 +1,242 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Startup wrapper around an {@link EventLog} that rebuilds secondary indexes in parallel. Wire the
+ * repositories against it as usual: their catch-up {@link #subscribe(Topic, long, EventHandler)
+ * subscriptions} are recorded instead of replayed. {@link #replay()} then splits each topic's history
+ * into partitions of at most {@value #PARTITION_SIZE} events and runs them across a pool of workers,
+ * so small topics are indexed one per worker and large topics are shared out. Once every partition
+ * is done, each handler goes live from the offset it reached, with no gap or duplicate at the hand-over.
+ * <p>
+ * Because partitions of one topic run concurrently and in no particular order, recorded handlers must
+ * be thread-safe and must not depend on event order; the repositories' lookup maps qualify. Everything
+ * else, and every subscription made after {@link #replay()}, goes straight to the wrapped log.
+ *
+ * @author Matt Stine
+ */
+public final class ParallelStartupReplay implements EventLog {
+    static final int PARTITION_SIZE = 64 * 1024;
+
+    private final EventLog eventLog;
+    private final int parallelism;
+    private final List<Subscription> deferred = new ArrayList<>();
+    private boolean replayed;
+
+    public ParallelStartupReplay(EventLog eventLog) {
+        this(eventLog, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelStartupReplay(EventLog eventLog, int parallelism) {
+        if (eventLog == null) {
+            throw new IllegalArgumentException("Cannot replay without an EventLog");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Cannot replay with parallelism " + parallelism);
+        }
+        this.eventLog = eventLog;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void publish(Topic topic, Event event) {
+        eventLog.publish(topic, event);
+    }
+
+    @Override
+    public void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events) {
+        eventLog.append(topic, ref, expectedVersion, events);
+    }
+
+    @Override
+    public void publishAll(Topic topic, List<? extends Event> events) {
+        eventLog.publishAll(topic, events);
+    }
+
+    @Override
+    public void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+        eventLog.appendAll(topic, expectedVersions, events);
+    }
+
+    @Override
+    public long getVersion(Topic topic, Ref ref) {
+        return eventLog.getVersion(topic, ref);
+    }
+
+    @Override
+    public void subscribe(Topic topic, EventHandler handler) {
+        eventLog.subscribe(topic, handler);
+    }
+
+    @Override
+    public synchronized void subscribe(Topic topic, long fromOffset, EventHandler handler) {
+        if (replayed) {
+            eventLog.subscribe(topic, fromOffset, handler);
+            return;
+        }
+        if (fromOffset < 0 || fromOffset > eventLog.eventsBy(topic).size()) {
+            throw new IllegalArgumentException("Cannot subscribe to " + topic.getName() + " from offset " + fromOffset);
+        }
+        deferred.add(new Subscription(topic, fromOffset, handler));
+    }
+
+    @Override
+    public void subscribeToPartition(Topic topic, int partition, EventHandler handler) {
+        eventLog.subscribeToPartition(topic, partition, handler);
+    }
+
+    @Override
+    public void subscribeToGroup(Topic topic, String group, EventHandler handler) {
+        eventLog.subscribeToGroup(topic, group, handler);
+    }
+
+    @Override
+    public void unsubscribeFromGroup(Topic topic, String group, EventHandler handler) {
+        eventLog.unsubscribeFromGroup(topic, group, handler);
+    }
+
+    @Override
+    public int getNumberOfPartitions(Topic topic) {
+        return eventLog.getNumberOfPartitions(topic);
+    }
+
+    @Override
+    public synchronized int getNumberOfSubscribers(Topic topic) {
+        return eventLog.getNumberOfSubscribers(topic)
+                + (int) deferred.stream().filter(s -> s.topic.equals(topic)).count();
+    }
+
+    @Override
+    public List<Event> eventsBy(Topic topic) {
+        return eventLog.eventsBy(topic);
+    }
+
+    @Override
+    public List<Event> eventsBy(Topic topic, Ref ref) {
+        return eventLog.eventsBy(topic, ref);
+    }
+
+    /**
+     * Replays every recorded catch-up subscription in parallel and then hands each one over to live
+     * delivery. Blocks until all of them are live; the returned report's {@code timeToReady} covers both.
+     *
+     * @throws IllegalStateException if called more than once
+     */
+    public synchronized Report replay() {
+        if (replayed) {
+            throw new IllegalStateException("Cannot replay startup subscriptions more than once");
+        }
+        replayed = true;
+        long start = System.nanoTime();
+
+        List<Partition> partitions = new ArrayList<>();
+        long events = 0;
+        for (Subscription subscription : deferred) {
+            List<Event> history = eventLog.eventsBy(subscription.topic);
+            for (int from = (int) subscription.fromOffset; from < history.size(); from += PARTITION_SIZE) {
+                partitions.add(new Partition(subscription.handler, history.subList(from, Math.min(from + PARTITION_SIZE, history.size()))));
+            }
+            subscription.reached = history.size();
+            events += history.size() - subscription.fromOffset;
+        }
+
+        run(partitions);
+        for (Subscription subscription : deferred) {
+            eventLog.subscribe(subscription.topic, subscription.reached, subscription.handler);
+        }
+
+        Report report = new Report(deferred.size(), partitions.size(), events, Duration.ofNanos(System.nanoTime() - start));
+        deferred.clear();
+        return report;
+    }
+
+    private void run(List<Partition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, partitions.size()), r -> {
+            Thread thread = new Thread(r, "startup-replay-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(partitions.size());
+            for (Partition partition : partitions) {
+                futures.add(executor.submit(partition));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot replay startup subscriptions", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cannot replay startup subscriptions", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Outcome of {@link #replay()}: how many subscriptions and events were replayed, in how many
+     * partitions, and how long it took until all of them were live.
+     */
+    @Value
+    public static class Report {
+        int subscriptions;
+        int partitions;
+        long events;
+        Duration timeToReady;
+    }
+
+    private static final class Subscription {
+        private final Topic topic;
+        private final long fromOffset;
+        private final EventHandler handler;
+        private long reached;
+
+        private Subscription(Topic topic, long fromOffset, EventHandler handler) {
+            this.topic = topic;
+            this.fromOffset = fromOffset;
+            this.handler = handler;
+        }
+    }
+
+    private static final class Partition implements Runnable {
+        private final EventHandler handler;
+        private final List<Event> events;
+
+        private Partition(EventHandler handler, List<Event> events) {
+            this.handler = handler;
+            this.events = events;
+        }
+
+        @Override
+        public void run() {
+            for (Event event : events) {
+                handler.handleEvent(event);
+            }
+        }
+    }
+}
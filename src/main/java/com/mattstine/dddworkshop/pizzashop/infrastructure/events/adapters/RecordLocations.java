@@ -0,0 +1,28 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive record locations, avoiding a boxed {@code Long} per stored event.
+ *
+ * @author Matt Stine
+ */
+final class RecordLocations {
+    private long[] locations = new long[4];
+    private int size;
+
+    void add(long location) {
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, size << 1);
+        }
+        locations[size++] = location;
+    }
+
+    long get(int index) {
+        return locations[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
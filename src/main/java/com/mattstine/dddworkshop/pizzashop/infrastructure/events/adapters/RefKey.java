@@ -0,0 +1,59 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+
+import java.util.Objects;
+
+/**
+ * Index key for a {@link Ref} that matches whether it comes from the ref itself or from the reference
+ * stored with a record. An {@link IdRef} is keyed by its two longs without formatting its reference,
+ * and a stored reference in the formatted form parses back to the same longs; any other reference is
+ * keyed by its string.
+ *
+ * @author Matt Stine
+ */
+final class RefKey {
+    private final long id;
+    private final long node;
+    private final String reference;
+
+    private RefKey(long id, long node, String reference) {
+        this.id = id;
+        this.node = node;
+        this.reference = reference;
+    }
+
+    static RefKey of(Ref ref) {
+        if (ref instanceof IdRef) {
+            IdRef idRef = (IdRef) ref;
+            return new RefKey(idRef.getId(), idRef.getNode(), null);
+        }
+        return of(ref.getReference());
+    }
+
+    static RefKey of(String reference) {
+        if (RefIdGenerator.isFormatted(reference)) {
+            return new RefKey(RefIdGenerator.parseId(reference), RefIdGenerator.parseNode(reference), null);
+        }
+        return new RefKey(0, 0, reference);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RefKey)) {
+            return false;
+        }
+        RefKey other = (RefKey) o;
+        return id == other.id && node == other.node && Objects.equals(reference, other.reference);
+    }
+
+    @Override
+    public int hashCode() {
+        return reference != null ? reference.hashCode() : Long.hashCode(id * 31 + node);
+    }
+}
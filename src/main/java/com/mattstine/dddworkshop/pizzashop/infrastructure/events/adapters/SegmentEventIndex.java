@@ -0,0 +1,119 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.LongFunction;
+
+/**
+ * Event view of one segment-backed topic. Events recovered from disk are held only as record
+ * locations and decoded on access from the mapped segments; events appended by this process are
+ * held as objects in an {@link EventIndex}. Recovered events are looked up by {@link RefKey}, so a
+ * lookup does not format the ref's reference. Recovery completes before the first append, after which
+ * the recovered part is immutable.
+ *
+ * @author Matt Stine
+ */
+final class SegmentEventIndex implements TopicSegments.RecoveryListener {
+    private final LongFunction<Event> reader;
+    private final RecordLocations recovered = new RecordLocations();
+    private final Map<RefKey, RecordLocations> recoveredByRef = new HashMap<>();
+    private final EventIndex live = new EventIndex();
+
+    SegmentEventIndex(LongFunction<Event> reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public void recovered(long location, String reference) {
+        recovered.add(location);
+        if (reference != null) {
+            recoveredByRef.computeIfAbsent(RefKey.of(reference), k -> new RecordLocations()).add(location);
+        }
+    }
+
+    void append(Event event) {
+        live.append(event);
+    }
+
+    int size() {
+        return recovered.size() + live.size();
+    }
+
+    List<Event> all() {
+        return concat(new StoredEvents(recovered, recovered.size()), live.all());
+    }
+
+    List<Event> byRef(Ref ref) {
+        RecordLocations locations = recoveredByRef.get(RefKey.of(ref));
+        List<Event> stored = locations == null
+                ? Collections.emptyList()
+                : new StoredEvents(locations, locations.size());
+        return concat(stored, live.byRef(ref));
+    }
+
+    int sizeOf(Ref ref) {
+        RecordLocations locations = recoveredByRef.get(RefKey.of(ref));
+        return (locations == null ? 0 : locations.size()) + live.sizeOf(ref);
+    }
+
+    private static List<Event> concat(List<Event> stored, List<Event> appended) {
+        if (appended.isEmpty()) {
+            return stored;
+        }
+        if (stored.isEmpty()) {
+            return appended;
+        }
+        return new Concatenation(stored, appended);
+    }
+
+    private final class StoredEvents extends AbstractList<Event> implements RandomAccess {
+        private final RecordLocations locations;
+        private final int size;
+
+        private StoredEvents(RecordLocations locations, int size) {
+            this.locations = locations;
+            this.size = size;
+        }
+
+        @Override
+        public Event get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return reader.apply(locations.get(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class Concatenation extends AbstractList<Event> implements RandomAccess {
+        private final List<Event> first;
+        private final List<Event> second;
+
+        private Concatenation(List<Event> first, List<Event> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public Event get(int index) {
+            int firstSize = first.size();
+            return index < firstSize ? first.get(index) : second.get(index - firstSize);
+        }
+
+        @Override
+        public int size() {
+            return first.size() + second.size();
+        }
+    }
+}
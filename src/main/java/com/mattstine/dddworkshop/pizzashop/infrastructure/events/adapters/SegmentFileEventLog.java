@@ -0,0 +1,450 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Builder;
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * Durable {@link EventLog} that stores each topic as rolling append-only segment files under
+ * {@code directory/<topic name>/} (see {@link TopicSegments} for the record format). Every topic
+ * found on disk is recovered when the log is built, so {@link #eventsBy} answers for events
+ * published before a restart. Recovery only indexes record locations in the mapped segments;
+ * recovered events are decoded when a returned list element is read, not before. Subscribers are
+ * invoked synchronously after the append, and catch-up subscriptions hand over from replay to live
+ * delivery exactly as with {@link InProcessEventLog}, which lets projections rebuild after a restart.
+ * <p>
+ * Under {@link FsyncPolicy#groupCommit} publishers only enqueue their serialized event; a
+ * {@link GroupCommitter} writes and forces each topic's queued events together and completes them,
+ * and an event becomes visible to {@link #eventsBy} and subscribers only once it is durable. A
+ * {@link #append versioned append} counts an aggregate's queued and committing events towards its
+ * version, so a conflict is caught before the first of two conflicting events is durable.
+ * <p>
+ * A batch from {@link #publishAll}, {@link #appendAll} or a multi-event {@link #append} is checked and
+ * written under one acquisition of its topic's lock, as a single write and, under
+ * {@link FsyncPolicy#everyEvent}, a single force; under group commit it joins the pending batch whole.
+ *
+ * @author Matt Stine
+ */
+public final class SegmentFileEventLog implements EventLog, Closeable {
+    static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final EventSerializer serializer;
+    private final ConcurrentMap<Topic, TopicLog> topics = new ConcurrentHashMap<>();
+    private final GroupCommitter groupCommitter;
+
+    @Builder
+    private SegmentFileEventLog(@NonNull Path directory, long segmentBytes, FsyncPolicy fsyncPolicy, EventSerializer serializer) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes > 0 ? segmentBytes : DEFAULT_SEGMENT_BYTES;
+        this.fsyncPolicy = fsyncPolicy != null ? fsyncPolicy : FsyncPolicy.everyEvent();
+        this.serializer = serializer != null ? serializer : EventSerializer.JAVA;
+
+        recoverTopics();
+
+        if (this.fsyncPolicy.getMode() == FsyncPolicy.Mode.GROUP_COMMIT) {
+            groupCommitter = new GroupCommitter("segment-group-commit",
+                    this.fsyncPolicy.getMaxDelayMillis(),
+                    this::commitPendingBatches);
+        } else {
+            groupCommitter = null;
+        }
+    }
+
+    @Override
+    public void publish(Topic topic, Event event) {
+        TopicLog topicLog = topicLog(topic);
+        EventHandler[] subscribers;
+        if (groupCommitter != null) {
+            PendingBatch batch = topicLog.enqueue(event);
+            groupCommitter.requestCommit();
+            awaitDurable(batch.durable);
+            subscribers = batch.subscribers;
+        } else {
+            subscribers = topicLog.append(event);
+        }
+        for (EventHandler subscriber : subscribers) {
+            subscriber.handleEvent(event);
+        }
+    }
+
+    @Override
+    public void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events) {
+        EventIndex.requireStreamOf(ref, events);
+        appendBatch(topic, Collections.singletonMap(ref, expectedVersion), events);
+    }
+
+    @Override
+    public void publishAll(Topic topic, List<? extends Event> events) {
+        appendBatch(topic, Collections.emptyMap(), events);
+    }
+
+    @Override
+    public void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+        EventIndex.requireStreamsOf(expectedVersions, events);
+        appendBatch(topic, expectedVersions, events);
+    }
+
+    private void appendBatch(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends Event> events) {
+        if (events.isEmpty() && expectedVersions.isEmpty()) {
+            return;
+        }
+        TopicLog topicLog = topicLog(topic);
+        EventHandler[] subscribers;
+        if (groupCommitter != null) {
+            PendingBatch batch = topicLog.enqueue(expectedVersions, events);
+            groupCommitter.requestCommit();
+            awaitDurable(batch.durable);
+            subscribers = batch.subscribers;
+        } else {
+            subscribers = topicLog.append(expectedVersions, events);
+        }
+        for (Event event : events) {
+            for (EventHandler subscriber : subscribers) {
+                subscriber.handleEvent(event);
+            }
+        }
+    }
+
+    @Override
+    public long getVersion(Topic topic, Ref ref) {
+        return topicLog(topic).version(ref);
+    }
+
+    @Override
+    public void subscribe(Topic topic, EventHandler handler) {
+        topicLog(topic).subscribe(handler);
+    }
+
+    @Override
+    public void subscribe(Topic topic, long fromOffset, EventHandler handler) {
+        TopicLog topicLog = topicLog(topic);
+        if (fromOffset < 0 || fromOffset > topicLog.events.size()) {
+            throw new IllegalArgumentException("Cannot subscribe to " + topic.getName() + " from offset " + fromOffset);
+        }
+
+        CatchUpHandler catchUp = new CatchUpHandler(handler);
+        List<Event> history = topicLog.subscribeWithHistory(catchUp);
+        if (history != null) {
+            try {
+                catchUp.replay(history.subList((int) fromOffset, history.size()));
+            } catch (RuntimeException e) {
+                topicLog.unsubscribe(catchUp);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Topics are not partitioned on disk, so partition 0 is the whole topic.
+     */
+    @Override
+    public void subscribeToPartition(Topic topic, int partition, EventHandler handler) {
+        if (partition != 0) {
+            throw new IllegalArgumentException("Cannot subscribe to " + topic.getName() + " partition " + partition);
+        }
+        subscribe(topic, handler);
+    }
+
+    /**
+     * With a single partition, the group's first remaining member receives every event.
+     */
+    @Override
+    public void subscribeToGroup(Topic topic, String group, EventHandler handler) {
+        topicLog(topic).subscribeToGroup(group, handler);
+    }
+
+    @Override
+    public void unsubscribeFromGroup(Topic topic, String group, EventHandler handler) {
+        topicLog(topic).unsubscribeFromGroup(group, handler);
+    }
+
+    @Override
+    public int getNumberOfSubscribers(Topic topic) {
+        return topicLog(topic).subscriberCount();
+    }
+
+    @Override
+    public int getNumberOfPartitions(Topic topic) {
+        return 1;
+    }
+
+    @Override
+    public List<Event> eventsBy(Topic topic) {
+        return topicLog(topic).events.all();
+    }
+
+    @Override
+    public List<Event> eventsBy(Topic topic, Ref ref) {
+        return topicLog(topic).events.byRef(ref);
+    }
+
+    /**
+     * Forces every topic's unflushed appends to stable storage.
+     */
+    public void forceAll() {
+        topics.values().forEach(topicLog -> topicLog.segments.force());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+        for (TopicLog topicLog : topics.values()) {
+            topicLog.segments.close();
+        }
+    }
+
+    private void commitPendingBatches() {
+        for (TopicLog topicLog : topics.values()) {
+            PendingBatch batch = topicLog.takePending();
+            if (batch == null) {
+                continue;
+            }
+            try {
+                topicLog.segments.appendAll(batch.references, batch.payloads);
+                topicLog.segments.force();
+                topicLog.makeVisible(batch);
+                batch.durable.complete(null);
+            } catch (RuntimeException e) {
+                PendingBatch dependent = topicLog.abandon(batch);
+                batch.durable.completeExceptionally(e);
+                if (dependent != null) {
+                    dependent.durable.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void recoverTopics() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> topicDirectories = Files.list(directory)) {
+                topicDirectories.filter(Files::isDirectory)
+                        .forEach(d -> topicLog(Topic.of(d.getFileName().toString())));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open event log directory: " + directory, e);
+        }
+    }
+
+    private TopicLog topicLog(Topic topic) {
+        TopicLog topicLog = topics.get(topic);
+        return topicLog != null ? topicLog : topics.computeIfAbsent(topic, TopicLog::new);
+    }
+
+    private final class TopicLog {
+        private final SubscriberList subscribers = new SubscriberList();
+        private final Map<String, ConsumerGroup> groups = new HashMap<>();
+        private final SegmentEventIndex events;
+        private final TopicSegments segments;
+        private PendingBatch pending;
+        private PendingBatch committing;
+
+        private TopicLog(Topic topic) {
+            this.events = new SegmentEventIndex(this::read);
+            this.segments = TopicSegments.open(directory.resolve(topic.getName()),
+                    segmentBytes,
+                    fsyncPolicy.getMode() != FsyncPolicy.Mode.OS_MANAGED,
+                    events);
+        }
+
+        private synchronized EventHandler[] append(Event event) {
+            segments.append(reference(event), serializer.serialize(event));
+            if (fsyncPolicy.getMode() == FsyncPolicy.Mode.EVERY_EVENT) {
+                segments.force();
+            }
+            events.append(event);
+            return subscribers.handlers();
+        }
+
+        private synchronized PendingBatch enqueue(Event event) {
+            segments.checkWritable();
+            if (pending == null) {
+                pending = new PendingBatch();
+            }
+            pending.references.add(reference(event));
+            pending.payloads.add(serializer.serialize(event));
+            pending.events.add(event);
+            return pending;
+        }
+
+        private synchronized EventHandler[] append(Map<? extends Ref, Long> expectedVersions, List<? extends Event> batch) {
+            expectedVersions.forEach(this::checkVersion);
+            if (!batch.isEmpty()) {
+                List<String> references = new ArrayList<>(batch.size());
+                List<byte[]> payloads = new ArrayList<>(batch.size());
+                for (Event event : batch) {
+                    references.add(reference(event));
+                    payloads.add(serializer.serialize(event));
+                }
+                segments.appendAll(references, payloads);
+                if (fsyncPolicy.getMode() == FsyncPolicy.Mode.EVERY_EVENT) {
+                    segments.force();
+                }
+                batch.forEach(events::append);
+            }
+            return subscribers.handlers();
+        }
+
+        private synchronized PendingBatch enqueue(Map<? extends Ref, Long> expectedVersions, List<? extends Event> batch) {
+            segments.checkWritable();
+            expectedVersions.forEach(this::checkVersion);
+            if (pending == null) {
+                pending = new PendingBatch();
+            }
+            batch.forEach(this::enqueue);
+            return pending;
+        }
+
+        private void checkVersion(Ref ref, long expectedVersion) {
+            long version = version(ref);
+            if (version != expectedVersion) {
+                throw new VersionConflictException(ref, expectedVersion, version);
+            }
+        }
+
+        /*
+         * Events of a batch being committed are in neither the index nor the pending batch until
+         * makeVisible, so both batches count towards the version.
+         */
+        private synchronized long version(Ref ref) {
+            return events.sizeOf(ref) + countOf(ref, committing) + countOf(ref, pending);
+        }
+
+        private long countOf(Ref ref, PendingBatch batch) {
+            if (batch == null) {
+                return 0;
+            }
+            return batch.events.stream()
+                    .filter(event -> event instanceof AggregateEvent && ref.equals(((AggregateEvent) event).getRef()))
+                    .count();
+        }
+
+        /*
+         * Runs on the commit thread once the batch is durable. Its events become visible, and its
+         * subscribers are fixed, under the same lock that registers catch-up subscriptions.
+         */
+        private synchronized void makeVisible(PendingBatch batch) {
+            batch.events.forEach(events::append);
+            batch.subscribers = subscribers.handlers();
+            committing = null;
+        }
+
+        /*
+         * Runs on the commit thread when the batch could not be written. The batch queued behind it
+         * had its versions checked against the failed events, so it fails with it; publishers
+         * arriving afterwards are checked against what is actually on disk.
+         */
+        private synchronized PendingBatch abandon(PendingBatch batch) {
+            if (committing == batch) {
+                committing = null;
+            }
+            PendingBatch dependent = pending;
+            pending = null;
+            return dependent;
+        }
+
+        private synchronized void subscribe(EventHandler subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        private synchronized List<Event> subscribeWithHistory(EventHandler subscriber) {
+            return subscribers.add(subscriber) ? events.all() : null;
+        }
+
+        private synchronized void unsubscribe(EventHandler subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        private synchronized void subscribeToGroup(String name, EventHandler member) {
+            ConsumerGroup group = groups.get(name);
+            if (group == null) {
+                group = new ConsumerGroup(1);
+                subscribers.add(group.router(0));
+                groups.put(name, group);
+            }
+            group.join(member);
+        }
+
+        private synchronized void unsubscribeFromGroup(String name, EventHandler member) {
+            ConsumerGroup group = groups.get(name);
+            if (group != null && group.leave(member) && group.isEmpty()) {
+                subscribers.remove(group.router(0));
+                groups.remove(name);
+            }
+        }
+
+        /*
+         * Each group is one entry in the subscriber list but counts as its members.
+         */
+        private synchronized int subscriberCount() {
+            int count = subscribers.size() - groups.size();
+            for (ConsumerGroup group : groups.values()) {
+                count += group.size();
+            }
+            return count;
+        }
+
+        private synchronized PendingBatch takePending() {
+            PendingBatch batch = pending;
+            pending = null;
+            committing = batch;
+            return batch;
+        }
+
+        private Event read(long location) {
+            return segments.read(location, serializer);
+        }
+    }
+
+    /**
+     * Reference stored with the event's record; the only place an appended ref is formatted.
+     */
+    private static String reference(Event event) {
+        return event instanceof AggregateEvent ? ((AggregateEvent) event).getRef().getReference() : null;
+    }
+
+    private static final class PendingBatch {
+        private final List<String> references = new ArrayList<>();
+        private final List<byte[]> payloads = new ArrayList<>();
+        private final List<Event> events = new ArrayList<>();
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        private EventHandler[] subscribers;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import java.util.Arrays;
+
+/**
+ * Single-writer, multi-reader list of topic-wide sequence numbers, one per event of a partition and
+ * in the same order. Appends must be serialized by the caller, like {@link AppendOnlyEventList}.
+ *
+ * @author Matt Stine
+ */
+final class SequenceList {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile long[] elements = new long[INITIAL_CAPACITY];
+    private volatile int size;
+
+    void append(long sequence) {
+        long[] current = elements;
+        int index = size;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length << 1);
+            elements = current;
+        }
+        current[index] = sequence;
+        size = index + 1;
+    }
+
+    /**
+     * The first {@code count} sequence numbers; {@code count} must not exceed a {@link #size()}
+     * already observed.
+     */
+    long[] snapshot(int count) {
+        return Arrays.copyOf(elements, count);
+    }
+
+    int size() {
+        return size;
+    }
+}
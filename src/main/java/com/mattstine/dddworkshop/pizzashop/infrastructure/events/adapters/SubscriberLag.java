@@ -0,0 +1,25 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import lombok.Value;
+
+/**
+ * How far one asynchronous subscriber is behind its topic: events waiting in (or being handled from)
+ * its mailbox, events it has yet to read back from the log after spilling, and how many it has
+ * handled or lost.
+ *
+ * @author Matt Stine
+ */
+@Value
+public final class SubscriberLag {
+    EventHandler handler;
+    int queued;
+    long spilled;
+    long delivered;
+    long dropped;
+    boolean lagging;
+
+    public long getBehind() {
+        return queued + spilled;
+    }
+}
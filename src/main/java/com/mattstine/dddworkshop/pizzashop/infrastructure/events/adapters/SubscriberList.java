@@ -0,0 +1,67 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write set of a topic's subscribers, compared by the handler they deliver to (so a handler
+ * wrapped in a {@link Mailbox} or {@link CatchUpHandler} is still only subscribed once). Mutations
+ * must be made under the owning topic's lock; {@link #handlers()} may be read without it. Reading it
+ * under that lock, together with the append, fixes exactly which subscribers an event is delivered to.
+ *
+ * @author Matt Stine
+ */
+final class SubscriberList {
+    private static final EventHandler[] NONE = new EventHandler[0];
+
+    private volatile EventHandler[] handlers = NONE;
+
+    EventHandler[] handlers() {
+        return handlers;
+    }
+
+    boolean add(EventHandler handler) {
+        EventHandler[] current = handlers;
+        for (EventHandler existing : current) {
+            if (unwrap(existing).equals(unwrap(handler))) {
+                return false;
+            }
+        }
+        EventHandler[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = handler;
+        handlers = next;
+        return true;
+    }
+
+    void remove(EventHandler handler) {
+        EventHandler[] current = handlers;
+        for (int i = 0; i < current.length; i++) {
+            if (unwrap(current[i]).equals(unwrap(handler))) {
+                EventHandler[] next = new EventHandler[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                handlers = next;
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        handlers = NONE;
+    }
+
+    int size() {
+        return handlers.length;
+    }
+
+    static EventHandler unwrap(EventHandler handler) {
+        if (handler instanceof Mailbox) {
+            return ((Mailbox) handler).handler();
+        }
+        if (handler instanceof CatchUpHandler) {
+            return ((CatchUpHandler) handler).handler();
+        }
+        return handler;
+    }
+}
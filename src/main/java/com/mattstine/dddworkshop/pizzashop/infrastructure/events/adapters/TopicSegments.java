@@ -0,0 +1,362 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The rolling, append-only segment files of one topic. Each segment is named after the offset of
+ * its first record, starts with the header {@code [int magic][int formatVersion]} and holds records
+ * of the form {@code [int length][int crc32][short refLength][ref bytes][payload]}, where
+ * {@code length} and the checksum cover everything after the checksum and {@code refLength} is
+ * {@code -1} for events that do not belong to an aggregate. A torn or corrupt record at the tail of
+ * the newest segment is truncated on open; corruption in an older, sealed segment is fatal, and so
+ * is a segment of any other format version than {@value #FORMAT_VERSION}.
+ * <p>
+ * Segments present at open are memory-mapped read-only and stay mapped: recovery only walks record
+ * headers, and {@link #read} decodes a payload straight from the mapping.
+ *
+ * @author Matt Stine
+ */
+final class TopicSegments implements Closeable {
+    static final int SEGMENT_MAGIC = 0x505A5347;
+    static final int FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 8;
+    static final int HEADER_BYTES = 8;
+    private static final int REF_LENGTH_BYTES = 2;
+    private static final String SEGMENT_SUFFIX = ".segment";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean forceOnRoll;
+    private final CRC32 crc = new CRC32();
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(4096);
+    private FileChannel active;
+    private long activeSize;
+    private long nextOffset;
+    private boolean dirty;
+    private IOException failure;
+
+    private TopicSegments(Path directory, long maxSegmentBytes, boolean forceOnRoll) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.forceOnRoll = forceOnRoll;
+    }
+
+    /**
+     * Opens (creating if necessary) the segments under {@code directory}, reporting every valid
+     * record's location to {@code recovered} in offset order.
+     */
+    static TopicSegments open(Path directory, long maxSegmentBytes, boolean forceOnRoll, RecoveryListener recovered) {
+        TopicSegments segments = new TopicSegments(directory, maxSegmentBytes, forceOnRoll);
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = segmentFiles(directory);
+            for (int i = 0; i < files.size(); i++) {
+                segments.recover(files.get(i), i == files.size() - 1, recovered);
+            }
+            if (segments.active == null) {
+                segments.roll();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open segments in: " + directory, e);
+        }
+        return segments;
+    }
+
+    static List<Path> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void recover(Path file, boolean newest, RecoveryListener recovered) throws IOException {
+        FileChannel channel = FileChannel.open(file, READ, WRITE);
+        if (channel.size() < SEGMENT_HEADER_BYTES) {
+            if (!newest) {
+                channel.close();
+                throw new IllegalStateException("Corrupt header in sealed segment: " + file);
+            }
+            channel.truncate(0);
+            writeHeader(channel);
+        }
+        MappedByteBuffer contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        long segment = (long) mapped.size() << 32;
+
+        int magic = contents.getInt();
+        int formatVersion = contents.getInt();
+        if (magic != SEGMENT_MAGIC || formatVersion != FORMAT_VERSION) {
+            channel.close();
+            throw new IllegalStateException("Cannot read segment: " + file + " of format version " + formatVersion
+                    + (magic != SEGMENT_MAGIC ? " (not a segment file)" : ""));
+        }
+
+        int valid = SEGMENT_HEADER_BYTES;
+        while (contents.remaining() >= HEADER_BYTES) {
+            int length = contents.getInt();
+            int checksum = contents.getInt();
+            if (length < REF_LENGTH_BYTES || length > contents.remaining()) {
+                break;
+            }
+            ByteBuffer record = contents.slice();
+            record.limit(length);
+            if (checksum(record.duplicate()) != checksum) {
+                break;
+            }
+            recovered.recovered(segment | valid, reference(record));
+            contents.position(valid + HEADER_BYTES + length);
+            valid = contents.position();
+            nextOffset++;
+        }
+        mapped.add(contents);
+
+        if (valid < channel.size()) {
+            if (!newest) {
+                channel.close();
+                throw new IllegalStateException("Corrupt record in sealed segment: " + file + " at byte " + valid);
+            }
+            channel.truncate(valid);
+        }
+
+        if (newest) {
+            active = channel;
+            activeSize = valid;
+            active.position(valid);
+        } else {
+            channel.close();
+        }
+    }
+
+    /**
+     * Decodes the event stored at {@code location}, as reported during recovery.
+     */
+    Event read(long location, EventSerializer serializer) {
+        ByteBuffer record = mapped.get((int) (location >>> 32)).duplicate();
+        record.position((int) location);
+        int length = record.getInt();
+        record.position(record.position() + 4);
+        record.limit(record.position() + length);
+        short refLength = record.getShort();
+        if (refLength > 0) {
+            record.position(record.position() + refLength);
+        }
+        return serializer.deserialize(record.slice());
+    }
+
+    /**
+     * Appends one record and returns its offset within the topic.
+     *
+     * @param reference the owning aggregate's reference, or {@code null}
+     */
+    synchronized long append(String reference, byte[] payload) {
+        return appendAll(Collections.singletonList(reference), Collections.singletonList(payload));
+    }
+
+    /**
+     * Appends records in order with a single write into one segment, rolling first if the batch does
+     * not fit in the active one, so a batch is never split across segments. Returns the offset of the
+     * first record.
+     * <p>
+     * A failed append leaves nothing behind: a failed roll keeps the active segment, and a failed write
+     * is truncated back to where the batch started. If even that fails, or a {@link #force} fails, the
+     * state of the file is unknown and every later append and force is rejected.
+     */
+    synchronized long appendAll(List<String> references, List<byte[]> payloads) {
+        checkWritable();
+        writeBuffer.clear();
+        for (int i = 0; i < payloads.size(); i++) {
+            String reference = references.get(i);
+            byte[] ref = reference == null ? null : reference.getBytes(StandardCharsets.UTF_8);
+            byte[] payload = payloads.get(i);
+            int length = REF_LENGTH_BYTES + (ref == null ? 0 : ref.length) + payload.length;
+            ensureCapacity(HEADER_BYTES + length);
+            encode(ref, payload, length);
+        }
+        try {
+            if (activeSize > SEGMENT_HEADER_BYTES && activeSize + writeBuffer.position() > maxSegmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            writeBuffer.clear();
+            throw new IllegalStateException("Cannot roll segment in: " + directory, e);
+        }
+        try {
+            writeBuffered();
+        } catch (IOException e) {
+            writeBuffer.clear();
+            rewind(e);
+            throw new IllegalStateException("Cannot append to segment in: " + directory, e);
+        }
+        long firstOffset = nextOffset;
+        nextOffset += payloads.size();
+        return firstOffset;
+    }
+
+    /**
+     * Throws if an earlier failure left the segment files in an unknown state.
+     */
+    synchronized void checkWritable() {
+        if (failure != null) {
+            throw new IllegalStateException("Cannot write to segments in: " + directory + " after a failed write", failure);
+        }
+    }
+
+    private void rewind(IOException cause) {
+        try {
+            active.truncate(activeSize);
+            active.position(activeSize);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            failure = e;
+        }
+    }
+
+    private void ensureCapacity(int recordBytes) {
+        if (writeBuffer.remaining() < recordBytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(writeBuffer.position() + recordBytes, writeBuffer.capacity() << 1));
+            writeBuffer.flip();
+            grown.put(writeBuffer);
+            writeBuffer = grown;
+        }
+    }
+
+    private void encode(byte[] ref, byte[] payload, int length) {
+        int start = writeBuffer.position();
+        writeBuffer.putInt(length);
+        writeBuffer.putInt(0);
+        if (ref == null) {
+            writeBuffer.putShort((short) -1);
+        } else {
+            writeBuffer.putShort((short) ref.length);
+            writeBuffer.put(ref);
+        }
+        writeBuffer.put(payload);
+        ByteBuffer checksummed = writeBuffer.duplicate();
+        checksummed.flip();
+        checksummed.position(start + HEADER_BYTES);
+        writeBuffer.putInt(start + 4, checksum(checksummed));
+    }
+
+    private void writeBuffered() throws IOException {
+        writeBuffer.flip();
+        int bytes = writeBuffer.remaining();
+        while (writeBuffer.hasRemaining()) {
+            active.write(writeBuffer);
+        }
+        writeBuffer.clear();
+        if (bytes > 0) {
+            activeSize += bytes;
+            dirty = true;
+        }
+    }
+
+    synchronized void force() {
+        checkWritable();
+        if (!dirty) {
+            return;
+        }
+        try {
+            active.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw new IllegalStateException("Cannot force segment in: " + directory, e);
+        }
+        dirty = false;
+    }
+
+    synchronized long nextOffset() {
+        return nextOffset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.force(false);
+            active.close();
+            active = null;
+        }
+    }
+
+    /*
+     * The new segment is created, with its header, before the old one is sealed, so a failed roll
+     * leaves the active segment in place.
+     */
+    private void roll() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextOffset, SEGMENT_SUFFIX));
+        FileChannel next = FileChannel.open(file, CREATE_NEW, READ, WRITE);
+        try {
+            writeHeader(next);
+        } catch (IOException e) {
+            next.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        if (active != null) {
+            try {
+                if (forceOnRoll) {
+                    active.force(false);
+                }
+                active.close();
+            } catch (IOException e) {
+                next.close();
+                Files.deleteIfExists(file);
+                failure = e;
+                throw e;
+            }
+        }
+        active = next;
+        activeSize = SEGMENT_HEADER_BYTES;
+        dirty = true;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(SEGMENT_HEADER_BYTES);
+    }
+
+    private static String reference(ByteBuffer record) {
+        short refLength = record.getShort(0);
+        if (refLength < 0) {
+            return null;
+        }
+        byte[] ref = new byte[refLength];
+        ByteBuffer refBytes = record.duplicate();
+        refBytes.position(REF_LENGTH_BYTES);
+        refBytes.get(ref);
+        return new String(ref, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(ByteBuffer bytes) {
+        crc.reset();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    interface RecoveryListener {
+        void recovered(long location, String reference);
+    }
+}
@@ -0,0 +1,112 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link AggregateExecutor} that gives every busy aggregate its own virtual thread. Tasks for one
+ * {@link Ref} queue up in a lane, which a single thread drains in order and retires once it is empty,
+ * so only aggregates with pending work hold a thread or a map entry. Handlers can therefore block on
+ * repository reads or other services without tying up a platform thread per aggregate in flight.
+ * <p>
+ * {@link #executeAndWait} called from one of the aggregate's own tasks, such as a handler of an event
+ * that a command just published, runs inline rather than waiting on its own lane.
+ * <p>
+ * A task that throws is reported to its thread's uncaught exception handler and the lane carries on.
+ * Tasks should avoid blocking inside {@code synchronized} blocks, which pins a virtual thread to its
+ * carrier.
+ *
+ * @author Matt Stine
+ */
+public final class VirtualThreadAggregateExecutor implements AggregateExecutor {
+    private final ThreadFactory threadFactory;
+    private final Map<Ref, Lane> lanes = new ConcurrentHashMap<>();
+    private final ThreadLocal<Ref> running = new ThreadLocal<>();
+
+    public VirtualThreadAggregateExecutor() {
+        this(Thread.ofVirtual().name("aggregate-", 0).factory());
+    }
+
+    public VirtualThreadAggregateExecutor(ThreadFactory threadFactory) {
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Cannot build VirtualThreadAggregateExecutor without a ThreadFactory");
+        }
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(Ref ref, Runnable task) {
+        if (ref == null) {
+            throw new IllegalArgumentException("Cannot execute a task without an aggregate Ref");
+        }
+        lanes.compute(ref, (r, lane) -> {
+            if (lane == null) {
+                lane = new Lane(r);
+                lane.tasks.add(task);
+                threadFactory.newThread(lane).start();
+            } else {
+                lane.tasks.add(task);
+            }
+            return lane;
+        });
+    }
+
+    @Override
+    public void executeAndWait(Ref ref, Runnable task) {
+        if (ref != null && ref.equals(running.get())) {
+            task.run();
+            return;
+        }
+        AggregateExecutor.super.executeAndWait(ref, task);
+    }
+
+    /**
+     * Number of aggregates with queued or running tasks.
+     */
+    public int getActiveAggregates() {
+        return lanes.size();
+    }
+
+    /**
+     * Tasks of one aggregate. Its queue is only touched inside {@code lanes.compute} for its ref, so the
+     * map's per-key locking is all the synchronization it needs, and taking the last task and retiring
+     * the lane happen atomically with respect to new submissions.
+     */
+    private final class Lane implements Runnable {
+        private final Ref ref;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private Lane(Ref ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public void run() {
+            running.set(ref);
+            Runnable task;
+            while ((task = next()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                }
+            }
+        }
+
+        private Runnable next() {
+            Runnable[] next = new Runnable[1];
+            lanes.computeIfPresent(ref, (r, lane) -> {
+                next[0] = lane.tasks.poll();
+                return next[0] == null ? null : lane;
+            });
+            return next[0];
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs work on behalf of one aggregate, like an actor with a mailbox per {@link Ref}. Tasks for equal
+ * refs run one at a time and in submission order, so an aggregate's commands and event handlers never
+ * see each other's half-applied state; tasks for different aggregates may run concurrently.
+ * {@link #DIRECT} runs every task on the submitting thread, which keeps a service synchronous.
+ *
+ * @author Matt Stine
+ */
+public interface AggregateExecutor {
+
+    AggregateExecutor DIRECT = new AggregateExecutor() {
+        @Override
+        public void execute(Ref ref, Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void executeAndWait(Ref ref, Runnable task) {
+            task.run();
+        }
+    };
+
+    /**
+     * Queues {@code task} behind the aggregate's earlier tasks and returns without waiting for it.
+     */
+    void execute(Ref ref, Runnable task);
+
+    /**
+     * Runs {@code task} as {@link #execute} does and waits for it, rethrowing what it throws; meant for
+     * commands whose caller needs the outcome. A task must not wait on another aggregate's tasks.
+     */
+    default void executeAndWait(Ref ref, Runnable task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        execute(ref, () -> {
+            try {
+                task.run();
+                done.complete(null);
+            } catch (RuntimeException | Error ex) {
+                done.completeExceptionally(ex);
+            }
+        });
+        try {
+            done.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw (RuntimeException) ex.getCause();
+        }
+    }
+}
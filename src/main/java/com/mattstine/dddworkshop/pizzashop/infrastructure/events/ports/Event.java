@@ -1,7 +1,9 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
 
+import java.io.Serializable;
+
 /**
  * @author Matt Stine
  */
-public interface Event {
+public interface Event extends Serializable {
 }
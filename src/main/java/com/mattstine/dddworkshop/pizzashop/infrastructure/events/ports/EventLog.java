@@ -1,9 +1,12 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
 
 
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Matt Stine
@@ -13,12 +16,32 @@ public interface EventLog {
     EventLog IDENTITY = new EventLog() {
         @Override
         public void publish(Topic topic, Event event) {
-            throw new NotImplementedException();
+            throw new UnsupportedOperationException();
         }
 
         @Override
         public void subscribe(Topic topic, EventHandler handler) {
-            throw new NotImplementedException();
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void subscribe(Topic topic, long fromOffset, EventHandler handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void subscribeToPartition(Topic topic, int partition, EventHandler handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void subscribeToGroup(Topic topic, String group, EventHandler handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void unsubscribeFromGroup(Topic topic, String group, EventHandler handler) {
+            throw new UnsupportedOperationException();
         }
 
         @Override
@@ -26,19 +49,145 @@ public interface EventLog {
             return -1;
         }
 
+        @Override
+        public int getNumberOfPartitions(Topic topic) {
+            return -1;
+        }
+
         @Override
         public List<Event> eventsBy(Topic topic) {
             return null;
         }
+
+        @Override
+        public List<Event> eventsBy(Topic topic, Ref ref) {
+            return null;
+        }
+
+        @Override
+        public void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void publishAll(Topic topic, List<? extends Event> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getVersion(Topic topic, Ref ref) {
+            return -1;
+        }
     };
 
     void publish(Topic topic, Event event);
 
+    /**
+     * Appends {@code events} to {@code topic} as one batch, in order and with no other append between
+     * them, and then delivers them as {@link #publish} does. Adapters take their lock once and write
+     * the batch in one go, so publishing many events costs about as much as publishing one.
+     */
+    void publishAll(Topic topic, List<? extends Event> events);
+
+    /**
+     * Appends {@code events} to the stream of the aggregate identified by {@code ref} in {@code topic},
+     * provided that stream still holds exactly {@code expectedVersion} events, and then delivers them as
+     * {@link #publish} does. The check and the append are atomic, so of two writers that loaded the same
+     * version only the first succeeds, and nothing else serializes writers to different aggregates.
+     *
+     * @throws VersionConflictException if the stream is at any other version; nothing is appended
+     * @throws IllegalArgumentException if one of {@code events} belongs to another aggregate
+     */
+    void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events);
+
+    /**
+     * Appends a single event to its aggregate's stream, as {@link #append(Topic, Ref, long, List)} does.
+     */
+    default void append(Topic topic, long expectedVersion, AggregateEvent event) {
+        append(topic, event.getRef(), expectedVersion, Collections.singletonList(event));
+    }
+
+    /**
+     * Appends the events of several aggregates as one batch, as {@link #publishAll} does, provided the
+     * stream of every aggregate in {@code expectedVersions} still holds exactly the number of events it
+     * maps to. Either every event is appended or, on a conflict, none is.
+     *
+     * @throws VersionConflictException if any of the streams is at another version
+     * @throws IllegalArgumentException if one of {@code events} belongs to an aggregate missing from
+     *         {@code expectedVersions}
+     */
+    void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events);
+
+    /**
+     * Number of events in the stream of the aggregate identified by {@code ref} in {@code topic}, which
+     * is the version the next {@link #append} to it must expect.
+     */
+    long getVersion(Topic topic, Ref ref);
+
+    /**
+     * Offset of a topic's first event, for catching up on its whole history.
+     */
+    long FROM_BEGINNING = 0L;
+
     void subscribe(Topic topic, EventHandler handler);
 
+    /**
+     * Subscribes {@code handler} to {@code topic}, first delivering the topic's stored events from
+     * {@code fromOffset} (a position in {@link #eventsBy(Topic)}) and then every later event, with no
+     * gap or duplicate at the hand-over. The history is replayed in bulk before this method returns.
+     * Does nothing if an equal handler is already subscribed.
+     *
+     * @throws IllegalArgumentException if {@code fromOffset} is negative or past the end of the topic
+     */
+    void subscribe(Topic topic, long fromOffset, EventHandler handler);
+
+    /**
+     * Subscribes {@code handler} to one partition of {@code topic} only. It sees that partition's
+     * events in append order; subscribers of different partitions may run concurrently.
+     *
+     * @throws IllegalArgumentException if {@code partition} is not below {@link #getNumberOfPartitions(Topic)}
+     */
+    void subscribeToPartition(Topic topic, int partition, EventHandler handler);
+
+    /**
+     * Adds {@code handler} to the consumer group {@code group} on {@code topic}. The group's members
+     * share the topic's partitions, each partition owned by exactly one member, so every event reaches
+     * one member rather than all of them. Partitions are reassigned whenever a member joins or leaves.
+     * Does nothing if an equal handler is already a member.
+     */
+    void subscribeToGroup(Topic topic, String group, EventHandler handler);
+
+    /**
+     * Removes {@code handler} from the consumer group {@code group} on {@code topic} and hands its
+     * partitions to the remaining members. Does nothing if it is not a member.
+     */
+    void unsubscribeFromGroup(Topic topic, String group, EventHandler handler);
+
     @SuppressWarnings("unused")
     int getNumberOfSubscribers(Topic topic);
 
+    /**
+     * Number of partitions {@code topic} is split into. All {@link AggregateEvent}s of one aggregate land
+     * in the same partition, so per-aggregate order holds however many partitions there are.
+     */
+    int getNumberOfPartitions(Topic topic);
+
+    /**
+     * Every event of {@code topic}, merged across partitions into one sequence that only grows at the
+     * end, so positions in it are stable and can be used as catch-up offsets.
+     */
     List<Event> eventsBy(Topic topic);
 
+    /**
+     * Returns only the events published to {@code topic} by the aggregate identified by {@code ref},
+     * in publication order. Adapters are expected to serve this from an index rather than by scanning
+     * the whole topic, so rehydration cost follows the size of the aggregate's own history.
+     */
+    List<Event> eventsBy(Topic topic, Ref ref);
+
 }
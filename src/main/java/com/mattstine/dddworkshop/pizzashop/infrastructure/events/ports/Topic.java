@@ -2,10 +2,54 @@ package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
 
 import lombok.Value;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
+ * A named stream of events. Every name is registered once and given a dense {@link #getId() id}
+ * (0, 1, 2, ... in registration order), which {@link EventLog} adapters can use to index per-topic
+ * state in an array. {@link #of(String)} returns the interned handle for a name, and is the only way to
+ * get one; hold on to it in a constant, as the aggregates do with their {@code TOPIC}, so publishing
+ * neither allocates a {@code Topic} nor hashes its name.
+ *
  * @author Matt Stine
  */
 @Value
 public final class Topic {
+    private static final ConcurrentMap<String, Topic> REGISTRY = new ConcurrentHashMap<>();
+
     String name;
+    int id;
+
+    private Topic(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    public static Topic of(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Cannot register a topic without a name");
+        }
+        Topic topic = REGISTRY.get(name);
+        return topic != null ? topic : register(name);
+    }
+
+    private static synchronized Topic register(String name) {
+        Topic topic = REGISTRY.get(name);
+        if (topic == null) {
+            topic = new Topic(name, REGISTRY.size());
+            REGISTRY.put(name, topic);
+        }
+        return topic;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof Topic && ((Topic) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
 }
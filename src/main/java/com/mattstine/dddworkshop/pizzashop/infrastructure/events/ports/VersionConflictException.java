@@ -0,0 +1,27 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Getter;
+
+/**
+ * Thrown by {@link EventLog#append} when an aggregate's stream has moved on since the writer loaded it,
+ * so the writer's decision was made on stale state. Nothing was appended; reload and retry.
+ *
+ * @author Matt Stine
+ */
+@Getter
+public final class VersionConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Ref ref;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public VersionConflictException(Ref ref, long expectedVersion, long actualVersion) {
+        super("Cannot append to " + ref.getReference() + " at version " + expectedVersion
+                + ", its stream is at version " + actualVersion);
+        this.ref = ref;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+}
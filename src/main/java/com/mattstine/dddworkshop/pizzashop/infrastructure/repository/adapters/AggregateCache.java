@@ -0,0 +1,60 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CachePolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CacheStats;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Snapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of rehydrated aggregate states, keyed by {@link Ref}. Entries are
+ * immutable {@link Snapshot}s, so callers always rebuild their own aggregate instance from them.
+ * An entry is only ever replaced by one of an equal or higher version, which keeps concurrent
+ * rehydrations from rolling the cache back.
+ *
+ * @author Matt Stine
+ */
+final class AggregateCache {
+    private final int maximumSize;
+    private final Map<Ref, Snapshot> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    AggregateCache(CachePolicy cachePolicy) {
+        this.maximumSize = cachePolicy.getMaximumSize();
+        this.entries = new LinkedHashMap<Ref, Snapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Ref, Snapshot> eldest) {
+                if (size() > maximumSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    synchronized Snapshot get(Ref ref) {
+        Snapshot snapshot = entries.get(ref);
+        if (snapshot == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return snapshot;
+    }
+
+    synchronized void put(Ref ref, Snapshot snapshot) {
+        Snapshot current = entries.get(ref);
+        if (current == null || current.getVersion() <= snapshot.getVersion()) {
+            entries.put(ref, snapshot);
+        }
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+}
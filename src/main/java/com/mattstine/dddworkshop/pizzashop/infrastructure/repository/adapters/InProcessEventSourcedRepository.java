@@ -1,25 +1,50 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters;
 
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.*;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
+ * Reflective lookups (the {@link Ref} and {@link RepositoryAddEvent} constructors, and the aggregate's
+ * identity and accumulator function) are resolved once at construction, so that {@link #nextIdentity()},
+ * {@link #add(Aggregate)}, {@link #addAll(Collection)} and {@link #findByRef(Ref)} do no reflection.
+ *
  * @author Matt Stine
  */
 @SuppressWarnings({"unchecked", "unused"})
 public abstract class InProcessEventSourcedRepository<K extends Ref, T extends Aggregate, S extends AggregateState, U extends AggregateEvent, V extends RepositoryAddEvent> implements Repository<K, T, S, U, V> {
+    static final int PARALLEL_REHYDRATION_THRESHOLD = 64;
+
     private final EventLog eventLog;
     private final Class<K> refClass;
     private final Class<T> aggregateClass;
     private final Class<S> aggregateStateClass;
     private final Class<V> addEventClass;
     private final Topic topic;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotPolicy snapshotPolicy;
+    private final AggregateCache cache;
+    private final MethodHandle refConstructor;
+    private final MethodHandle addEventConstructor;
+    private final T prototype;
+    private final BiFunction<T, U, T> accumulatorFunction;
 
     protected InProcessEventSourcedRepository(EventLog eventLog,
                                               Class<K> refClass,
@@ -27,79 +52,196 @@ public abstract class InProcessEventSourcedRepository<K extends Ref, T extends A
                                               Class<S> aggregateStateClass,
                                               Class<V> addEventClass,
                                               Topic topic) {
+        this(eventLog, refClass, aggregateClass, aggregateStateClass, addEventClass, topic,
+                SnapshotStore.NONE, SnapshotPolicy.never());
+    }
+
+    protected InProcessEventSourcedRepository(EventLog eventLog,
+                                              Class<K> refClass,
+                                              Class<T> aggregateClass,
+                                              Class<S> aggregateStateClass,
+                                              Class<V> addEventClass,
+                                              Topic topic,
+                                              SnapshotStore snapshotStore,
+                                              SnapshotPolicy snapshotPolicy) {
+        this(eventLog, refClass, aggregateClass, aggregateStateClass, addEventClass, topic,
+                snapshotStore, snapshotPolicy, CachePolicy.disabled());
+    }
+
+    protected InProcessEventSourcedRepository(EventLog eventLog,
+                                              Class<K> refClass,
+                                              Class<T> aggregateClass,
+                                              Class<S> aggregateStateClass,
+                                              Class<V> addEventClass,
+                                              Topic topic,
+                                              SnapshotStore snapshotStore,
+                                              SnapshotPolicy snapshotPolicy,
+                                              CachePolicy cachePolicy) {
         this.eventLog = eventLog;
         this.refClass = refClass;
         this.aggregateClass = aggregateClass;
         this.aggregateStateClass = aggregateStateClass;
         this.addEventClass = addEventClass;
         this.topic = topic;
+        this.snapshotStore = snapshotStore;
+        this.snapshotPolicy = snapshotPolicy;
+        this.cache = cachePolicy.isEnabled() ? new AggregateCache(cachePolicy) : null;
+        this.refConstructor = resolveRefConstructor();
+        this.addEventConstructor = resolveAddEventConstructor();
+        this.prototype = instantiatePrototype();
+        this.accumulatorFunction = (BiFunction<T, U, T>) prototype.accumulatorFunction();
     }
 
     @Override
     public final K nextIdentity() {
         try {
-            Constructor ctor = refClass.getConstructor();
-            return (K) ctor.newInstance();
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new IllegalStateException("Cannot instantiate nextIdentity of type: " + refClass.getName());
+            return (K) (Ref) refConstructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot instantiate nextIdentity of type: " + refClass.getName(), t);
         }
     }
 
+    /**
+     * Starts the aggregate's stream with its add event, expecting the stream to be at the instance's
+     * {@link Aggregate#version() version} (zero for a new aggregate), and advances the instance past it.
+     *
+     * @throws com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException
+     *         if the stream has moved on, e.g. when an aggregate with the same ref was already added
+     */
     @Override
     public final void add(T aggregateInstance) {
-        V addEvent;
+        long version = aggregateInstance.version();
+        eventLog.append(topic, version, addEventFor(aggregateInstance));
+        aggregateInstance.atVersion(version + 1);
+    }
 
-        try {
-            Constructor<V> constructor = addEventClass.getDeclaredConstructor(refClass, aggregateStateClass);
-            constructor.setAccessible(true);
-            addEvent = constructor.newInstance(aggregateInstance.getRef(), aggregateInstance.state());
-        } catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
-            throw new IllegalStateException("Cannot instantiate add event of type: " + addEventClass.getName());
+    /**
+     * Appends the add events of every instance to the log in a single {@link EventLog#appendAll batch},
+     * each expecting its instance's version, and advances the instances once the batch is in.
+     *
+     * @throws com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException
+     *         if any of the streams has moved on; none of the instances is added
+     * @throws IllegalArgumentException if two instances share a ref
+     */
+    @Override
+    public final void addAll(Collection<? extends T> aggregateInstances) {
+        List<V> addEvents = new ArrayList<>(aggregateInstances.size());
+        Map<Ref, Long> expectedVersions = new HashMap<>();
+        for (T aggregateInstance : aggregateInstances) {
+            if (expectedVersions.put(aggregateInstance.getRef(), aggregateInstance.version()) != null) {
+                throw new IllegalArgumentException("Cannot add " + aggregateInstance.getRef() + " twice in one batch");
+            }
+            addEvents.add(addEventFor(aggregateInstance));
         }
 
-        eventLog.publish(topic, addEvent);
+        eventLog.appendAll(topic, expectedVersions, addEvents);
+        aggregateInstances.forEach(aggregateInstance -> aggregateInstance.atVersion(aggregateInstance.version() + 1));
     }
 
+    private V addEventFor(T aggregateInstance) {
+        try {
+            return (V) (RepositoryAddEvent) addEventConstructor.invokeExact(aggregateInstance.getRef(), aggregateInstance.state());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot instantiate add event of type: " + addEventClass.getName(), t);
+        }
+    }
+
+    /**
+     * Folds the aggregate's events, starting from its cached state or latest snapshot when one exists.
+     * Only events published since that state are applied. A miss is snapshotted when the
+     * {@link SnapshotPolicy} asks for it, and the result is cached when caching is enabled. The aggregate
+     * is returned at the version it was folded to, so its appends fail if another writer got there first,
+     * and bound to this repository's log, so they land where it was loaded from.
+     */
     @Override
     public final T findByRef(K ref) {
-        return eventLog.eventsBy(topic)
-                .stream()
-                .map(e -> (U) e)
-                .filter(e -> ref.equals(e.getRef()))
-                .reduce(retrieveIdentityValue(),
-                        retrieveAccumulatorFunction(),
-                        (t, t2) -> null);
+        List<Event> events = eventLog.eventsBy(topic, ref);
+        T initial = (T) prototype.identity();
+        int startVersion = 0;
+
+        Snapshot cached = cache != null ? cache.get(ref) : null;
+        Snapshot start = cached != null ? cached : snapshotStore.latest(ref);
+        if (start != null && start.getVersion() <= events.size()) {
+            initial = (T) initial.restore(start.getState());
+            startVersion = (int) start.getVersion();
+        }
+
+        T aggregate = initial;
+        for (Event event : events.subList(startVersion, events.size())) {
+            aggregate = accumulatorFunction.apply(aggregate, (U) event);
+        }
+
+        boolean snapshot = cached == null && snapshotPolicy.shouldSnapshot(events.size(), startVersion);
+        if (snapshot || cache != null) {
+            Snapshot current = new Snapshot(events.size(), aggregate.state());
+            if (snapshot) {
+                snapshotStore.save(ref, current);
+            }
+            if (cache != null) {
+                cache.put(ref, current);
+            }
+        }
+        return (T) aggregate.atVersion(events.size()).boundTo(eventLog);
+    }
+
+    /**
+     * Each aggregate is folded from its own indexed stream, as in {@link #findByRef}, so the cost follows
+     * the refs' histories rather than the topic. From {@value #PARALLEL_REHYDRATION_THRESHOLD} refs on, and
+     * when the common fork-join pool has more than one worker, the folds run in parallel on that pool.
+     */
+    @Override
+    public final Map<K, T> findByRefs(Collection<? extends K> refs) {
+        if (refs.size() >= PARALLEL_REHYDRATION_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return refs.parallelStream()
+                    .collect(Collectors.toMap(Function.identity(), this::findByRef, (a, b) -> a, LinkedHashMap::new));
+        }
+        Map<K, T> aggregates = new LinkedHashMap<>();
+        for (K ref : refs) {
+            aggregates.computeIfAbsent(ref, this::findByRef);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Hit, miss and eviction counters for this repository's aggregate cache; all zero when caching is disabled.
+     */
+    public final CacheStats cacheStats() {
+        return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0);
     }
 
-    private BiFunction<T, U, T> retrieveAccumulatorFunction() {
-        BiFunction<T, U, T> accumulatorFunction;
+    private MethodHandle resolveRefConstructor() {
         try {
-            Constructor ctor = aggregateClass.getDeclaredConstructor();
-            ctor.setAccessible(true);
-            T aggregateInstance = (T) ctor.newInstance();
-            Method accumulatorFunctionMethod = aggregateClass.getMethod("accumulatorFunction");
-            accumulatorFunction = (BiFunction<T, U, T>) accumulatorFunctionMethod.invoke(aggregateInstance);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException("Cannot execute method: " + aggregateClass.getName() + ".accumulatorFunction", e);
-        } catch (InstantiationException e) {
-            throw new IllegalStateException("Cannot instantiate class: " + aggregateClass.getName(), e);
+            return MethodHandles.publicLookup()
+                    .findConstructor(refClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Ref.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot instantiate nextIdentity of type: " + refClass.getName(), e);
+        }
+    }
+
+    private MethodHandle resolveAddEventConstructor() {
+        try {
+            Constructor<V> constructor = addEventClass.getDeclaredConstructor(refClass, aggregateStateClass);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(RepositoryAddEvent.class, Ref.class, AggregateState.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot instantiate add event of type: " + addEventClass.getName(), e);
         }
-        return accumulatorFunction;
     }
 
-    private T retrieveIdentityValue() {
-        T identity;
+    private T instantiatePrototype() {
         try {
-            Constructor ctor = aggregateClass.getDeclaredConstructor();
+            Constructor<T> ctor = aggregateClass.getDeclaredConstructor();
             ctor.setAccessible(true);
-            T aggregateInstance = (T) ctor.newInstance();
-            Method identityMethod = aggregateClass.getMethod("identity");
-            identity = (T) identityMethod.invoke(aggregateInstance);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new IllegalStateException("Cannot execute method: " + aggregateClass.getName() + ".identity", e);
-        } catch (InstantiationException e) {
+            return ctor.newInstance();
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
             throw new IllegalStateException("Cannot instantiate class: " + aggregateClass.getName(), e);
         }
-        return identity;
     }
 }
@@ -0,0 +1,28 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Snapshot;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the highest-versioned snapshot per {@link Ref} in memory.
+ *
+ * @author Matt Stine
+ */
+public final class InProcessSnapshotStore implements SnapshotStore {
+    private final ConcurrentMap<Ref, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public Snapshot latest(Ref ref) {
+        return snapshots.get(ref);
+    }
+
+    @Override
+    public void save(Ref ref, Snapshot snapshot) {
+        snapshots.merge(ref, snapshot, (current, candidate) ->
+                candidate.getVersion() > current.getVersion() ? candidate : current);
+    }
+}
@@ -1,5 +1,7 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
 
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+
 import java.util.function.BiFunction;
 
 /**
@@ -15,4 +17,25 @@ public interface Aggregate<E extends AggregateEvent> {
 
     AggregateState state();
 
+    /**
+     * Rebuilds an aggregate from a complete state previously returned by {@link #state()}.
+     */
+    Aggregate restore(AggregateState state);
+
+    /**
+     * Number of events in this aggregate's stream that this instance reflects, which its next append
+     * expects the stream to still be at.
+     */
+    long version();
+
+    /**
+     * Marks this instance as reflecting the first {@code version} events of its stream.
+     */
+    Aggregate atVersion(long version);
+
+    /**
+     * Points this instance's future appends at {@code eventLog}, the log it was loaded from.
+     */
+    Aggregate boundTo(EventLog eventLog);
+
 }
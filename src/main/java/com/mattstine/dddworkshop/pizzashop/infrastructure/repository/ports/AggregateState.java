@@ -1,7 +1,9 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
 
+import java.io.Serializable;
+
 /**
  * @author Matt Stine
  */
-public interface AggregateState {
+public interface AggregateState extends Serializable {
 }
@@ -0,0 +1,36 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Decides how many rehydrated aggregates a repository keeps in memory between lookups.
+ *
+ * @author Matt Stine
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CachePolicy {
+    private static final CachePolicy DISABLED = new CachePolicy(0);
+
+    int maximumSize;
+
+    public static CachePolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Keep at most {@code maximumSize} aggregates, evicting the least recently used first.
+     */
+    public static CachePolicy maximumSize(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cannot build CachePolicy with maximumSize <= 0");
+        }
+        return new CachePolicy(maximumSize);
+    }
+
+    public boolean isEnabled() {
+        return maximumSize > 0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for a repository's aggregate cache.
+ *
+ * @author Matt Stine
+ */
+@Value
+public final class CacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    int size;
+}
@@ -0,0 +1,14 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+/**
+ * {@link Ref} minted as a 128-bit id held in two longs, whose {@link #getReference()} is only the
+ * formatted form of {@link #getId()} and {@link #getNode()}. Adapters that index by ref key on the
+ * longs rather than format the string.
+ *
+ * @author Matt Stine
+ */
+public interface IdRef extends Ref {
+    long getId();
+
+    long getNode();
+}
@@ -1,9 +1,11 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
 
+import java.io.Serializable;
+
 /**
  * @author Matt Stine
  */
-public interface Ref {
+public interface Ref extends Serializable {
     @SuppressWarnings("unused")
     String getReference();
 }
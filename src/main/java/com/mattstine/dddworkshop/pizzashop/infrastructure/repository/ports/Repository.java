@@ -1,9 +1,22 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface Repository<K extends Ref, T extends Aggregate, S extends AggregateState, U extends AggregateEvent, V extends RepositoryAddEvent> {
     K nextIdentity();
 
     void add(T aggregateInstance);
 
+    /**
+     * Adds every instance as {@link #add} does, but as one batch: either all of them are added or none.
+     */
+    void addAll(Collection<? extends T> aggregateInstances);
+
     T findByRef(K ref);
+
+    /**
+     * Rehydrates every ref as {@link #findByRef} does, keyed by ref in the order given.
+     */
+    Map<K, T> findByRefs(Collection<? extends K> refs);
 }
@@ -0,0 +1,14 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+import lombok.Value;
+
+/**
+ * Complete state of an aggregate after the first {@code version} events of its stream.
+ *
+ * @author Matt Stine
+ */
+@Value
+public final class Snapshot {
+    long version;
+    AggregateState state;
+}
@@ -0,0 +1,36 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Decides when a repository should snapshot an aggregate it has just rehydrated.
+ *
+ * @author Matt Stine
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SnapshotPolicy {
+    private static final SnapshotPolicy NEVER = new SnapshotPolicy(0);
+
+    int interval;
+
+    public static SnapshotPolicy never() {
+        return NEVER;
+    }
+
+    /**
+     * Snapshot once at least {@code interval} events have been applied since the last snapshot.
+     */
+    public static SnapshotPolicy everyEvents(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Cannot build SnapshotPolicy with interval <= 0");
+        }
+        return new SnapshotPolicy(interval);
+    }
+
+    public boolean shouldSnapshot(long version, long snapshotVersion) {
+        return interval > 0 && version - snapshotVersion >= interval;
+    }
+}
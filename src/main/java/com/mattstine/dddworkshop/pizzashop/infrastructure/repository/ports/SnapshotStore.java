@@ -0,0 +1,25 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports;
+
+/**
+ * @author Matt Stine
+ */
+public interface SnapshotStore {
+
+    SnapshotStore NONE = new SnapshotStore() {
+        @Override
+        public Snapshot latest(Ref ref) {
+            return null;
+        }
+
+        @Override
+        public void save(Ref ref, Snapshot snapshot) {
+        }
+    };
+
+    /**
+     * @return the most recent snapshot saved for {@code ref}, or {@code null} if there is none
+     */
+    Snapshot latest(Ref ref);
+
+    void save(Ref ref, Snapshot snapshot);
+}
@@ -0,0 +1,17 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import lombok.Value;
+
+/**
+ * A prepped pizza waiting for an oven slot, with what an {@link OvenPolicy} may rank it by.
+ *
+ * @author Matt Stine
+ */
+@Value
+final class BakeRequest {
+    PizzaRef pizzaRef;
+    KitchenOrderRef kitchenOrderRef;
+    int orderSize;
+    OnlineOrder.Type orderType;
+}
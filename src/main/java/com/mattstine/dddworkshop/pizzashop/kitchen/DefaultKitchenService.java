@@ -1,41 +1,99 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderPaidEvent;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
 import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
 import lombok.Value;
 
+/**
+ * Commands and event handlers run through an {@link AggregateExecutor} keyed by the {@link KitchenOrderRef}
+ * they work on, pizzas included, so that nothing else touches a kitchen order or its pizzas while one of
+ * them runs. Orders are keyed by their {@link OnlineOrderRef} until the kitchen order exists. Commands
+ * wait for their own task and reload the aggregate inside it, so they act on its latest state.
+ * <p>
+ * Each kitchen order in progress has the set of its pizzas that have come out of the oven, created when
+ * its prep starts; every {@link PizzaBakeFinishedEvent} adds its pizza, so a redelivered event counts
+ * once, and finishing assembly needs no rehydration of the order's pizzas. Each event adds its pizza
+ * before reloading the order, and the order's versioned appends let only one writer make each move, so
+ * whatever the executor the last pizza's event sees every pizza baked and exactly one of several
+ * concurrent oven removals finishes assembly; one beaten to the append reloads the order and looks
+ * again. No lock is held meanwhile, which would pin a virtual thread through the reloads and appends.
+ * An order whose prep started before this service did gets its set from its pizzas on first use.
+ * <p>
+ * Prepped pizzas go into the oven through an {@link OvenScheduler}, which holds them back while every
+ * slot allowed by the {@link OvenPolicy} is taken; a pizza whose bake fails to start frees its slot
+ * again. By default the ovens are unlimited and every pizza starts baking as soon as its prep is
+ * finished.
+ * <p>
+ * Likewise the pizzas of an order whose prep starts are added to the repository in one batch, however
+ * large the order, and handed to a {@link PrepDispatcher}, which starts their prep as stations free up.
+ * By default stations are unlimited and every pizza's prep starts at once.
+ *
+ * @author Matt Stine
+ */
 @Value
 final class DefaultKitchenService implements KitchenService {
+	static final int MAX_CONFLICT_ATTEMPTS = 10;
+	private static final long FIRST_CONFLICT_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long MAX_CONFLICT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
 	EventLog eventLog;
 	KitchenOrderRepository kitchenOrderRepository;
 	PizzaRepository pizzaRepository;
 	OrderingService orderingService;
+	AggregateExecutor aggregateExecutor;
+	OvenScheduler ovenScheduler;
+	PrepDispatcher prepDispatcher;
+	Map<KitchenOrderRef, BakedPizzas> $bakedPizzas = new ConcurrentHashMap<>();
 
 	DefaultKitchenService(EventLog eventLog, KitchenOrderRepository kitchenOrderRepository, PizzaRepository pizzaRepository, OrderingService orderingService) {
+		this(eventLog, kitchenOrderRepository, pizzaRepository, orderingService, AggregateExecutor.DIRECT);
+	}
+
+	DefaultKitchenService(EventLog eventLog, KitchenOrderRepository kitchenOrderRepository, PizzaRepository pizzaRepository, OrderingService orderingService, AggregateExecutor aggregateExecutor) {
+		this(eventLog, kitchenOrderRepository, pizzaRepository, orderingService, aggregateExecutor, OvenPolicy.unlimited());
+	}
+
+	DefaultKitchenService(EventLog eventLog, KitchenOrderRepository kitchenOrderRepository, PizzaRepository pizzaRepository, OrderingService orderingService, AggregateExecutor aggregateExecutor, OvenPolicy ovenPolicy) {
+		this(eventLog, kitchenOrderRepository, pizzaRepository, orderingService, aggregateExecutor, ovenPolicy, PrepDispatcher.UNLIMITED);
+	}
+
+	DefaultKitchenService(EventLog eventLog, KitchenOrderRepository kitchenOrderRepository, PizzaRepository pizzaRepository, OrderingService orderingService, AggregateExecutor aggregateExecutor, OvenPolicy ovenPolicy, int prepStations) {
 		this.kitchenOrderRepository = kitchenOrderRepository;
 		this.eventLog = eventLog;
 		this.pizzaRepository = pizzaRepository;
 		this.orderingService = orderingService;
-		eventLog.subscribe(new Topic("kitchen_orders"), this::handleKitchenOrderEvent);
-		eventLog.subscribe(new Topic("pizzas"), this::handlePizzaEvent);
-		eventLog.subscribe(new Topic("ordering"), this::handleOnlineOrderEvent);
+		this.aggregateExecutor = aggregateExecutor;
+		this.ovenScheduler = new OvenScheduler(ovenPolicy, this::startBake);
+		this.prepDispatcher = new PrepDispatcher(prepStations, this::startPrep);
+		eventLog.subscribe(KitchenOrder.TOPIC, this::handleKitchenOrderEvent);
+		eventLog.subscribe(Pizza.TOPIC, this::handlePizzaEvent);
+		eventLog.subscribe(OnlineOrder.TOPIC, this::handleOnlineOrderEvent);
 	}
 
 	private void handleOnlineOrderEvent(Event event) {
 		if (event instanceof OnlineOrderPaidEvent) {
-			KitchenOrder order = onlineOrderToKitchenOrder( (OnlineOrderPaidEvent) event);
-			kitchenOrderRepository.add(order);
-			order.startPrep();
+			OnlineOrderPaidEvent ope = (OnlineOrderPaidEvent) event;
+			aggregateExecutor.execute(ope.getRef(), () -> {
+				KitchenOrder order = onlineOrderToKitchenOrder(ope);
+				kitchenOrderRepository.add(order);
+				order.startPrep();
+			});
 		}
 	}
 
@@ -66,13 +124,21 @@ final class DefaultKitchenService implements KitchenService {
 	private void handleKitchenOrderEvent(Event event) {
 		if (event instanceof KitchenOrderPrepStartedEvent) {
 			KitchenOrderPrepStartedEvent kope = (KitchenOrderPrepStartedEvent)event;
-			KitchenOrder order = findKitchenOrderByRef(kope.getRef());
-			order.getPizzas().stream().
-					map(kitchenPizza2Pizza(order)).
-					forEach(p -> {
-						pizzaRepository.add(p);
-						p.startPrep();
-					});
+			aggregateExecutor.execute(kope.getRef(), () -> {
+				KitchenOrder order = findKitchenOrderByRef(kope.getRef());
+				// A redelivered event finds its order's pizzas already added
+				if (order.hasFinishedAssembly()
+						|| $bakedPizzas.putIfAbsent(order.getRef(), new BakedPizzas(order.getPizzas().size())) != null) {
+					return;
+				}
+				List<Pizza> pizzas = order.getPizzas().stream().
+						map(kitchenPizza2Pizza(order)).
+						collect(Collectors.toList());
+				pizzaRepository.addAll(pizzas);
+				prepDispatcher.dispatch(pizzas.stream().
+						map(p -> new PrepRequest(p.getRef(), order.getRef())).
+						collect(Collectors.toList()));
+			});
 		}
 	}
 
@@ -88,51 +154,138 @@ final class DefaultKitchenService implements KitchenService {
 	private void handlePizzaEvent(Event event) {
 		if (event instanceof PizzaPrepFinishedEvent) {
 			PizzaPrepFinishedEvent pfe = (PizzaPrepFinishedEvent)event;
-			findPizzaByRef(pfe.getRef()).startBake();
+			prepDispatcher.release(pfe.getRef());
+			withKitchenOrderOf(pfe.getRef(), pizza -> ovenScheduler.enqueue(bakeRequestFor(pizza)));
 		} else if (event instanceof PizzaBakeStartedEvent) {
 			PizzaBakeStartedEvent pfe = (PizzaBakeStartedEvent)event;
-			Pizza pizza = findPizzaByRef(pfe.getRef());
-			KitchenOrder order = findKitchenOrderByRef(pizza.getKitchenOrderRef());
-			if (order.getState() == KitchenOrder.State.PREPPING) {
-				order.startBake();
-			}
+			withKitchenOrderOf(pfe.getRef(), pizza -> retryOnConflict(() -> {
+				KitchenOrder order = findKitchenOrderByRef(pizza.getKitchenOrderRef());
+				if (order.getState() == KitchenOrder.State.PREPPING) {
+					order.startBake();
+				}
+			}));
 		} else if (event instanceof PizzaBakeFinishedEvent) {
 			PizzaBakeFinishedEvent pfe = (PizzaBakeFinishedEvent)event;
-			Pizza pizza = findPizzaByRef(pfe.getRef());
-			KitchenOrder order = findKitchenOrderByRef(pizza.getKitchenOrderRef());
-			if (order.getState() == KitchenOrder.State.BAKING) {
-				// First Order finished baking
-				order.startAssembly();
+			ovenScheduler.release(pfe.getRef());
+			withKitchenOrderOf(pfe.getRef(), pizza -> {
+				BakedPizzas baked = bakedPizzasOf(pizza.getKitchenOrderRef());
+				baked.add(pizza.getRef());
+				retryOnConflict(() -> {
+					KitchenOrder order = findKitchenOrderByRef(pizza.getKitchenOrderRef());
+					if (order.getState() == KitchenOrder.State.BAKING) {
+						// First Order finished baking
+						order.startAssembly();
+					}
+					if (order.getState() == KitchenOrder.State.ASSEMBLING && baked.isComplete()) {
+						order.finishAssembly();
+					}
+					if (order.hasFinishedAssembly()) {
+						$bakedPizzas.remove(order.getRef(), baked);
+					}
+				});
+			});
+		}
+	}
+
+	/*
+	 * Only loads what the oven policy ranks by: nothing ever waits for an unlimited oven, and only
+	 * deadlines depend on the online order's type.
+	 */
+	private BakeRequest bakeRequestFor(Pizza pizza) {
+		OvenPolicy policy = ovenScheduler.getPolicy();
+		if (!policy.isBounded()) {
+			return new BakeRequest(pizza.getRef(), pizza.getKitchenOrderRef(), 0, null);
+		}
+		KitchenOrder order = findKitchenOrderByRef(pizza.getKitchenOrderRef());
+		OnlineOrder.Type type = policy.getAdmission() == OvenPolicy.Admission.DEADLINE_AWARE
+				? orderingService.findByRef(order.getOnlineOrderRef()).getType()
+				: null;
+		return new BakeRequest(pizza.getRef(), order.getRef(), order.getPizzas().size(), type);
+	}
+
+	private void startPrep(PrepRequest request) {
+		aggregateExecutor.execute(request.getKitchenOrderRef(), () -> pizzaRepository.findByRef(request.getPizzaRef()).startPrep());
+	}
+
+	/*
+	 * A pizza that fails to go into the oven never comes out of it, so it gives its slot back itself.
+	 */
+	private void startBake(BakeRequest request) {
+		aggregateExecutor.execute(request.getKitchenOrderRef(), () -> {
+			try {
+				pizzaRepository.findByRef(request.getPizzaRef()).startBake();
+			} catch (RuntimeException e) {
+				ovenScheduler.release(request.getPizzaRef());
+				throw e;
 			}
-			boolean isLastPizza = findPizzasByKitchenOrderRef(order.getRef()).stream().
-					allMatch(Pizza::hasFinishedBaking);
-			if (isLastPizza) {
-				order.finishAssembly();
+		});
+	}
+
+	private BakedPizzas bakedPizzasOf(KitchenOrderRef kitchenOrderRef) {
+		BakedPizzas baked = $bakedPizzas.get(kitchenOrderRef);
+		return baked != null ? baked : $bakedPizzas.computeIfAbsent(kitchenOrderRef, this::recoverBakedPizzas);
+	}
+
+	private BakedPizzas recoverBakedPizzas(KitchenOrderRef kitchenOrderRef) {
+		BakedPizzas baked = new BakedPizzas(findKitchenOrderByRef(kitchenOrderRef).getPizzas().size());
+		findPizzasByKitchenOrderRef(kitchenOrderRef).stream().
+				filter(Pizza::hasFinishedBaking).
+				forEach(pizza -> baked.add(pizza.getRef()));
+		return baked;
+	}
+
+	/*
+	 * Runs a step that reloads the kitchen order and acts on it again when it is beaten to the append:
+	 * other handlers of the same order may write to it concurrently under a direct executor. A log
+	 * whose version check counts events that cannot be read back yet, such as a group commit still in
+	 * flight, keeps conflicting until they can, so each retry waits longer and the last conflict is
+	 * rethrown.
+	 */
+	private static void retryOnConflict(Runnable step) {
+		long backoffNanos = FIRST_CONFLICT_BACKOFF_NANOS;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				step.run();
+				return;
+			} catch (VersionConflictException e) {
+				if (attempt == MAX_CONFLICT_ATTEMPTS) {
+					throw e;
+				}
+				LockSupport.parkNanos(backoffNanos);
+				backoffNanos = Math.min(backoffNanos * 2, MAX_CONFLICT_BACKOFF_NANOS);
 			}
 		}
 	}
 
+	private void withKitchenOrderOf(PizzaRef ref, Consumer<Pizza> task) {
+		Pizza pizza = findPizzaByRef(ref);
+		aggregateExecutor.execute(pizza.getKitchenOrderRef(), () -> task.accept(pizza));
+	}
+
 	@Override
 	public void startOrderPrep(KitchenOrderRef kitchenOrderRef) {
-		KitchenOrder order = findKitchenOrderByRef(kitchenOrderRef);
-		if (order != null) {
-			order.startPrep();
-		}
+		aggregateExecutor.executeAndWait(kitchenOrderRef, () -> {
+			KitchenOrder order = findKitchenOrderByRef(kitchenOrderRef);
+			if (order != null) {
+				order.startPrep();
+			}
+		});
 	}
 
 	@Override
 	public void finishPizzaPrep(PizzaRef ref) {
-		Pizza pizza = pizzaRepository.findByRef(ref);
-		if (pizza != null) {
-			pizza.finishPrep();
-		}
+		onKitchenOrderOf(ref, Pizza::finishPrep);
 	}
 
 	@Override
 	public void removePizzaFromOven(PizzaRef ref) {
+		onKitchenOrderOf(ref, Pizza::finishBake);
+	}
+
+	private void onKitchenOrderOf(PizzaRef ref, Consumer<Pizza> command) {
 		Pizza pizza = pizzaRepository.findByRef(ref);
 		if (pizza != null) {
-			pizza.finishBake();
+			aggregateExecutor.executeAndWait(pizza.getKitchenOrderRef(), () -> command.accept(pizzaRepository.findByRef(ref)));
 		}
 	}
 
@@ -156,4 +309,23 @@ final class DefaultKitchenService implements KitchenService {
 		return pizzaRepository.findPizzasByKitchenOrderRef(kitchenOrderRef);
 	}
 
+	/*
+	 * The pizzas of one kitchen order that have come out of the oven.
+	 */
+	private static final class BakedPizzas {
+		private final int pizzas;
+		private final Set<PizzaRef> baked = ConcurrentHashMap.newKeySet();
+
+		private BakedPizzas(int pizzas) {
+			this.pizzas = pizzas;
+		}
+
+		private void add(PizzaRef pizzaRef) {
+			baked.add(pizzaRef);
+		}
+
+		private boolean isComplete() {
+			return baked.size() >= pizzas;
+		}
+	}
 }
@@ -0,0 +1,96 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of non-negative values in power-of-two buckets: bucket 0 counts zeros and bucket
+ * {@code i} counts values in {@code [2^(i-1), 2^i)}, so recording is a bit count and percentiles are
+ * exact to within a factor of two. Not thread-safe; owners record under their own lock and hand out
+ * {@link #copy() copies}.
+ *
+ * @author Matt Stine
+ */
+final class Histogram {
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long max;
+
+    Histogram() {
+        this.counts = new long[Long.SIZE];
+    }
+
+    private Histogram(Histogram other) {
+        this.counts = other.counts.clone();
+        this.count = other.count;
+        this.sum = other.sum;
+        this.max = other.max;
+    }
+
+    void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot record a negative value: " + value);
+        }
+        counts[Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSum() {
+        return sum;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Upper bound of the bucket holding the value at {@code percentile} (0 to 100), capped at the
+     * largest recorded value; zero when nothing was recorded.
+     */
+    long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Cannot take percentile " + percentile);
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Counts per bucket, index {@code i} covering {@code [2^(i-1), 2^i)}.
+     */
+    long[] getCounts() {
+        return counts.clone();
+    }
+
+    Histogram copy() {
+        return new Histogram(this);
+    }
+
+    /**
+     * Summary plus the counts up to the highest non-empty bucket.
+     */
+    @Override
+    public String toString() {
+        int used = count == 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(max) + 1;
+        return "Histogram(count=" + count + ", mean=" + getMean() + ", p50=" + valueAtPercentile(50)
+                + ", p99=" + valueAtPercentile(99) + ", max=" + max
+                + ", counts=" + Arrays.toString(Arrays.copyOf(counts, used)) + ")";
+    }
+}
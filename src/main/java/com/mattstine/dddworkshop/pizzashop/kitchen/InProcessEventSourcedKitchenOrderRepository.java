@@ -4,23 +4,33 @@ import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters.InProcessEventSourcedRepository;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CachePolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class InProcessEventSourcedKitchenOrderRepository extends InProcessEventSourcedRepository<KitchenOrderRef, KitchenOrder, KitchenOrder.OrderState, KitchenOrderEvent, KitchenOrderAddedEvent> implements KitchenOrderRepository {
 
-    Map<OnlineOrderRef, KitchenOrderRef> orderRefKitchenOrderRefMap = new HashMap<>();
+    Map<OnlineOrderRef, KitchenOrderRef> orderRefKitchenOrderRefMap = new ConcurrentHashMap<>();
 
     InProcessEventSourcedKitchenOrderRepository(EventLog eventLog, Topic topic) {
+        this(eventLog, topic, CachePolicy.disabled());
+    }
+
+    InProcessEventSourcedKitchenOrderRepository(EventLog eventLog, Topic topic, CachePolicy cachePolicy) {
         super(eventLog,
                 KitchenOrderRef.class,
                 KitchenOrder.class,
                 KitchenOrder.OrderState.class,
                 KitchenOrderAddedEvent.class,
-                topic);
-        eventLog.subscribe(topic, this::handleEvent);
+                topic,
+                SnapshotStore.NONE,
+                SnapshotPolicy.never(),
+                cachePolicy);
+        eventLog.subscribe(topic, EventLog.FROM_BEGINNING, this::handleEvent);
     }
 
     private void handleEvent(Event evt) {
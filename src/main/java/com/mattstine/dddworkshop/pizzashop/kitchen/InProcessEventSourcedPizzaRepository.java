@@ -4,21 +4,28 @@ import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters.InProcessEventSourcedRepository;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CachePolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class InProcessEventSourcedPizzaRepository extends InProcessEventSourcedRepository<PizzaRef, Pizza, Pizza.PizzaState, PizzaEvent, PizzaAddedEvent> implements PizzaRepository {
 
-    final Map<KitchenOrderRef, Set<PizzaRef>> kitchenOrderRefSetMap = new HashMap<>();
+    final Map<KitchenOrderRef, Set<PizzaRef>> kitchenOrderRefSetMap = new ConcurrentHashMap<>();
 
     InProcessEventSourcedPizzaRepository(EventLog eventLog, Topic pizzas) {
-        super(eventLog, PizzaRef.class, Pizza.class, Pizza.PizzaState.class, PizzaAddedEvent.class, pizzas);
-        eventLog.subscribe(pizzas, this::handleEvent);
+        this(eventLog, pizzas, CachePolicy.disabled());
+    }
+
+    InProcessEventSourcedPizzaRepository(EventLog eventLog, Topic pizzas, CachePolicy cachePolicy) {
+        super(eventLog, PizzaRef.class, Pizza.class, Pizza.PizzaState.class, PizzaAddedEvent.class, pizzas,
+                SnapshotStore.NONE, SnapshotPolicy.never(), cachePolicy);
+        eventLog.subscribe(pizzas, EventLog.FROM_BEGINNING, this::handleEvent);
     }
 
     private void handleEvent(Event evt) {
@@ -26,7 +33,7 @@ final class InProcessEventSourcedPizzaRepository extends InProcessEventSourcedRe
             PizzaAddedEvent pae = (PizzaAddedEvent) evt;
             Set<PizzaRef> refs = kitchenOrderRefSetMap.
                     computeIfAbsent(pae.getState().getKitchenOrderRef(),
-                            r -> new HashSet<>());
+                            r -> ConcurrentHashMap.newKeySet());
             refs.add(pae.getRef());
         }
     }
@@ -35,7 +42,7 @@ final class InProcessEventSourcedPizzaRepository extends InProcessEventSourcedRe
     public Set<Pizza> findPizzasByKitchenOrderRef(KitchenOrderRef kitchenOrderRef) {
         Set<PizzaRef> refs = kitchenOrderRefSetMap.get(kitchenOrderRef);
         if (refs != null) {
-            return refs.stream().map(this::findByRef).collect(Collectors.toSet());
+            return new HashSet<>(findByRefs(refs).values());
         }
         return Collections.emptySet();
     }
@@ -1,6 +1,5 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Aggregate;
@@ -12,17 +11,23 @@ import lombok.Singular;
 import lombok.Value;
 import lombok.experimental.NonFinal;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.function.BiFunction;
 
 @Value
 public final class KitchenOrder implements Aggregate {
+    public static final Topic TOPIC = Topic.of("kitchen_orders");
+
     KitchenOrderRef ref;
     OnlineOrderRef onlineOrderRef;
     List<Pizza> pizzas;
+    @NonFinal
     EventLog $eventLog;
     @NonFinal
     State state;
+    @NonFinal
+    long $version;
 
     @Builder
     private KitchenOrder(@NonNull KitchenOrderRef ref, @NonNull OnlineOrderRef onlineOrderRef, @Singular List<Pizza> pizzas, @NonNull EventLog eventLog) {
@@ -53,8 +58,9 @@ public final class KitchenOrder implements Aggregate {
         if (this.state != State.NEW) {
             throw new IllegalStateException("Only a NEW KitchenOrder can begin prepping");
         }
+        $eventLog.append(TOPIC, $version, new KitchenOrderPrepStartedEvent(ref));
         this.state = State.PREPPING;
-        $eventLog.publish(new Topic("kitchen_orders"), new KitchenOrderPrepStartedEvent(ref));
+        $version++;
     }
 
     boolean isPrepping() {
@@ -65,8 +71,9 @@ public final class KitchenOrder implements Aggregate {
         if (this.state != State.PREPPING) {
             throw new IllegalStateException("Only a PREPPING KitchenOrder can begin baking");
         }
+        $eventLog.append(TOPIC, $version, new KitchenOrderBakeStartedEvent(ref));
         this.state = State.BAKING;
-        $eventLog.publish(new Topic("kitchen_orders"), new KitchenOrderBakeStartedEvent(ref));
+        $version++;
     }
 
     boolean isBaking() {
@@ -77,8 +84,9 @@ public final class KitchenOrder implements Aggregate {
         if (this.state != State.BAKING) {
             throw new IllegalStateException("Only a BAKING KitchenOrder can begin ASSEMBLING");
         }
+        $eventLog.append(TOPIC, $version, new KitchenOrderAssemblyStartedEvent(ref));
         this.state = State.ASSEMBLING;
-        $eventLog.publish(new Topic("kitchen_orders"), new KitchenOrderAssemblyStartedEvent(ref));
+        $version++;
     }
 
     boolean hasStartedAssembly() {
@@ -89,18 +97,36 @@ public final class KitchenOrder implements Aggregate {
         if (this.state != State.ASSEMBLING) {
             throw new IllegalStateException("Only a ASSEMBLING KitchenOrder can begin finishAssembly");
         }
+        $eventLog.append(TOPIC, $version, new KitchenOrderAssemblyFinishedEvent(ref));
         this.state = State.ASSEMBLED;
-        $eventLog.publish(new Topic("kitchen_orders"), new KitchenOrderAssemblyFinishedEvent(ref));
+        $version++;
     }
 
     boolean hasFinishedAssembly() {
         return this.state == State.ASSEMBLED;
     }
 
+    @Override
+    public long version() {
+        return $version;
+    }
+
+    @Override
+    public KitchenOrder boundTo(EventLog eventLog) {
+        this.$eventLog = eventLog;
+        return this;
+    }
+
+    @Override
+    public KitchenOrder atVersion(long version) {
+        this.$version = version;
+        return this;
+    }
+
     @Override
     public KitchenOrder identity() {
         return KitchenOrder.builder().
-                eventLog(InProcessEventLog.IDENTITY).
+                eventLog(EventLog.IDENTITY).
                 onlineOrderRef(OnlineOrderRef.IDENTITY).
                 ref(KitchenOrderRef.IDENTITY).
                 build();
@@ -116,6 +142,20 @@ public final class KitchenOrder implements Aggregate {
         return new OrderState(ref, onlineOrderRef, pizzas, state);
     }
 
+    @Override
+    public KitchenOrder restore(AggregateState aggregateState) {
+        OrderState orderState = (OrderState) aggregateState;
+        KitchenOrder kitchenOrder = KitchenOrder.
+                builder().
+                ref(orderState.getRef()).
+                onlineOrderRef(orderState.getOnlineOrderRef()).
+                eventLog($eventLog).
+                pizzas(orderState.getPizzas()).
+                build();
+        kitchenOrder.state = orderState.getState();
+        return kitchenOrder;
+    }
+
     enum State {
         NEW,
         PREPPING,
@@ -134,7 +174,7 @@ public final class KitchenOrder implements Aggregate {
                         builder().
                         ref(koae.getRef()).
                         onlineOrderRef(koae.getState().onlineOrderRef).
-                        eventLog(InProcessEventLog.instance()).
+                        eventLog(kitchenOrder.$eventLog).
                         pizzas(koae.getState().pizzas).
                         build();
             } else if (evt instanceof  KitchenOrderPrepStartedEvent) {
@@ -159,7 +199,9 @@ public final class KitchenOrder implements Aggregate {
      * Pizza Value Object for OnlineOrder Details Only
      */
     @Value
-    public static final class Pizza {
+    public static final class Pizza implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         Size size;
 
         @Builder
@@ -174,8 +216,12 @@ public final class KitchenOrder implements Aggregate {
 
     @Value
     static class OrderState implements AggregateState {
+        private static final long serialVersionUID = 1L;
+
         KitchenOrderRef ref;
         OnlineOrderRef onlineOrderRef;
+        // Always the builder's serializable @Singular list
+        @SuppressWarnings("serial")
         List<Pizza> pizzas;
         State state;
     }
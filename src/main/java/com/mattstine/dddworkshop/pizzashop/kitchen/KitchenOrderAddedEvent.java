@@ -5,6 +5,8 @@ import lombok.Value;
 
 @Value
 final class KitchenOrderAddedEvent implements KitchenOrderEvent, RepositoryAddEvent {
+    private static final long serialVersionUID = 1L;
+
     KitchenOrderRef ref;
     KitchenOrder.OrderState state;
 }
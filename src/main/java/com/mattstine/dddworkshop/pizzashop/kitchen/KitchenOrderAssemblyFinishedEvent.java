@@ -4,5 +4,7 @@ import lombok.Value;
 
 @Value
 public final class KitchenOrderAssemblyFinishedEvent implements KitchenOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     KitchenOrderRef ref;
 }
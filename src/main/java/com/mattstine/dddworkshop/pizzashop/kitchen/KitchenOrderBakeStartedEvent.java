@@ -4,5 +4,7 @@ import lombok.Value;
 
 @Value
 final class KitchenOrderBakeStartedEvent implements KitchenOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     KitchenOrderRef ref;
 }
@@ -5,5 +5,7 @@ import lombok.Value;
 
 @Value
 final class KitchenOrderPrepStartedEvent implements Event, KitchenOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     KitchenOrderRef ref;
 }
@@ -1,28 +1,41 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefStringGenerator;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 /**
  * @author Matt Stine
  */
 @Value
-public final class KitchenOrderRef implements Ref {
-    public static final KitchenOrderRef IDENTITY = new KitchenOrderRef("");
-    private String reference;
+@EqualsAndHashCode(exclude = "reference")
+public final class KitchenOrderRef implements IdRef {
+    private static final long serialVersionUID = 1L;
 
-    public  KitchenOrderRef() {
-        this.reference = RefStringGenerator.generateRefString();
+    public static final KitchenOrderRef IDENTITY = new KitchenOrderRef(0, 0);
+    long id;
+    long node;
+    @NonFinal
+    transient String reference;
+
+    public KitchenOrderRef() {
+        this(RefIdGenerator.nextId(), RefIdGenerator.node());
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private KitchenOrderRef(String reference) {
-        this.reference = reference;
+    private KitchenOrderRef(long id, long node) {
+        this.id = id;
+        this.node = node;
     }
 
     @Override
     public String getReference() {
+        String reference = this.reference;
+        if (reference == null) {
+            reference = RefIdGenerator.format(id, node);
+            this.reference = reference;
+        }
         return reference;
     }
 }
@@ -0,0 +1,94 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * How many pizzas the kitchen's ovens hold at once, and which waiting pizza takes a slot when one frees
+ * up. Pizzas with equal priority are admitted in the order they finished prep.
+ *
+ * @author Matt Stine
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+final class OvenPolicy {
+    private static final OvenPolicy UNLIMITED = new OvenPolicy(1, Integer.MAX_VALUE, Admission.FIFO, Duration.ZERO, Duration.ZERO);
+
+    int ovens;
+    int slotsPerOven;
+    Admission admission;
+    Duration deliveryAllowance;
+    Duration pickupAllowance;
+
+    /**
+     * Every pizza goes into the oven as soon as its prep is finished.
+     */
+    static OvenPolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Pizzas are admitted in the order they finished prep.
+     */
+    static OvenPolicy fifo(int ovens, int slotsPerOven) {
+        return new OvenPolicy(checked(ovens), checked(slotsPerOven), Admission.FIFO, Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * Pizzas of the kitchen orders with the fewest pizzas go first, so small orders are not stuck
+     * behind large ones.
+     */
+    static OvenPolicy shortestOrderFirst(int ovens, int slotsPerOven) {
+        return new OvenPolicy(checked(ovens), checked(slotsPerOven), Admission.SHORTEST_ORDER_FIRST, Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * Earliest deadline first: a pizza finishing prep is due within the allowance of its order's
+     * {@link OnlineOrder.Type}, so delivery orders can be given a tighter allowance than pickups. Orders
+     * of unknown type get the pickup allowance.
+     */
+    static OvenPolicy deadlineAware(int ovens, int slotsPerOven, Duration deliveryAllowance, Duration pickupAllowance) {
+        if (deliveryAllowance == null || pickupAllowance == null || deliveryAllowance.isNegative() || pickupAllowance.isNegative()) {
+            throw new IllegalArgumentException("Cannot build OvenPolicy without non-negative allowances");
+        }
+        return new OvenPolicy(checked(ovens), checked(slotsPerOven), Admission.DEADLINE_AWARE, deliveryAllowance, pickupAllowance);
+    }
+
+    int getSlots() {
+        return isBounded() ? ovens * slotsPerOven : Integer.MAX_VALUE;
+    }
+
+    boolean isBounded() {
+        return slotsPerOven != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Priority of a pizza that joined the queue at {@code enqueuedAt} nanoseconds; lower goes first.
+     */
+    long rank(BakeRequest request, long enqueuedAt) {
+        switch (admission) {
+            case SHORTEST_ORDER_FIRST:
+                return request.getOrderSize();
+            case DEADLINE_AWARE:
+                Duration allowance = request.getOrderType() == OnlineOrder.Type.DELIVERY ? deliveryAllowance : pickupAllowance;
+                return enqueuedAt + allowance.toNanos();
+            default:
+                return enqueuedAt;
+        }
+    }
+
+    private static int checked(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Cannot build OvenPolicy with fewer than one oven or slot");
+        }
+        return count;
+    }
+
+    enum Admission {
+        FIFO, SHORTEST_ORDER_FIRST, DEADLINE_AWARE
+    }
+}
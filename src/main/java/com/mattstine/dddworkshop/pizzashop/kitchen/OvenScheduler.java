@@ -0,0 +1,115 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Admits prepped pizzas to a fixed number of oven slots. A pizza that finished prep takes a free slot
+ * at once or waits in a queue ordered by the {@link OvenPolicy}; when a pizza comes out of the oven its
+ * slot goes to the first waiting pizza. Admitting a pizza means handing it to {@code startBake}, which
+ * puts it in the oven and so emits its bake-start event.
+ * <p>
+ * Decisions are made under the scheduler's lock and {@code startBake} is called after releasing it, so
+ * it may publish events whose handlers call back into the scheduler. Releasing a pizza that this
+ * scheduler did not admit, such as one that went into the oven before it started, does nothing.
+ *
+ * @author Matt Stine
+ */
+final class OvenScheduler {
+    @Getter
+    private final OvenPolicy policy;
+    private final LongSupplier nanoTime;
+    private final Consumer<BakeRequest> startBake;
+    private final PriorityQueue<Waiting> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Waiting w) -> w.rank).thenComparingLong(w -> w.sequence));
+    private final Set<PizzaRef> baking = new HashSet<>();
+    private final Histogram queueDepths = new Histogram();
+    private final Histogram waitMillis = new Histogram();
+    private long sequence;
+    private long admitted;
+
+    OvenScheduler(OvenPolicy policy, Consumer<BakeRequest> startBake) {
+        this(policy, System::nanoTime, startBake);
+    }
+
+    OvenScheduler(OvenPolicy policy, LongSupplier nanoTime, Consumer<BakeRequest> startBake) {
+        if (policy == null || nanoTime == null || startBake == null) {
+            throw new IllegalArgumentException("Cannot build OvenScheduler without a policy, a clock and a way to start baking");
+        }
+        this.policy = policy;
+        this.nanoTime = nanoTime;
+        this.startBake = startBake;
+    }
+
+    /**
+     * Queues a prepped pizza, starting its bake at once if a slot is free.
+     */
+    void enqueue(BakeRequest request) {
+        List<BakeRequest> admitted;
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            queueDepths.record(queue.size());
+            queue.add(new Waiting(request, policy.rank(request, now), now, sequence++));
+            admitted = admit(now);
+        }
+        admitted.forEach(startBake);
+    }
+
+    /**
+     * Frees the slot of a pizza that came out of the oven and hands it to the next waiting pizza.
+     */
+    void release(PizzaRef pizzaRef) {
+        List<BakeRequest> admitted;
+        synchronized (this) {
+            if (!baking.remove(pizzaRef)) {
+                return;
+            }
+            admitted = admit(nanoTime.getAsLong());
+        }
+        admitted.forEach(startBake);
+    }
+
+    synchronized OvenStats stats() {
+        return new OvenStats(policy.getSlots(), baking.size(), queue.size(), admitted,
+                queueDepths.copy(), waitMillis.copy());
+    }
+
+    private List<BakeRequest> admit(long now) {
+        if (queue.isEmpty() || baking.size() >= policy.getSlots()) {
+            return Collections.emptyList();
+        }
+        List<BakeRequest> started = new ArrayList<>(1);
+        while (!queue.isEmpty() && baking.size() < policy.getSlots()) {
+            Waiting next = queue.poll();
+            baking.add(next.request.getPizzaRef());
+            waitMillis.record(TimeUnit.NANOSECONDS.toMillis(now - next.enqueuedAt));
+            admitted++;
+            started.add(next.request);
+        }
+        return started;
+    }
+
+    private static final class Waiting {
+        private final BakeRequest request;
+        private final long rank;
+        private final long enqueuedAt;
+        private final long sequence;
+
+        private Waiting(BakeRequest request, long rank, long enqueuedAt, long sequence) {
+            this.request = request;
+            this.rank = rank;
+            this.enqueuedAt = enqueuedAt;
+            this.sequence = sequence;
+        }
+    }
+}
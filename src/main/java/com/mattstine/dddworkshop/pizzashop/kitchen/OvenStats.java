@@ -0,0 +1,25 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import lombok.Value;
+
+/**
+ * Point-in-time view of the ovens: slots in use, pizzas waiting, and how deep the queue was and how
+ * long pizzas waited for a slot since the {@link OvenScheduler} started.
+ *
+ * @author Matt Stine
+ */
+@Value
+final class OvenStats {
+    int slots;
+    int baking;
+    int queued;
+    long admitted;
+    /**
+     * Pizzas already waiting for a slot when each pizza finished prep.
+     */
+    Histogram queueDepths;
+    /**
+     * Milliseconds each admitted pizza spent waiting for a slot.
+     */
+    Histogram waitMillis;
+}
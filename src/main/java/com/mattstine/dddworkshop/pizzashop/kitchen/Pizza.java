@@ -1,6 +1,5 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Aggregate;
@@ -14,12 +13,17 @@ import java.util.function.BiFunction;
 
 @Value
 public final class Pizza implements Aggregate {
+    public static final Topic TOPIC = Topic.of("pizzas");
+
     PizzaRef ref;
     KitchenOrderRef kitchenOrderRef;
     Size size;
+    @NonFinal
     EventLog $eventLog;
     @NonFinal
     State state;
+    @NonFinal
+    long $version;
 
     @Builder
     private Pizza(@NonNull PizzaRef ref,
@@ -53,8 +57,9 @@ public final class Pizza implements Aggregate {
         if (this.state != State.NEW) {
             throw new IllegalStateException("Only a NEW Pizza can start prep");
         }
+        $eventLog.append(TOPIC, $version, new PizzaPrepStartedEvent(ref));
         this.state = State.PREPPING;
-        $eventLog.publish(new Topic("pizzas"), new PizzaPrepStartedEvent(ref));
+        $version++;
     }
 
     boolean isPrepping() {
@@ -65,8 +70,9 @@ public final class Pizza implements Aggregate {
         if (this.state != State.PREPPING) {
             throw new IllegalStateException("Only a PREPPING Pizza can finish prep");
         }
+        $eventLog.append(TOPIC, $version, new PizzaPrepFinishedEvent(ref));
         this.state = State.PREPPED;
-        $eventLog.publish(new Topic("pizzas"), new PizzaPrepFinishedEvent(ref));
+        $version++;
     }
 
     boolean hasFinishedPrep() {
@@ -77,8 +83,9 @@ public final class Pizza implements Aggregate {
         if (this.state != State.PREPPED) {
             throw new IllegalStateException("Only a PREPPED Pizza can start baking");
         }
+        $eventLog.append(TOPIC, $version, new PizzaBakeStartedEvent(ref));
         this.state = State.BAKING;
-        $eventLog.publish(new Topic("pizzas"), new PizzaBakeStartedEvent(ref));
+        $version++;
     }
 
     boolean isBaking() {
@@ -89,18 +96,36 @@ public final class Pizza implements Aggregate {
         if (this.state != State.BAKING) {
             throw new IllegalStateException("Only a BAKING Pizza can finish baking");
         }
+        $eventLog.append(TOPIC, $version, new PizzaBakeFinishedEvent(ref));
         this.state = State.BAKED;
-        $eventLog.publish(new Topic("pizzas"), new PizzaBakeFinishedEvent(ref));
+        $version++;
     }
 
     boolean hasFinishedBaking() {
         return this.state == State.BAKED;
     }
 
+    @Override
+    public long version() {
+        return $version;
+    }
+
+    @Override
+    public Pizza boundTo(EventLog eventLog) {
+        this.$eventLog = eventLog;
+        return this;
+    }
+
+    @Override
+    public Pizza atVersion(long version) {
+        this.$version = version;
+        return this;
+    }
+
     @Override
     public Pizza identity() {
         return Pizza.builder().
-                eventLog(InProcessEventLog.IDENTITY).
+                eventLog(EventLog.IDENTITY).
                 kitchenOrderRef(KitchenOrderRef.IDENTITY).
                 ref(PizzaRef.IDENTITY).
                 size(Size.IDENTITY).
@@ -122,6 +147,19 @@ public final class Pizza implements Aggregate {
         return new PizzaState(ref, kitchenOrderRef, size, state);
     }
 
+    @Override
+    public Pizza restore(AggregateState aggregateState) {
+        PizzaState pizzaState = (PizzaState) aggregateState;
+        Pizza pizza = Pizza.builder().
+                size(pizzaState.getSize()).
+                ref(pizzaState.getRef()).
+                kitchenOrderRef(pizzaState.getKitchenOrderRef()).
+                eventLog($eventLog).
+                build();
+        pizza.state = pizzaState.getState();
+        return pizza;
+    }
+
     enum Size {
         IDENTITY, SMALL, MEDIUM, LARGE
     }
@@ -144,7 +182,7 @@ public final class Pizza implements Aggregate {
                         size(pae.getState().getSize()).
                         ref(pae.getRef()).
                         kitchenOrderRef(pae.getState().getKitchenOrderRef()).
-                        eventLog(InProcessEventLog.instance()).
+                        eventLog(pizza.$eventLog).
                         build();
             } else if (evt instanceof PizzaPrepStartedEvent) {
                 pizza.state = State.PREPPING;
@@ -165,6 +203,8 @@ public final class Pizza implements Aggregate {
 
     @Value
     static class PizzaState implements AggregateState {
+        private static final long serialVersionUID = 1L;
+
         PizzaRef ref;
         KitchenOrderRef kitchenOrderRef;
         Size size;
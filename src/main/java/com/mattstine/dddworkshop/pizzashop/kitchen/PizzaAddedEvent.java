@@ -5,6 +5,8 @@ import lombok.Value;
 
 @Value
 final class PizzaAddedEvent implements PizzaEvent, RepositoryAddEvent {
+    private static final long serialVersionUID = 1L;
+
     PizzaRef ref;
     Pizza.PizzaState state;
 }
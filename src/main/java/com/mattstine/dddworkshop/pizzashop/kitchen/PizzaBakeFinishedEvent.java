@@ -4,5 +4,7 @@ import lombok.Value;
 
 @Value
 final class PizzaBakeFinishedEvent implements PizzaEvent {
+    private static final long serialVersionUID = 1L;
+
     PizzaRef ref;
 }
@@ -4,6 +4,8 @@ import lombok.Value;
 
 @Value
 final class PizzaPrepFinishedEvent implements PizzaEvent {
+    private static final long serialVersionUID = 1L;
+
     PizzaRef ref;
 }
 
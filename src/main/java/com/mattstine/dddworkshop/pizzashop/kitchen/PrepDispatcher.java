@@ -0,0 +1,184 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads the pizzas of kitchen orders over a fixed number of prep stations, each prepping one pizza at
+ * a time. A kitchen order's pizzas all join the queue of the least loaded station, which takes them
+ * from the front; a station that runs out of work steals from the back of the longest other queue, so
+ * a large order is prepped on several stations at once and no station idles while others have a
+ * backlog. Starting a pizza means handing it to {@code startPrep}, which emits its prep-start event,
+ * and its station is free again once its prep is finished.
+ * <p>
+ * As in {@link OvenScheduler}, decisions are made under the dispatcher's lock and {@code startPrep} is
+ * called after releasing it. Releasing a pizza that this dispatcher did not start does nothing. With
+ * {@link #UNLIMITED} stations every pizza is started as soon as it is dispatched.
+ *
+ * @author Matt Stine
+ */
+final class PrepDispatcher {
+    static final int UNLIMITED = Integer.MAX_VALUE;
+
+    @Getter
+    private final int stations;
+    private final boolean stealing;
+    private final LongSupplier nanoTime;
+    private final Consumer<PrepRequest> startPrep;
+    private final List<Station> stationList;
+    private final Map<PizzaRef, Station> preparing = new HashMap<>();
+    private final Histogram waitMillis = new Histogram();
+    private final long startedAt;
+    private long dispatched;
+    private long steals;
+
+    PrepDispatcher(int stations, Consumer<PrepRequest> startPrep) {
+        this(stations, true, System::nanoTime, startPrep);
+    }
+
+    PrepDispatcher(int stations, boolean stealing, LongSupplier nanoTime, Consumer<PrepRequest> startPrep) {
+        if (stations < 1) {
+            throw new IllegalArgumentException("Cannot build PrepDispatcher without at least one station");
+        }
+        if (nanoTime == null || startPrep == null) {
+            throw new IllegalArgumentException("Cannot build PrepDispatcher without a clock and a way to start prep");
+        }
+        this.stations = stations;
+        this.stealing = stealing;
+        this.nanoTime = nanoTime;
+        this.startPrep = startPrep;
+        this.stationList = new ArrayList<>(isBounded() ? stations : 0);
+        for (int i = 0; isBounded() && i < stations; i++) {
+            stationList.add(new Station());
+        }
+        this.startedAt = nanoTime.getAsLong();
+    }
+
+    boolean isBounded() {
+        return stations != UNLIMITED;
+    }
+
+    /**
+     * Queues the pizzas of one kitchen order at the least loaded station and starts every pizza that a
+     * free station can take.
+     */
+    void dispatch(List<PrepRequest> pizzas) {
+        List<PrepRequest> started;
+        synchronized (this) {
+            dispatched += pizzas.size();
+            if (!isBounded()) {
+                started = pizzas;
+            } else {
+                long now = nanoTime.getAsLong();
+                Station home = Collections.min(stationList, (a, b) -> Integer.compare(a.load(), b.load()));
+                pizzas.forEach(pizza -> home.queue.addLast(new Waiting(pizza, now)));
+                started = assign(now);
+            }
+        }
+        started.forEach(startPrep);
+    }
+
+    /**
+     * Frees the station of a pizza whose prep is finished and gives it its next pizza.
+     */
+    void release(PizzaRef pizzaRef) {
+        List<PrepRequest> started;
+        synchronized (this) {
+            Station station = preparing.remove(pizzaRef);
+            if (station == null) {
+                return;
+            }
+            long now = nanoTime.getAsLong();
+            station.busyNanos += now - station.busySince;
+            station.current = null;
+            started = assign(now);
+        }
+        started.forEach(startPrep);
+    }
+
+    synchronized PrepStats stats() {
+        long now = nanoTime.getAsLong();
+        long elapsed = now - startedAt;
+        long[] prepared = new long[stationList.size()];
+        double[] utilization = new double[stationList.size()];
+        int queued = 0;
+        for (int i = 0; i < stationList.size(); i++) {
+            Station station = stationList.get(i);
+            long busy = station.busyNanos + (station.current == null ? 0 : now - station.busySince);
+            prepared[i] = station.prepared;
+            utilization[i] = elapsed == 0 ? 0 : (double) busy / elapsed;
+            queued += station.queue.size();
+        }
+        return new PrepStats(stations, preparing.size(), queued, dispatched, steals, prepared, utilization,
+                waitMillis.copy());
+    }
+
+    private List<PrepRequest> assign(long now) {
+        List<PrepRequest> started = new ArrayList<>(1);
+        for (Station station : stationList) {
+            if (station.current != null) {
+                continue;
+            }
+            Waiting next = station.queue.pollFirst();
+            if (next == null && stealing) {
+                next = steal();
+            }
+            if (next == null) {
+                continue;
+            }
+            station.current = next.request;
+            station.busySince = now;
+            station.prepared++;
+            preparing.put(next.request.getPizzaRef(), station);
+            waitMillis.record(TimeUnit.NANOSECONDS.toMillis(now - next.enqueuedAt));
+            started.add(next.request);
+        }
+        return started;
+    }
+
+    private Waiting steal() {
+        Station victim = null;
+        for (Station station : stationList) {
+            if (!station.queue.isEmpty() && (victim == null || station.queue.size() > victim.queue.size())) {
+                victim = station;
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        steals++;
+        return victim.queue.pollLast();
+    }
+
+    private static final class Station {
+        private final Deque<Waiting> queue = new ArrayDeque<>();
+        private PrepRequest current;
+        private long busySince;
+        private long busyNanos;
+        private long prepared;
+
+        private int load() {
+            return queue.size() + (current == null ? 0 : 1);
+        }
+    }
+
+    private static final class Waiting {
+        private final PrepRequest request;
+        private final long enqueuedAt;
+
+        private Waiting(PrepRequest request, long enqueuedAt) {
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import lombok.Value;
+
+/**
+ * A pizza of a kitchen order whose prep has started, waiting for a prep station.
+ *
+ * @author Matt Stine
+ */
+@Value
+final class PrepRequest {
+    PizzaRef pizzaRef;
+    KitchenOrderRef kitchenOrderRef;
+}
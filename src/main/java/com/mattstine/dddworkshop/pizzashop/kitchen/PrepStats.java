@@ -0,0 +1,39 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import lombok.Value;
+
+/**
+ * Point-in-time view of the prep stations: pizzas being prepped and waiting, how often an idle station
+ * stole work from another, and for each station how many pizzas it prepped and the share of time since
+ * the {@link PrepDispatcher} started that it spent busy.
+ *
+ * @author Matt Stine
+ */
+@Value
+final class PrepStats {
+    int stations;
+    int preparing;
+    int queued;
+    long dispatched;
+    long steals;
+    /**
+     * Pizzas each station has started, indexed by station.
+     */
+    long[] prepared;
+    /**
+     * Busy time over elapsed time, between 0 and 1, indexed by station.
+     */
+    double[] utilization;
+    /**
+     * Milliseconds each started pizza spent waiting for a station.
+     */
+    Histogram waitMillis;
+
+    double getMeanUtilization() {
+        double sum = 0;
+        for (double u : utilization) {
+            sum += u;
+        }
+        return utilization.length == 0 ? 0 : sum / utilization.length;
+    }
+}
@@ -1,26 +1,36 @@
 package com.mattstine.dddworkshop.pizzashop.ordering;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.payments.Payment;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentService;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentSuccessfulEvent;
 
 /**
+ * Commands on an existing order and payment outcomes run through an {@link AggregateExecutor} keyed by
+ * the order's {@link OnlineOrderRef}, so they are applied to one order one at a time.
+ *
  * @author Matt Stine
  */
 final class DefaultOrderingService implements OrderingService {
     private final EventLog eventLog;
     private final OnlineOrderRepository repository;
     private final PaymentService paymentService;
+    private final AggregateExecutor aggregateExecutor;
 
     DefaultOrderingService(EventLog eventLog, OnlineOrderRepository repository, PaymentService paymentService) {
+        this(eventLog, repository, paymentService, AggregateExecutor.DIRECT);
+    }
+
+    DefaultOrderingService(EventLog eventLog, OnlineOrderRepository repository, PaymentService paymentService, AggregateExecutor aggregateExecutor) {
         this.eventLog = eventLog;
         this.repository = repository;
         this.paymentService = paymentService;
+        this.aggregateExecutor = aggregateExecutor;
 
-        eventLog.subscribe(new Topic("payments"), e -> {
+        eventLog.subscribe(Payment.TOPIC, e -> {
             if (e instanceof PaymentSuccessfulEvent) {
                 PaymentSuccessfulEvent pse = (PaymentSuccessfulEvent) e;
                 this.markOrderPaid(pse.getRef());
@@ -44,16 +54,20 @@ final class DefaultOrderingService implements OrderingService {
 
     @Override
     public void addPizza(OnlineOrderRef ref, Pizza pizza) {
-        OnlineOrder onlineOrder = repository.findByRef(ref);
-        onlineOrder.addPizza(pizza);
+        aggregateExecutor.executeAndWait(ref, () -> {
+            OnlineOrder onlineOrder = repository.findByRef(ref);
+            onlineOrder.addPizza(pizza);
+        });
     }
 
     @Override
     public void requestPayment(OnlineOrderRef ref) {
-        PaymentRef paymentRef = paymentService.createPaymentOf(Amount.of(10, 0));
-        paymentService.requestPaymentFor(paymentRef);
-        OnlineOrder onlineOrder = repository.findByRef(ref);
-        onlineOrder.assignPaymentRef(paymentRef);
+        aggregateExecutor.executeAndWait(ref, () -> {
+            PaymentRef paymentRef = paymentService.createPaymentOf(Amount.of(10, 0));
+            paymentService.requestPaymentFor(paymentRef);
+            OnlineOrder onlineOrder = repository.findByRef(ref);
+            onlineOrder.assignPaymentRef(paymentRef);
+        });
     }
 
     @Override
@@ -62,7 +76,7 @@ final class DefaultOrderingService implements OrderingService {
     }
 
     private void markOrderPaid(PaymentRef paymentRef) {
-        OnlineOrder onlineOrder = repository.findByPaymentRef(paymentRef);
-        onlineOrder.markPaid();
+        OnlineOrderRef ref = repository.findByPaymentRef(paymentRef).getRef();
+        aggregateExecutor.execute(ref, () -> repository.findByRef(ref).markPaid());
     }
 }
@@ -3,10 +3,12 @@ package com.mattstine.dddworkshop.pizzashop.ordering;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters.InProcessEventSourcedRepository;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Matt Stine
@@ -17,11 +19,19 @@ final class InProcessEventSourcedOnlineOrderRepository extends InProcessEventSou
 
     InProcessEventSourcedOnlineOrderRepository(EventLog eventLog,
                                                Topic topic) {
-        super(eventLog, OnlineOrderRef.class, OnlineOrder.class, OnlineOrder.OrderState.class, OnlineOrderAddedEvent.class, topic);
+        this(eventLog, topic, SnapshotStore.NONE, SnapshotPolicy.never());
+    }
+
+    InProcessEventSourcedOnlineOrderRepository(EventLog eventLog,
+                                               Topic topic,
+                                               SnapshotStore snapshotStore,
+                                               SnapshotPolicy snapshotPolicy) {
+        super(eventLog, OnlineOrderRef.class, OnlineOrder.class, OnlineOrder.OrderState.class, OnlineOrderAddedEvent.class, topic,
+                snapshotStore, snapshotPolicy);
 
-        paymentRefToOrderRef = new HashMap<>();
+        paymentRefToOrderRef = new ConcurrentHashMap<>();
 
-        eventLog.subscribe(topic, (e) -> {
+        eventLog.subscribe(topic, EventLog.FROM_BEGINNING, (e) -> {
             if (e instanceof PaymentRefAssignedEvent) {
                 @SuppressWarnings("SpellCheckingInspection")
                 PaymentRefAssignedEvent prae = (PaymentRefAssignedEvent) e;
@@ -1,7 +1,6 @@
 package com.mattstine.dddworkshop.pizzashop.ordering;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Aggregate;
@@ -24,13 +23,18 @@ import java.util.function.BiFunction;
 @Value
 @EqualsAndHashCode(callSuper = false)
 public final class OnlineOrder implements Aggregate {
+    public static final Topic TOPIC = Topic.of("ordering");
+
     Type type;
+    @NonFinal
     EventLog $eventLog;
     OnlineOrderRef ref;
     List<Pizza> pizzas;
     @NonFinal
     State state;
     @NonFinal
+    long $version;
+    @NonFinal
     PaymentRef paymentRef;
 
     @Builder
@@ -84,14 +88,15 @@ public final class OnlineOrder implements Aggregate {
          * private no-args constructor is used
          */
         assert this.pizzas != null;
-        this.pizzas.add(pizza);
 
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("ordering"), new PizzaAddedEvent(ref, pizza));
+        $eventLog.append(TOPIC, $version, new PizzaAddedEvent(ref, pizza));
+        this.pizzas.add(pizza);
+        $version++;
     }
 
     void submit() {
@@ -108,25 +113,25 @@ public final class OnlineOrder implements Aggregate {
             throw new IllegalStateException("Cannot submit OnlineOrder without at least one Pizza");
         }
 
-        this.state = State.SUBMITTED;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("ordering"), new OnlineOrderSubmittedEvent(ref));
+        $eventLog.append(TOPIC, $version, new OnlineOrderSubmittedEvent(ref));
+        this.state = State.SUBMITTED;
+        $version++;
     }
 
     void assignPaymentRef(PaymentRef paymentRef) {
-        this.paymentRef = paymentRef;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("ordering"), new PaymentRefAssignedEvent(ref, paymentRef));
+        $eventLog.append(TOPIC, $version, new PaymentRefAssignedEvent(ref, paymentRef));
+        this.paymentRef = paymentRef;
+        $version++;
     }
 
     Amount calculatePrice() {
@@ -145,14 +150,31 @@ public final class OnlineOrder implements Aggregate {
             throw new IllegalStateException("Can only mark SUBMITTED OnlineOrder as Paid");
         }
 
-        this.state = State.PAID;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("ordering"), new OnlineOrderPaidEvent(ref));
+        $eventLog.append(TOPIC, $version, new OnlineOrderPaidEvent(ref));
+        this.state = State.PAID;
+        $version++;
+    }
+
+    @Override
+    public long version() {
+        return $version;
+    }
+
+    @Override
+    public OnlineOrder atVersion(long version) {
+        this.$version = version;
+        return this;
+    }
+
+    @Override
+    public OnlineOrder boundTo(EventLog eventLog) {
+        this.$eventLog = eventLog;
+        return this;
     }
 
     @Override
@@ -171,7 +193,32 @@ public final class OnlineOrder implements Aggregate {
 
     @Override
     public OrderState state() {
-        return new OrderState(ref, state, type);
+        /*
+         * condition only occurs if reflection supporting
+         * private no-args constructor is used
+         */
+        assert this.pizzas != null;
+        return new OrderState(ref, state, type, new ArrayList<>(pizzas), paymentRef);
+    }
+
+    @Override
+    public OnlineOrder restore(AggregateState aggregateState) {
+        OrderState orderState = (OrderState) aggregateState;
+        OnlineOrder onlineOrder = OnlineOrder.builder()
+                .eventLog($eventLog)
+                .ref(orderState.getOnlineOrderRef())
+                .type(orderState.getType())
+                .build();
+
+        /*
+         * condition only occurs if reflection supporting
+         * private no-args constructor is used
+         */
+        assert onlineOrder.pizzas != null;
+        onlineOrder.pizzas.addAll(orderState.getPizzas());
+        onlineOrder.state = orderState.getState();
+        onlineOrder.paymentRef = orderState.getPaymentRef();
+        return onlineOrder;
     }
 
     enum State {
@@ -190,7 +237,7 @@ public final class OnlineOrder implements Aggregate {
                 OnlineOrderAddedEvent oae = (OnlineOrderAddedEvent) onlineOrderEvent;
                 OrderState orderState = oae.getOrderState();
                 return OnlineOrder.builder()
-                        .eventLog(InProcessEventLog.instance())
+                        .eventLog(onlineOrder.$eventLog)
                         .ref(orderState.getOnlineOrderRef())
                         .type(orderState.getType())
                         .build();
@@ -223,8 +270,14 @@ public final class OnlineOrder implements Aggregate {
 
     @Value
     static class OrderState implements AggregateState {
+        private static final long serialVersionUID = 1L;
+
         OnlineOrderRef onlineOrderRef;
         State state;
         Type type;
+        // state() always stores an ArrayList copy
+        @SuppressWarnings("serial")
+        List<Pizza> pizzas;
+        PaymentRef paymentRef;
     }
 }
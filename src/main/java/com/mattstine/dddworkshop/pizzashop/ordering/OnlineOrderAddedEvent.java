@@ -8,6 +8,8 @@ import lombok.Value;
  */
 @Value
 final class OnlineOrderAddedEvent implements OnlineOrderEvent, RepositoryAddEvent {
+    private static final long serialVersionUID = 1L;
+
     OnlineOrderRef ref;
     OnlineOrder.OrderState orderState;
 }
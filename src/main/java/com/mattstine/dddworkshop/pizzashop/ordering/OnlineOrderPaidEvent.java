@@ -7,5 +7,7 @@ import lombok.Value;
  */
 @Value
 public final class OnlineOrderPaidEvent implements OnlineOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     OnlineOrderRef ref;
 }
@@ -1,27 +1,48 @@
 package com.mattstine.dddworkshop.pizzashop.ordering;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefStringGenerator;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 /**
  * @author Matt Stine
  */
 @Value
-public final class OnlineOrderRef implements Ref {
-    public static final OnlineOrderRef IDENTITY = new OnlineOrderRef("");
-    String reference;
+@EqualsAndHashCode(exclude = "reference")
+public final class OnlineOrderRef implements IdRef {
+    private static final long serialVersionUID = 1L;
+
+    public static final OnlineOrderRef IDENTITY = new OnlineOrderRef(0, 0);
+    long id;
+    long node;
+    @NonFinal
+    transient String reference;
 
     public OnlineOrderRef() {
-        reference = RefStringGenerator.generateRefString();
+        this(RefIdGenerator.nextId(), RefIdGenerator.node());
     }
 
+    /**
+     * Rebuilds a ref from the string form returned by {@link #getReference()}.
+     */
     public OnlineOrderRef(String reference) {
-        this.reference = reference;
+        this(RefIdGenerator.parseId(reference), RefIdGenerator.parseNode(reference));
+    }
+
+    private OnlineOrderRef(long id, long node) {
+        this.id = id;
+        this.node = node;
     }
 
     @Override
     public String getReference() {
+        String reference = this.reference;
+        if (reference == null) {
+            reference = RefIdGenerator.format(id, node);
+            this.reference = reference;
+        }
         return reference;
     }
 }
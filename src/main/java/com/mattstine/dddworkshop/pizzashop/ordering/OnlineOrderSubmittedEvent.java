@@ -7,5 +7,7 @@ import lombok.Value;
  */
 @Value
 final class OnlineOrderSubmittedEvent implements OnlineOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     OnlineOrderRef ref;
 }
@@ -8,6 +8,8 @@ import lombok.Value;
  */
 @Value
 final class PaymentRefAssignedEvent implements OnlineOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     OnlineOrderRef ref;
     PaymentRef paymentRef;
 }
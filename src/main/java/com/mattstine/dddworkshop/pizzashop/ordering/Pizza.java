@@ -5,11 +5,14 @@ import lombok.Builder;
 import lombok.NonNull;
 import lombok.Value;
 
+import java.io.Serializable;
+
 /**
  * @author Matt Stine
  */
 @Value
-public final class Pizza {
+public final class Pizza implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     Size size;
 
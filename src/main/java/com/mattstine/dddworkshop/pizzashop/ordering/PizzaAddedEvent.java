@@ -10,6 +10,8 @@ import lombok.Value;
 @Value
 @AllArgsConstructor(access = AccessLevel.PACKAGE)
 final class PizzaAddedEvent implements OnlineOrderEvent {
+    private static final long serialVersionUID = 1L;
+
     private final OnlineOrderRef ref;
     private final Pizza pizza;
 }
@@ -2,7 +2,6 @@ package com.mattstine.dddworkshop.pizzashop.payments;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 
 /**
  * @author Matt Stine
@@ -17,7 +16,7 @@ final class DefaultPaymentService implements PaymentService {
         this.repository = repository;
         this.eventLog = eventLog;
 
-        eventLog.subscribe(new Topic("payment_processor"), (e) -> {
+        eventLog.subscribe(PaymentProcessor.TOPIC, (e) -> {
             if (e instanceof PaymentProcessedEvent) {
                 PaymentProcessedEvent ppe = (PaymentProcessedEvent) e;
                 if (ppe.isSuccessful()) {
@@ -1,7 +1,6 @@
 package com.mattstine.dddworkshop.pizzashop.payments;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Aggregate;
@@ -21,12 +20,17 @@ import java.util.function.BiFunction;
 @Value
 @EqualsAndHashCode(callSuper = false)
 public final class Payment implements Aggregate {
+    public static final Topic TOPIC = Topic.of("payments");
+
     Amount amount;
     PaymentProcessor $paymentProcessor;
     PaymentRef ref;
+    @NonFinal
     EventLog $eventLog;
     @NonFinal
     State state;
+    @NonFinal
+    long $version;
 
     @Builder
     private Payment(@NonNull Amount amount,
@@ -80,14 +84,14 @@ public final class Payment implements Aggregate {
         assert $paymentProcessor != null;
         $paymentProcessor.request(this);
 
-        state = State.REQUESTED;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("payments"), new PaymentRequestedEvent(this.ref));
+        $eventLog.append(TOPIC, $version, new PaymentRequestedEvent(this.ref));
+        state = State.REQUESTED;
+        $version++;
     }
 
     void markSuccessful() {
@@ -95,14 +99,14 @@ public final class Payment implements Aggregate {
             throw new IllegalStateException("Payment must be REQUESTED to mark successful");
         }
 
-        state = State.SUCCESSFUL;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("payments"), new PaymentSuccessfulEvent(ref));
+        $eventLog.append(TOPIC, $version, new PaymentSuccessfulEvent(ref));
+        state = State.SUCCESSFUL;
+        $version++;
     }
 
     void markFailed() {
@@ -110,14 +114,31 @@ public final class Payment implements Aggregate {
             throw new IllegalStateException("Payment must be REQUESTED to mark failed");
         }
 
-        state = State.FAILED;
-
         /*
          * condition only occurs if reflection supporting
          * private no-args constructor is used
          */
         assert $eventLog != null;
-        $eventLog.publish(new Topic("payments"), new PaymentFailedEvent(ref));
+        $eventLog.append(TOPIC, $version, new PaymentFailedEvent(ref));
+        state = State.FAILED;
+        $version++;
+    }
+
+    @Override
+    public long version() {
+        return $version;
+    }
+
+    @Override
+    public Payment boundTo(EventLog eventLog) {
+        this.$eventLog = eventLog;
+        return this;
+    }
+
+    @Override
+    public Payment atVersion(long version) {
+        this.$version = version;
+        return this;
     }
 
     @Override
@@ -140,6 +161,19 @@ public final class Payment implements Aggregate {
         return new PaymentState(state, amount, ref);
     }
 
+    @Override
+    public Payment restore(AggregateState aggregateState) {
+        PaymentState paymentState = (PaymentState) aggregateState;
+        Payment payment = Payment.builder()
+                .amount(paymentState.getAmount())
+                .paymentProcessor(DummyPaymentProcessor.instance())
+                .ref(paymentState.getRef())
+                .eventLog($eventLog)
+                .build();
+        payment.state = paymentState.getState();
+        return payment;
+    }
+
     public enum State {
         NEW, REQUESTED, SUCCESSFUL, FAILED
     }
@@ -154,7 +188,7 @@ public final class Payment implements Aggregate {
                         .amount(paymentState.getAmount())
                         .paymentProcessor(DummyPaymentProcessor.instance())
                         .ref(paymentState.getRef())
-                        .eventLog(InProcessEventLog.instance())
+                        .eventLog(payment.$eventLog)
                         .build();
             } else if (paymentEvent instanceof PaymentRequestedEvent) {
                 payment.state = State.REQUESTED;
@@ -172,6 +206,8 @@ public final class Payment implements Aggregate {
 
     @Value
     static class PaymentState implements AggregateState {
+        private static final long serialVersionUID = 1L;
+
         State state;
         Amount amount;
         PaymentRef ref;
@@ -8,6 +8,8 @@ import lombok.Value;
  */
 @Value
 final class PaymentAddedEvent implements PaymentEvent, RepositoryAddEvent {
+    private static final long serialVersionUID = 1L;
+
     PaymentRef ref;
     Payment.PaymentState paymentState;
 }
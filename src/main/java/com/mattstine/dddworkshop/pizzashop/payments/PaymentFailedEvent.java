@@ -7,5 +7,7 @@ import lombok.Value;
  */
 @Value
 final class PaymentFailedEvent implements PaymentEvent {
+    private static final long serialVersionUID = 1L;
+
     PaymentRef ref;
 }
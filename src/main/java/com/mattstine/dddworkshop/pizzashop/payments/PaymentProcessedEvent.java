@@ -7,6 +7,8 @@ import lombok.Value;
  */
 @Value
 final class PaymentProcessedEvent implements PaymentEvent {
+    private static final long serialVersionUID = 1L;
+
     PaymentRef ref;
     Status status;
 
@@ -1,13 +1,15 @@
 package com.mattstine.dddworkshop.pizzashop.payments;
 
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 
 /**
  * @author Matt Stine
  */
 interface PaymentProcessor {
+    Topic TOPIC = Topic.of("payment_processor");
+
     PaymentProcessor IDENTITY = payment -> {
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException();
     };
 
     @SuppressWarnings({"EmptyMethod", "unused"})
@@ -1,23 +1,41 @@
 package com.mattstine.dddworkshop.pizzashop.payments;
 
-import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefStringGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 /**
  * @author Matt Stine
  */
 @Value
-public final class PaymentRef implements Ref {
-    public static final PaymentRef IDENTITY = new PaymentRef("");
-    String reference;
+@EqualsAndHashCode(exclude = "reference")
+public final class PaymentRef implements IdRef {
+    private static final long serialVersionUID = 1L;
+
+    public static final PaymentRef IDENTITY = new PaymentRef(0, 0);
+    long id;
+    long node;
+    @NonFinal
+    transient String reference;
 
     public PaymentRef() {
-        reference = RefStringGenerator.generateRefString();
+        this(RefIdGenerator.nextId(), RefIdGenerator.node());
+    }
+
+    private PaymentRef(long id, long node) {
+        this.id = id;
+        this.node = node;
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private PaymentRef(String reference) {
-        this.reference = reference;
+    @Override
+    public String getReference() {
+        String reference = this.reference;
+        if (reference == null) {
+            reference = RefIdGenerator.format(id, node);
+            this.reference = reference;
+        }
+        return reference;
     }
 }
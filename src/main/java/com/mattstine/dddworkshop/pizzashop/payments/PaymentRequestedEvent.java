@@ -7,5 +7,7 @@ import lombok.Value;
  */
 @Value
 final class PaymentRequestedEvent implements PaymentEvent {
+    private static final long serialVersionUID = 1L;
+
     PaymentRef ref;
 }
@@ -7,5 +7,7 @@ import lombok.Value;
  */
 @Value
 public final class PaymentSuccessfulEvent implements PaymentEvent {
+    private static final long serialVersionUID = 1L;
+
     PaymentRef ref;
 }
@@ -0,0 +1,74 @@
+package com.mattstine.dddworkshop.pizzashop.delivery;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrderRef;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InProcessEventSourcedDeliveryOrderRepository} operations against a topic already holding
+ * {@code aggregatesOnTopic} delivery orders.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DeliveryOrderRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int aggregatesOnTopic;
+
+    private DeliveryOrderRepository repository;
+    private DeliveryOrderRef[] refs;
+    private KitchenOrderRef[] kitchenOrderRefs;
+    private DeliveryOrder newOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        repository = new InProcessEventSourcedDeliveryOrderRepository(eventLog, Topic.of("delivery_orders"));
+
+        refs = new DeliveryOrderRef[aggregatesOnTopic];
+        kitchenOrderRefs = new KitchenOrderRef[aggregatesOnTopic];
+        for (int i = 0; i < aggregatesOnTopic; i++) {
+            refs[i] = repository.nextIdentity();
+            DeliveryOrder deliveryOrder = deliveryOrder(eventLog, refs[i]);
+            repository.add(deliveryOrder);
+            kitchenOrderRefs[i] = deliveryOrder.getKitchenOrderRef();
+        }
+        newOrder = deliveryOrder(eventLog, repository.nextIdentity());
+    }
+
+    private DeliveryOrder deliveryOrder(InProcessEventLog eventLog, DeliveryOrderRef ref) {
+        return DeliveryOrder.builder()
+                .ref(ref)
+                .kitchenOrderRef(new KitchenOrderRef())
+                .onlineOrderRef(new OnlineOrderRef())
+                .pizza(DeliveryOrder.Pizza.builder().size(DeliveryOrder.Pizza.Size.MEDIUM).build())
+                .eventLog(eventLog)
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(newOrder);
+    }
+
+    @Benchmark
+    public DeliveryOrder findByRef() {
+        return repository.findByRef(refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+    }
+
+    @Benchmark
+    public DeliveryOrder findByKitchenOrderRef() {
+        return repository.findByKitchenOrderRef(kitchenOrderRefs[ThreadLocalRandom.current().nextInt(kitchenOrderRefs.length)]);
+    }
+}
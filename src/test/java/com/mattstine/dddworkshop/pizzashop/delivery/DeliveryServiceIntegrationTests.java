@@ -33,7 +33,7 @@ public class DeliveryServiceIntegrationTests {
 	public void setUp() {
 		eventLog = InProcessEventLog.instance();
 		DeliveryOrderRepository deliveryOrderRepository = new InProcessEventSourcedDeliveryOrderRepository(eventLog,
-				new Topic("delivery_orders"));
+				Topic.of("delivery_orders"));
 		orderingService = mock(OrderingService.class);
 		kitchenService = mock(KitchenService.class);
 		deliveryService = new DeliveryService(eventLog, deliveryOrderRepository, orderingService, kitchenService);
@@ -68,7 +68,7 @@ public class DeliveryServiceIntegrationTests {
 		when(orderingService.findByRef(onlineOrderRef)).thenReturn(onlineOrder);
 		when(kitchenService.findKitchenOrderByRef(kitchenOrderRef)).thenReturn(kitchenOrder);
 
-		eventLog.publish(new Topic("kitchen_orders"), kitchenOrderAssemblyFinishedEvent);
+		eventLog.publish(Topic.of("kitchen_orders"), kitchenOrderAssemblyFinishedEvent);
 
 		DeliveryOrder deliveryOrder = deliveryService.findDeliveryOrderByKitchenOrderRef(kitchenOrderRef);
 		assertThat(deliveryOrder).isNotNull();
@@ -38,7 +38,7 @@ public class DeliveryServiceTests {
 	@Test
 	@Category(Lab7Tests.class)
 	public void subscribes_to_kitchen_orders_topic() {
-		verify(eventLog).subscribe(eq(new Topic("kitchen_orders")), isA(EventHandler.class));
+		verify(eventLog).subscribe(eq(Topic.of("kitchen_orders")), isA(EventHandler.class));
 	}
 
 	@Test
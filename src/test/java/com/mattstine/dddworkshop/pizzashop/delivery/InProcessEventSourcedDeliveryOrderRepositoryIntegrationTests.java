@@ -26,7 +26,7 @@ public class InProcessEventSourcedDeliveryOrderRepositoryIntegrationTests {
 	public void setUp() {
 		eventLog = InProcessEventLog.instance();
 		repository = new InProcessEventSourcedDeliveryOrderRepository(eventLog,
-				new Topic("delivery_orders"));
+				Topic.of("delivery_orders"));
 		DeliveryOrderRef ref = repository.nextIdentity();
 		kitchenOrderRef = new KitchenOrderRef();
 		deliveryOrder = DeliveryOrder.builder()
@@ -29,7 +29,7 @@ public class InProcessEventSourcedDeliveryOrderRepositoryTests {
 	public void setUp() {
 		eventLog = mock(EventLog.class);
 		repository = new InProcessEventSourcedDeliveryOrderRepository(eventLog,
-				new Topic("delivery_orders"));
+				Topic.of("delivery_orders"));
 		ref = repository.nextIdentity();
 		deliveryOrder = DeliveryOrder.builder()
 				.ref(ref)
@@ -51,7 +51,7 @@ public class InProcessEventSourcedDeliveryOrderRepositoryTests {
 	public void add_fires_event() {
 		repository.add(deliveryOrder);
 		DeliveryOrderAddedEvent event = new DeliveryOrderAddedEvent(ref, deliveryOrder.state());
-		verify(eventLog).publish(eq(new Topic("delivery_orders")), eq(event));
+		verify(eventLog).append(eq(Topic.of("delivery_orders")), eq(0L), eq(event));
 	}
 
 	@Test
@@ -59,7 +59,7 @@ public class InProcessEventSourcedDeliveryOrderRepositoryTests {
 	public void find_by_ref_hydrates_added_order() {
 		repository.add(deliveryOrder);
 
-		when(eventLog.eventsBy(new Topic("delivery_orders")))
+		when(eventLog.eventsBy(Topic.of("delivery_orders"), ref))
 				.thenReturn(Collections.singletonList(new DeliveryOrderAddedEvent(ref, deliveryOrder.state())));
 
 		assertThat(repository.findByRef(ref)).isEqualTo(deliveryOrder);
@@ -0,0 +1,82 @@
+package com.mattstine.dddworkshop.pizzashop.delivery;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenBenchmarkSupport;
+import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenOrder;
+import com.mattstine.dddworkshop.pizzashop.kitchen.KitchenService;
+import com.mattstine.dddworkshop.pizzashop.kitchen.Pizza;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingBenchmarkSupport;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
+import com.mattstine.dddworkshop.pizzashop.payments.PaymentsBenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One delivery order flowing end to end through every context: ordering, payment, kitchen prep and
+ * bake, and delivery. {@code ordersInHistory} complete flows are run first, so that the cost can be
+ * tracked as the event log grows.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderToDeliveryFlowBenchmark {
+    private static final com.mattstine.dddworkshop.pizzashop.ordering.Pizza MEDIUM_PIZZA =
+            com.mattstine.dddworkshop.pizzashop.ordering.Pizza.builder()
+                    .size(com.mattstine.dddworkshop.pizzashop.ordering.Pizza.Size.MEDIUM)
+                    .build();
+
+    @Param({"0", "10000"})
+    int ordersInHistory;
+
+    private InProcessEventLog eventLog;
+    private OrderingService orderingService;
+    private KitchenService kitchenService;
+    private DeliveryService deliveryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventLog = InProcessEventLog.instance();
+        orderingService = OrderingBenchmarkSupport.orderingService(eventLog,
+                PaymentsBenchmarkSupport.paymentService(eventLog));
+        kitchenService = KitchenBenchmarkSupport.kitchenService(eventLog, orderingService);
+        deliveryService = new DeliveryService(eventLog,
+                new InProcessEventSourcedDeliveryOrderRepository(eventLog, Topic.of("delivery_orders")),
+                orderingService,
+                kitchenService);
+
+        for (int i = 0; i < ordersInHistory; i++) {
+            orderToDelivery();
+        }
+    }
+
+    @Benchmark
+    public DeliveryOrder orderToDelivery() {
+        OnlineOrderRef ref = orderingService.createOrder(OnlineOrder.Type.DELIVERY);
+        orderingService.addPizza(ref, MEDIUM_PIZZA);
+        orderingService.addPizza(ref, MEDIUM_PIZZA);
+        OrderingBenchmarkSupport.submit(orderingService.findByRef(ref));
+        orderingService.requestPayment(ref);
+        PaymentsBenchmarkSupport.approve(eventLog, orderingService.findByRef(ref).getPaymentRef());
+
+        KitchenOrder kitchenOrder = kitchenService.findKitchenOrderByOnlineOrderRef(ref);
+        for (Pizza pizza : kitchenService.findPizzasByKitchenOrderRef(kitchenOrder.getRef())) {
+            kitchenService.finishPizzaPrep(pizza.getRef());
+            kitchenService.removePizzaFromOven(pizza.getRef());
+        }
+
+        DeliveryOrder deliveryOrder = deliveryService.findDeliveryOrderByKitchenOrderRef(kitchenOrder.getRef());
+        if (deliveryOrder == null) {
+            throw new IllegalStateException("Cannot find DeliveryOrder for KitchenOrder: " + kitchenOrder.getRef());
+        }
+        return deliveryOrder;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author Matt Stine
+ */
+public class RefIdGeneratorTests {
+
+    @Test
+    public void ids_are_strictly_increasing() {
+        long previous = RefIdGenerator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = RefIdGenerator.nextId();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void ids_are_unique_across_threads() throws InterruptedException {
+        int threads = 8;
+        int idsPerThread = 10_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < idsPerThread; i++) {
+                    ids.add(RefIdGenerator.nextId());
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(ids).hasSize(threads * idsPerThread);
+    }
+
+    @Test
+    public void formats_as_upper_case_uuid_string() {
+        String reference = RefIdGenerator.format(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+
+        assertThat(reference).isEqualTo("01234567-89AB-CDEF-FEDC-BA9876543210");
+    }
+
+    @Test
+    public void parses_formatted_reference() {
+        long id = RefIdGenerator.nextId();
+        String reference = RefIdGenerator.format(id, RefIdGenerator.node());
+
+        assertThat(RefIdGenerator.parseId(reference)).isEqualTo(id);
+        assertThat(RefIdGenerator.parseNode(reference)).isEqualTo(RefIdGenerator.node());
+    }
+
+    @Test
+    public void all_zero_id_formats_as_empty_reference() {
+        assertThat(RefIdGenerator.format(0, 0)).isEmpty();
+        assertThat(RefIdGenerator.parseId("")).isZero();
+        assertThat(RefIdGenerator.parseNode("")).isZero();
+    }
+
+    @Test
+    public void recognizes_only_the_formatted_form() {
+        assertThat(RefIdGenerator.isFormatted(RefIdGenerator.format(RefIdGenerator.nextId(), RefIdGenerator.node()))).isTrue();
+        assertThat(RefIdGenerator.isFormatted("")).isTrue();
+        assertThat(RefIdGenerator.isFormatted("01234567-89ab-cdef-fedc-ba9876543210")).isFalse();
+        assertThat(RefIdGenerator.isFormatted("pizza-1")).isFalse();
+    }
+
+    @Test
+    public void rejects_malformed_reference() {
+        assertThatIllegalArgumentException().isThrownBy(() -> RefIdGenerator.parseId("not-a-reference"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of minting a reference string, paid by every {@code nextIdentity()}. Run with {@code -t}
+ * above one to see contention on the shared random source.
+ *
+ * @author Matt Stine
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefStringGeneratorBenchmark {
+
+    @Benchmark
+    public String generateRefString() {
+        return RefStringGenerator.generateRefString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums {@code amounts} prices with {@link Amount#plus}, the way order totals are calculated.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int amounts;
+
+    private List<Amount> prices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        prices = new ArrayList<>(amounts);
+        for (int i = 0; i < amounts; i++) {
+            prices.add(Amount.of(i % 20, i % 100));
+        }
+    }
+
+    @Benchmark
+    public Amount reduce() {
+        return prices.stream().reduce(Amount.IDENTITY, Amount::plus);
+    }
+}
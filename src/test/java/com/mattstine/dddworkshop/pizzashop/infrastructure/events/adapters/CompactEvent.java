@@ -0,0 +1,43 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small aggregate event with a hand-written serializer, used by benchmarks to measure the durable
+ * log without Java serialization overhead.
+ *
+ * @author Matt Stine
+ */
+@Value
+class CompactEvent implements AggregateEvent {
+    static final EventSerializer SERIALIZER = new EventSerializer() {
+        @Override
+        public byte[] serialize(Event event) {
+            return ((CompactEvent) event).getRef().getReference().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Event deserialize(ByteBuffer payload) {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            return new CompactEvent(new CompactRef(new String(bytes, StandardCharsets.UTF_8)));
+        }
+    };
+
+    CompactRef ref;
+
+    static CompactEvent sample() {
+        return new CompactEvent(new CompactRef("5B9E6B3C-0E43-4F43-A0F1-2D6C8E0C5A11"));
+    }
+
+    @Value
+    static class CompactRef implements Ref {
+        String reference;
+    }
+}
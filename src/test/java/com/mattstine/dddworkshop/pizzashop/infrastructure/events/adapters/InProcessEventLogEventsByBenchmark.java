@@ -0,0 +1,59 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads from a topic of {@code eventsOnTopic} events spread across refs with ten events each:
+ * a full replay of the topic, and the stream of a single ref.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InProcessEventLogEventsByBenchmark {
+    private static final int EVENTS_PER_REF = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    int eventsOnTopic;
+
+    private final Topic topic = Topic.of("events");
+    private InProcessEventLog eventLog;
+    private CompactEvent.CompactRef[] refs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventLog = new InProcessEventLog();
+        refs = new CompactEvent.CompactRef[eventsOnTopic / EVENTS_PER_REF];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = new CompactEvent.CompactRef(String.format("%036d", i));
+        }
+        for (int i = 0; i < eventsOnTopic; i++) {
+            eventLog.publish(topic, new CompactEvent(refs[i % refs.length]));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void eventsByTopic(Blackhole blackhole) {
+        for (Event event : eventLog.eventsBy(topic)) {
+            blackhole.consume(event);
+        }
+    }
+
+    @Benchmark
+    public Event eventsByRef() {
+        List<Event> events = eventLog.eventsBy(topic, refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+        return events.get(events.size() - 1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded publish cost, meant to be run with {@code -prof gc}. {@code internedTopic} publishes
+ * a pre-allocated event through a {@link Topic#of(String) constant handle}, so {@code gc.alloc.rate.norm}
+ * is only the log's amortized storage growth; {@code newTopicPerPublish} is the old
+ * {@code Topic.of(name)}-per-call pattern.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InProcessEventLogPublishAllocationBenchmark {
+    private static final Event EVENT = new Event() {
+    };
+    private static final Topic TOPIC = Topic.of("allocation");
+
+    private InProcessEventLog eventLog;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        eventLog = new InProcessEventLog();
+    }
+
+    @Benchmark
+    public void internedTopic() {
+        eventLog.publish(TOPIC, EVENT);
+    }
+
+    @Benchmark
+    public void newTopicPerPublish() {
+        eventLog.publish(Topic.of("allocation"), EVENT);
+    }
+}
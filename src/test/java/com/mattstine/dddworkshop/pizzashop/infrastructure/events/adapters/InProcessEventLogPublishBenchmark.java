@@ -0,0 +1,70 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded publish throughput. {@code independentTopics} gives every benchmark thread its own
+ * topic and should scale with the thread count ({@code -t 1,2,4,8}); {@code sharedTopic} is the
+ * contended baseline. In {@code sharedTopicPerAggregate} every thread publishes events of its own
+ * aggregate to one topic, which spreads across partitions when {@code partitions} is above 1.
+ *
+ * @author Matt Stine
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class InProcessEventLogPublishBenchmark {
+    private static final Event EVENT = new Event() {
+    };
+
+    @State(Scope.Benchmark)
+    public static class Log {
+        private final AtomicInteger threadIds = new AtomicInteger();
+        InProcessEventLog eventLog;
+        Topic sharedTopic = Topic.of("shared");
+
+        @Param({"1", "4"})
+        int partitions;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            eventLog = InProcessEventLog.withPartitions(partitions);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadTopic {
+        Topic topic;
+        Event aggregateEvent;
+
+        @Setup(Level.Trial)
+        public void setUp(Log log) {
+            int threadId = log.threadIds.getAndIncrement();
+            topic = Topic.of("topic-" + threadId);
+            aggregateEvent = new CompactEvent(new CompactEvent.CompactRef("aggregate-" + threadId));
+        }
+    }
+
+    @Benchmark
+    public void independentTopics(Log log, ThreadTopic threadTopic) {
+        log.eventLog.publish(threadTopic.topic, EVENT);
+    }
+
+    @Benchmark
+    public void sharedTopic(Log log) {
+        log.eventLog.publish(log.sharedTopic, EVENT);
+    }
+
+    @Benchmark
+    public void sharedTopicPerAggregate(Log log, ThreadTopic threadTopic) {
+        log.eventLog.publish(log.sharedTopic, threadTopic.aggregateEvent);
+    }
+}
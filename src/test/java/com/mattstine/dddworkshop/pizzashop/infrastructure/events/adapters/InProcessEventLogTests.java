@@ -1,13 +1,34 @@
 package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
 import lombok.Value;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Matt Stine
@@ -27,7 +48,7 @@ public class InProcessEventLogTests {
 
     @Test
     public void shouldAddSubscriber() {
-        Topic topic = new Topic("some-topic");
+        Topic topic = Topic.of("some-topic");
         eventLog.subscribe(topic, System.out::println);
 
         assertThat(eventLog.getNumberOfSubscribers(topic)).isEqualTo(1);
@@ -39,7 +60,7 @@ public class InProcessEventLogTests {
         VerifiableEventHandler handler = VerifiableEventHandler.of(e -> {
         });
 
-        Topic topic = new Topic("some-topic");
+        Topic topic = Topic.of("some-topic");
         eventLog.subscribe(topic, handler);
         eventLog.publish(topic, new Event() {
         });
@@ -49,13 +70,776 @@ public class InProcessEventLogTests {
 
     @Test
     public void shouldAppendToTopicOnPublish() {
-        Topic topic = new Topic("some-topic");
+        Topic topic = Topic.of("some-topic");
         TestEvent testEvent = new TestEvent();
         eventLog.publish(topic, testEvent);
         assertThat(eventLog.eventsBy(topic)).contains(testEvent);
     }
 
+    @Test
+    public void shouldIndexAggregateEventsByRefOnPublish() {
+        Topic topic = Topic.of("some-indexed-topic");
+        TestRef ref = new TestRef("one");
+        TestAggregateEvent first = new TestAggregateEvent(ref, 1);
+        TestAggregateEvent other = new TestAggregateEvent(new TestRef("two"), 1);
+        TestAggregateEvent second = new TestAggregateEvent(ref, 2);
+
+        eventLog.publish(topic, first);
+        eventLog.publish(topic, other);
+        eventLog.publish(topic, second);
+
+        assertThat(eventLog.eventsBy(topic, ref)).containsExactly(first, second);
+        assertThat(eventLog.eventsBy(topic, new TestRef("unknown"))).isEmpty();
+    }
+
+    @Test
+    public void eventsByShouldReturnImmutableSnapshot() {
+        Topic topic = Topic.of("some-snapshot-topic");
+        TestEvent first = new TestEvent();
+        eventLog.publish(topic, first);
+
+        List<Event> snapshot = eventLog.eventsBy(topic);
+        eventLog.publish(topic, new TestEvent());
+
+        assertThat(snapshot).containsExactly(first);
+        assertThatThrownBy(() -> snapshot.add(new TestEvent()))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void shouldNotLoseEventsPublishedConcurrently() throws Exception {
+        InProcessEventLog isolatedLog = new InProcessEventLog();
+        int threads = 8;
+        int eventsPerThread = 10_000;
+        Topic shared = Topic.of("shared");
+        AtomicInteger delivered = new AtomicInteger();
+        isolatedLog.subscribe(shared, e -> delivered.incrementAndGet());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Topic own = Topic.of("own-" + t);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < eventsPerThread; i++) {
+                    isolatedLog.publish(shared, new TestEvent());
+                    isolatedLog.publish(own, new TestEvent());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(isolatedLog.eventsBy(shared)).hasSize(threads * eventsPerThread);
+        assertThat(isolatedLog.eventsBy(Topic.of("own-0"))).hasSize(eventsPerThread);
+        assertThat(delivered.get()).isEqualTo(threads * eventsPerThread);
+    }
+
+    @Test
+    public void asynchronousPublishShouldReturnBeforeSubscribersRun() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        InProcessEventLog asyncLog = InProcessEventLog.withAsynchronousDispatch(executor);
+        Topic topic = Topic.of("async-topic");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(1);
+        asyncLog.subscribe(topic, e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handled.countDown();
+        });
+
+        asyncLog.publish(topic, new TestEvent());
+
+        assertThat(asyncLog.eventsBy(topic)).hasSize(1);
+        assertThat(handled.getCount()).isEqualTo(1);
+        release.countDown();
+        assertThat(handled.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+    }
+
+    @Test
+    public void asynchronousDispatchShouldPreserveTopicOrderPerSubscriber() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        InProcessEventLog asyncLog = InProcessEventLog.withAsynchronousDispatch(executor);
+        Topic topic = Topic.of("ordered-topic");
+        int events = 1_000;
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2 * events);
+        asyncLog.subscribe(topic, e -> {
+            first.add(((TestAggregateEvent) e).getSequence());
+            done.countDown();
+        });
+        asyncLog.subscribe(topic, e -> {
+            second.add(((TestAggregateEvent) e).getSequence());
+            done.countDown();
+        });
+
+        TestRef ref = new TestRef("ordered");
+        for (int i = 0; i < events; i++) {
+            asyncLog.publish(topic, new TestAggregateEvent(ref, i));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first).isSorted().hasSize(events);
+        assertThat(second).isSorted().hasSize(events);
+        executor.shutdown();
+    }
+
+    @Test
+    public void virtualThreadDispatchShouldRunSubscribersOnVirtualThreadsInTopicOrder() throws Exception {
+        InProcessEventLog virtualLog = InProcessEventLog.withVirtualThreadDispatch(4);
+        Topic topic = Topic.of("virtual-topic");
+        int events = 1_000;
+        List<Integer> received = new ArrayList<>();
+        AtomicBoolean platformThread = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(events);
+        virtualLog.subscribe(topic, e -> {
+            if (!Thread.currentThread().isVirtual()) {
+                platformThread.set(true);
+            }
+            received.add(((TestAggregateEvent) e).getSequence());
+            done.countDown();
+        });
+
+        TestRef ref = new TestRef("virtual");
+        for (int i = 0; i < events; i++) {
+            virtualLog.publish(topic, new TestAggregateEvent(ref, i));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(virtualLog.isAsynchronous()).isTrue();
+        assertThat(platformThread).isFalse();
+        assertThat(received).isSorted().hasSize(events);
+    }
+
+    @Test
+    public void catchUpSubscriptionShouldReplayFromOffsetThenDeliverLive() {
+        InProcessEventLog isolatedLog = new InProcessEventLog();
+        Topic topic = Topic.of("catch-up-topic");
+        TestRef ref = new TestRef("catch-up");
+        for (int i = 0; i < 3; i++) {
+            isolatedLog.publish(topic, new TestAggregateEvent(ref, i));
+        }
+        List<Integer> received = new ArrayList<>();
+
+        isolatedLog.subscribe(topic, 1, e -> received.add(((TestAggregateEvent) e).getSequence()));
+        isolatedLog.publish(topic, new TestAggregateEvent(ref, 3));
+
+        assertThat(received).containsExactly(1, 2, 3);
+        assertThat(isolatedLog.getNumberOfSubscribers(topic)).isEqualTo(1);
+    }
+
+    @Test
+    public void catchUpSubscriptionShouldRejectOffsetPastEnd() {
+        InProcessEventLog isolatedLog = new InProcessEventLog();
+        Topic topic = Topic.of("catch-up-topic");
+        isolatedLog.publish(topic, new TestEvent());
+
+        assertThatIllegalArgumentException().isThrownBy(() -> isolatedLog.subscribe(topic, 2, e -> {
+        }));
+        assertThat(isolatedLog.getNumberOfSubscribers(topic)).isZero();
+    }
+
+    @Test
+    public void catchUpSubscriptionShouldHandOverWithoutGapsOrDuplicates() throws Exception {
+        assertSeamlessHandOver(new InProcessEventLog(), () -> {
+        });
+    }
+
+    @Test
+    public void asynchronousCatchUpSubscriptionShouldHandOverWithoutGapsOrDuplicates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        assertSeamlessHandOver(InProcessEventLog.withAsynchronousDispatch(executor), executor::shutdown);
+    }
+
+    @Test
+    public void partitionedCatchUpSubscriptionShouldHandOverWithoutGapsOrDuplicates() throws Exception {
+        assertSeamlessHandOver(InProcessEventLog.withPartitions(4), () -> {
+        });
+    }
+
+    @Test
+    public void partitionedAsynchronousCatchUpSubscriptionShouldHandOverWithoutGapsOrDuplicates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        assertSeamlessHandOver(InProcessEventLog.withAsynchronousDispatch(executor, 4), executor::shutdown);
+    }
+
+    @Test
+    public void partitionedLogShouldKeepEachAggregateOrderedAndMergeInPublicationOrder() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("partitioned-topic");
+        TestRef[] refs = refs("partitioned", 16);
+        List<Event> published = new ArrayList<>();
+        for (int i = 0; i < 160; i++) {
+            TestAggregateEvent event = new TestAggregateEvent(refs[i % refs.length], i);
+            partitionedLog.publish(topic, event);
+            published.add(event);
+        }
+
+        assertThat(partitionedLog.getNumberOfPartitions(topic)).isEqualTo(4);
+        assertThat(partitionedLog.eventsBy(topic)).containsExactlyElementsOf(published);
+        for (TestRef ref : refs) {
+            assertThat(sequences(partitionedLog.eventsBy(topic, ref))).hasSize(10).isSorted();
+        }
+    }
+
+    @Test
+    public void partitionedLogShouldMergeConcurrentPublishesIntoAStableOrder() throws Exception {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("partitioned-concurrent-topic");
+        int threads = 4;
+        int eventsPerThread = 10_000;
+        CountDownLatch halfway = new CountDownLatch(threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            TestRef ref = new TestRef("publisher-" + t);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    partitionedLog.publish(topic, new TestAggregateEvent(ref, i));
+                    if (i == eventsPerThread / 2) {
+                        halfway.countDown();
+                    }
+                }
+                return null;
+            }));
+        }
+        halfway.await();
+        List<Event> early = partitionedLog.eventsBy(topic);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Event> merged = partitionedLog.eventsBy(topic);
+        assertThat(merged).hasSize(threads * eventsPerThread);
+        assertThat(merged.subList(0, early.size())).containsExactlyElementsOf(early);
+        for (int t = 0; t < threads; t++) {
+            TestRef ref = new TestRef("publisher-" + t);
+            List<Integer> ofRef = new ArrayList<>();
+            merged.stream()
+                    .map(e -> (TestAggregateEvent) e)
+                    .filter(e -> e.getRef().equals(ref))
+                    .forEach(e -> ofRef.add(e.getSequence()));
+            assertThat(ofRef).hasSize(eventsPerThread).isSorted();
+        }
+    }
+
+    @Test
+    public void partitionSubscribersShouldEachReceiveAnOrderedStreamOfTheirOwnPartition() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        InProcessEventLog partitionedLog = InProcessEventLog.withAsynchronousDispatch(executor, 4);
+        Topic topic = Topic.of("partition-subscribers-topic");
+        TestRef[] refs = refs("partition-subscriber", 16);
+        int events = 1_600;
+        List<List<TestAggregateEvent>> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(events);
+        for (int p = 0; p < 4; p++) {
+            List<TestAggregateEvent> partition = new ArrayList<>();
+            received.add(partition);
+            partitionedLog.subscribeToPartition(topic, p, e -> {
+                partition.add((TestAggregateEvent) e);
+                done.countDown();
+            });
+        }
+
+        for (int i = 0; i < events; i++) {
+            partitionedLog.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(partitionedLog.getNumberOfSubscribers(topic)).isEqualTo(4);
+        for (TestRef ref : refs) {
+            assertThat(received.stream().filter(partition -> partition.stream().anyMatch(e -> e.getRef().equals(ref))))
+                    .hasSize(1);
+        }
+        for (List<TestAggregateEvent> partition : received) {
+            assertThat(sequences(new ArrayList<>(partition))).isSorted();
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void partitionSubscriptionShouldRejectUnknownPartition() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> partitionedLog.subscribeToPartition(Topic.of("some-topic"), 4, e -> {
+        }));
+    }
+
+    @Test
+    public void groupMembersShouldSharePartitionsSoEachEventReachesOneMember() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(8);
+        Topic topic = Topic.of("group-topic");
+        TestRef[] refs = refs("group", 32);
+        List<List<TestAggregateEvent>> members = new ArrayList<>();
+        for (int m = 0; m < 3; m++) {
+            List<TestAggregateEvent> member = new ArrayList<>();
+            members.add(member);
+            partitionedLog.subscribeToGroup(topic, "kitchen", e -> member.add((TestAggregateEvent) e));
+        }
+        AtomicInteger everyEvent = new AtomicInteger();
+        partitionedLog.subscribe(topic, e -> everyEvent.incrementAndGet());
+
+        int events = 320;
+        for (int i = 0; i < events; i++) {
+            partitionedLog.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+        }
+
+        assertThat(everyEvent.get()).isEqualTo(events);
+        assertThat(members.stream().mapToInt(List::size).sum()).isEqualTo(events);
+        assertThat(members).allSatisfy(member -> assertThat(member).isNotEmpty());
+        for (TestRef ref : refs) {
+            assertThat(members.stream().filter(member -> member.stream().anyMatch(e -> e.getRef().equals(ref))))
+                    .hasSize(1);
+        }
+        assertThat(partitionedLog.getNumberOfSubscribers(topic)).isEqualTo(4);
+    }
+
+    @Test
+    public void groupShouldRebalanceWhenMembersLeaveAndJoin() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("rebalance-topic");
+        TestRef[] refs = refs("rebalance", 16);
+        List<Event> first = new ArrayList<>();
+        List<Event> second = new ArrayList<>();
+        EventHandler firstMember = first::add;
+        EventHandler secondMember = second::add;
+        partitionedLog.subscribeToGroup(topic, "group", firstMember);
+        partitionedLog.subscribeToGroup(topic, "group", secondMember);
+
+        partitionedLog.unsubscribeFromGroup(topic, "group", firstMember);
+        for (TestRef ref : refs) {
+            partitionedLog.publish(topic, new TestAggregateEvent(ref, 0));
+        }
+        assertThat(first).isEmpty();
+        assertThat(second).hasSize(refs.length);
+
+        partitionedLog.subscribeToGroup(topic, "group", firstMember);
+        for (TestRef ref : refs) {
+            partitionedLog.publish(topic, new TestAggregateEvent(ref, 1));
+        }
+        assertThat(first).isNotEmpty();
+        assertThat(first.size() + second.size()).isEqualTo(2 * refs.length);
+
+        partitionedLog.unsubscribeFromGroup(topic, "group", firstMember);
+        partitionedLog.unsubscribeFromGroup(topic, "group", secondMember);
+        partitionedLog.publish(topic, new TestAggregateEvent(refs[0], 2));
+        assertThat(first.size() + second.size()).isEqualTo(2 * refs.length);
+        assertThat(partitionedLog.getNumberOfSubscribers(topic)).isZero();
+    }
+
+    @Test
+    public void separateGroupsShouldEachReceiveEveryEvent() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("two-groups-topic");
+        AtomicInteger kitchen = new AtomicInteger();
+        AtomicInteger delivery = new AtomicInteger();
+        partitionedLog.subscribeToGroup(topic, "kitchen", e -> kitchen.incrementAndGet());
+        partitionedLog.subscribeToGroup(topic, "delivery", e -> delivery.incrementAndGet());
+
+        for (TestRef ref : refs("two-groups", 10)) {
+            partitionedLog.publish(topic, new TestAggregateEvent(ref, 0));
+        }
+
+        assertThat(kitchen.get()).isEqualTo(10);
+        assertThat(delivery.get()).isEqualTo(10);
+    }
+
+    /*
+     * Sixteen members on sixteen worker threads: no member is ever invoked concurrently, so none needs
+     * a lock, and each aggregate's events still arrive in order.
+     */
+    @Test
+    public void asynchronousGroupMembersShouldEachRunOneEventAtATime() throws Exception {
+        int workers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        InProcessEventLog partitionedLog = InProcessEventLog.withAsynchronousDispatch(executor, workers);
+        Topic topic = Topic.of("sixteen-workers-topic");
+        TestRef[] refs = refs("worker", 64);
+        int events = 6_400;
+        CountDownLatch done = new CountDownLatch(events);
+        AtomicInteger overlaps = new AtomicInteger();
+        List<List<TestAggregateEvent>> members = new ArrayList<>();
+        for (int m = 0; m < workers; m++) {
+            List<TestAggregateEvent> member = new ArrayList<>();
+            AtomicInteger inFlight = new AtomicInteger();
+            members.add(member);
+            partitionedLog.subscribeToGroup(topic, "kitchen", e -> {
+                if (inFlight.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                member.add((TestAggregateEvent) e);
+                inFlight.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        for (int i = 0; i < events; i++) {
+            partitionedLog.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(overlaps.get()).isZero();
+        assertThat(members.stream().mapToInt(List::size).sum()).isEqualTo(events);
+        for (TestRef ref : refs) {
+            List<Integer> ofRef = new ArrayList<>();
+            members.forEach(member -> member.stream().filter(e -> e.getRef().equals(ref)).forEach(e -> ofRef.add(e.getSequence())));
+            assertThat(ofRef).hasSize(events / refs.length).isSorted();
+        }
+    }
+
+    @Test
+    public void versionedAppendShouldAdvanceTheStreamAndRejectStaleWriters() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("versioned-topic");
+        TestRef ref = new TestRef("one");
+        List<Event> delivered = new ArrayList<>();
+        partitionedLog.subscribe(topic, delivered::add);
+
+        partitionedLog.append(topic, ref, 0, Arrays.asList(new TestAggregateEvent(ref, 0), new TestAggregateEvent(ref, 1)));
+        partitionedLog.append(topic, 0, new TestAggregateEvent(new TestRef("two"), 0));
+
+        assertThat(partitionedLog.getVersion(topic, ref)).isEqualTo(2);
+        assertThatThrownBy(() -> partitionedLog.append(topic, 1, new TestAggregateEvent(ref, 2)))
+                .isInstanceOfSatisfying(VersionConflictException.class, e -> {
+                    assertThat(e.getExpectedVersion()).isEqualTo(1);
+                    assertThat(e.getActualVersion()).isEqualTo(2);
+                });
+        assertThat(partitionedLog.eventsBy(topic, ref)).hasSize(2);
+        assertThat(delivered).hasSize(3);
+
+        partitionedLog.append(topic, 2, new TestAggregateEvent(ref, 2));
+        assertThat(partitionedLog.getVersion(topic, ref)).isEqualTo(3);
+    }
+
+    @Test
+    public void concurrentWritersAtTheSameVersionShouldHaveExactlyOneWinner() throws Exception {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("contended-topic");
+        TestRef ref = new TestRef("contended");
+        int writers = 8;
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            int writer = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    partitionedLog.append(topic, 0, new TestAggregateEvent(ref, writer));
+                } catch (VersionConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(conflicts).hasValue(writers - 1);
+        assertThat(partitionedLog.eventsBy(topic, ref)).hasSize(1);
+    }
+
+    @Test
+    public void versionedAppendShouldRejectEventsOfAnotherAggregate() {
+        Topic topic = Topic.of("versioned-topic");
+        TestRef ref = new TestRef("one");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new InProcessEventLog().append(topic, ref, 0,
+                Arrays.asList(new TestAggregateEvent(ref, 0), new TestAggregateEvent(new TestRef("two"), 1))));
+    }
+
+    @Test
+    public void publishAllShouldAppendAndDeliverTheBatchInOrder() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("batch-topic");
+        List<Event> delivered = new ArrayList<>();
+        List<Integer> storedWhenDelivered = new ArrayList<>();
+        partitionedLog.subscribe(topic, e -> {
+            delivered.add(e);
+            storedWhenDelivered.add(partitionedLog.eventsBy(topic).size());
+        });
+        List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(new TestAggregateEvent(new TestRef("pizza-" + i), 0));
+        }
+
+        partitionedLog.publishAll(topic, batch);
+
+        assertThat(partitionedLog.eventsBy(topic)).containsExactlyElementsOf(batch);
+        assertThat(delivered).containsExactlyElementsOf(batch);
+        assertThat(storedWhenDelivered).containsOnly(50);
+    }
+
+    @Test
+    public void appendAllShouldAppendNothingWhenAnyStreamConflicts() {
+        InProcessEventLog partitionedLog = InProcessEventLog.withPartitions(4);
+        Topic topic = Topic.of("batch-versioned-topic");
+        TestRef existing = new TestRef("existing");
+        TestRef fresh = new TestRef("fresh");
+        partitionedLog.append(topic, 0, new TestAggregateEvent(existing, 0));
+        Map<Ref, Long> expectedVersions = new HashMap<>();
+        expectedVersions.put(fresh, 0L);
+        expectedVersions.put(existing, 0L);
+
+        assertThatThrownBy(() -> partitionedLog.appendAll(topic, expectedVersions,
+                Arrays.asList(new TestAggregateEvent(fresh, 0), new TestAggregateEvent(existing, 1))))
+                .isInstanceOfSatisfying(VersionConflictException.class, e -> assertThat(e.getRef()).isEqualTo(existing));
+        assertThat(partitionedLog.eventsBy(topic)).hasSize(1);
+
+        expectedVersions.put(existing, 1L);
+        partitionedLog.appendAll(topic, expectedVersions,
+                Arrays.asList(new TestAggregateEvent(fresh, 0), new TestAggregateEvent(existing, 1)));
+        assertThat(partitionedLog.getVersion(topic, fresh)).isEqualTo(1);
+        assertThat(partitionedLog.getVersion(topic, existing)).isEqualTo(2);
+    }
+
+    @Test
+    public void appendAllShouldRejectEventsWithoutAnExpectedVersion() {
+        Topic topic = Topic.of("batch-versioned-topic");
+        TestRef ref = new TestRef("one");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new InProcessEventLog().appendAll(topic,
+                Collections.singletonMap(ref, 0L),
+                Arrays.asList(new TestAggregateEvent(ref, 0), new TestAggregateEvent(new TestRef("two"), 0))));
+    }
+
+    @Test
+    public void publishAllShouldEnqueueTheBatchToAsynchronousSubscribers() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        InProcessEventLog asyncLog = InProcessEventLog.withAsynchronousDispatch(executor, 2);
+        Topic topic = Topic.of("async-batch-topic");
+        List<Event> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        asyncLog.subscribe(topic, e -> {
+            delivered.add(e);
+            done.countDown();
+        });
+        List<Event> batch = Arrays.asList(new TestAggregateEvent(new TestRef("a"), 0),
+                new TestAggregateEvent(new TestRef("b"), 0), new TestAggregateEvent(new TestRef("c"), 0));
+
+        asyncLog.publishAll(topic, batch);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(delivered).containsExactlyElementsOf(batch);
+        executor.shutdown();
+    }
+
+    @Test
+    public void slowSubscriberWithDroppingMailboxShouldNotStallPublisher() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        InProcessEventLog boundedLog = InProcessEventLog.withAsynchronousDispatch(executor, 1, MailboxPolicy.dropAndMarkLagging(10));
+        Topic topic = Topic.of("slow-subscriber-topic");
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger fast = new AtomicInteger();
+        EventHandler slowHandler = e -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        EventHandler fastHandler = e -> fast.incrementAndGet();
+        boundedLog.subscribe(topic, slowHandler);
+        boundedLog.subscribe(topic, fastHandler);
+
+        for (int i = 0; i < 1_000; i++) {
+            boundedLog.publish(topic, new TestEvent());
+        }
+
+        SubscriberLag slow = lagOf(boundedLog, topic, slowHandler);
+        assertThat(slow.getDropped()).isEqualTo(990);
+        assertThat(slow.isLagging()).isTrue();
+        unblock.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fast.get() + lagOf(boundedLog, topic, fastHandler).getDropped()).isEqualTo(1_000);
+    }
+
+    private static SubscriberLag lagOf(InProcessEventLog log, Topic topic, EventHandler handler) {
+        return log.lag(topic).stream().filter(lag -> lag.getHandler() == handler).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    public void slowSubscriberWithSpillingMailboxShouldCatchUpFromTheLogInOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        InProcessEventLog boundedLog = InProcessEventLog.withAsynchronousDispatch(executor, 4, MailboxPolicy.spillToLog(8));
+        Topic topic = Topic.of("spilling-subscriber-topic");
+        TestRef[] refs = refs("spill", 16);
+        int events = 2_000;
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(events);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        boundedLog.subscribe(topic, e -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(((TestAggregateEvent) e).getSequence());
+            done.countDown();
+        });
+
+        for (int i = 0; i < events; i++) {
+            boundedLog.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+        }
+        SubscriberLag behind = boundedLog.lag(topic).get(0);
+        assertThat(behind.getQueued()).isLessThanOrEqualTo(8);
+        assertThat(behind.getBehind()).isEqualTo(events);
+
+        unblock.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(received).hasSize(events).doesNotHaveDuplicates();
+        for (TestRef ref : refs) {
+            List<Integer> ofRef = new ArrayList<>();
+            for (Integer sequence : received) {
+                if (refs[sequence % refs.length].equals(ref)) {
+                    ofRef.add(sequence);
+                }
+            }
+            assertThat(ofRef).isSorted();
+        }
+        assertThat(boundedLog.lag(topic).get(0).isLagging()).isFalse();
+    }
+
+    @Test
+    public void blockingSubscriberShouldPublishIntoItsOwnTopicWithoutDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        InProcessEventLog boundedLog = InProcessEventLog.withAsynchronousDispatch(executor, 1, MailboxPolicy.block(2));
+        Topic topic = Topic.of("blocking-feedback-topic");
+        TestRef ref = new TestRef("feedback");
+        int events = 1_000;
+        CountDownLatch done = new CountDownLatch(2 * events);
+        boundedLog.subscribe(topic, e -> {
+            int sequence = ((TestAggregateEvent) e).getSequence();
+            if (sequence < events) {
+                boundedLog.publish(topic, new TestAggregateEvent(ref, sequence + events));
+            }
+            done.countDown();
+        });
+
+        Future<?> publisher = Executors.newSingleThreadExecutor().submit(() -> {
+            for (int i = 0; i < events; i++) {
+                boundedLog.publish(topic, new TestAggregateEvent(ref, i));
+            }
+        });
+
+        publisher.get(5, TimeUnit.SECONDS);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(boundedLog.eventsBy(topic)).hasSize(2 * events);
+        executor.shutdown();
+    }
+
+    @Test
+    public void slowGroupMemberWithSpillingMailboxShouldNotStallPublisher() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        InProcessEventLog boundedLog = InProcessEventLog.withAsynchronousDispatch(executor, 4, MailboxPolicy.spillToLog(8));
+        Topic topic = Topic.of("spilling-group-topic");
+        TestRef[] refs = refs("spill-group", 16);
+        int events = 2_000;
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(events);
+        boundedLog.subscribeToGroup(topic, "slow", e -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+
+        Future<?> publisher = Executors.newSingleThreadExecutor().submit(() -> {
+            for (int i = 0; i < events; i++) {
+                boundedLog.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+            }
+        });
+
+        publisher.get(5, TimeUnit.SECONDS);
+        assertThat(boundedLog.lag(topic).get(0).getQueued()).isLessThanOrEqualTo(8);
+        unblock.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+    }
+
+    private static TestRef[] refs(String prefix, int count) {
+        TestRef[] refs = new TestRef[count];
+        for (int i = 0; i < count; i++) {
+            refs[i] = new TestRef(prefix + "-" + i);
+        }
+        return refs;
+    }
+
+    private static List<Integer> sequences(List<? extends Event> events) {
+        List<Integer> sequences = new ArrayList<>();
+        events.forEach(e -> sequences.add(((TestAggregateEvent) e).getSequence()));
+        return sequences;
+    }
+
+    /*
+     * Subscribes while another thread is publishing; the subscriber must end up with every event
+     * exactly once and in order.
+     */
+    private void assertSeamlessHandOver(InProcessEventLog log, Runnable cleanUp) throws Exception {
+        Topic topic = Topic.of("hand-over-topic");
+        TestRef[] refs = refs("hand-over", 8);
+        int events = 50_000;
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(events);
+        CountDownLatch halfway = new CountDownLatch(1);
+
+        ExecutorService publisher = Executors.newSingleThreadExecutor();
+        Future<?> publishing = publisher.submit(() -> {
+            for (int i = 0; i < events; i++) {
+                log.publish(topic, new TestAggregateEvent(refs[i % refs.length], i));
+                if (i == events / 2) {
+                    halfway.countDown();
+                }
+            }
+        });
+        halfway.await();
+        log.subscribe(topic, EventLog.FROM_BEGINNING, e -> {
+            received.add(((TestAggregateEvent) e).getSequence());
+            done.countDown();
+        });
+        publishing.get();
+        publisher.shutdown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(events).isSorted();
+        assertThat(received.get(events - 1)).isEqualTo(events - 1);
+        cleanUp.run();
+    }
+
     @Value
     private static class TestEvent implements Event {
     }
+
+    @Value
+    private static class TestRef implements Ref {
+        String reference;
+    }
+
+    @Value
+    private static class TestAggregateEvent implements AggregateEvent {
+        TestRef ref;
+        int sequence;
+    }
 }
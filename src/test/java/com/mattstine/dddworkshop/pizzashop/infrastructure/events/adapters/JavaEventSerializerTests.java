@@ -0,0 +1,76 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import lombok.Value;
+import org.junit.Test;
+
+import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Matt Stine
+ */
+public class JavaEventSerializerTests {
+    private final EventSerializer serializer = EventSerializer.JAVA;
+
+    @Test
+    public void everyPayloadShouldDecodeOnItsOwn() {
+        Event first = CompactEvent.sample();
+        Event second = new CompactEvent(new CompactEvent.CompactRef("second"));
+
+        byte[] firstPayload = serializer.serialize(first);
+        byte[] secondPayload = serializer.serialize(second);
+
+        assertThat(serializer.deserialize(ByteBuffer.wrap(secondPayload))).isEqualTo(second);
+        assertThat(serializer.deserialize(ByteBuffer.wrap(firstPayload))).isEqualTo(first);
+    }
+
+    @Test
+    public void sameEventShouldAlwaysSerializeToTheSameBytes() {
+        Event event = CompactEvent.sample();
+
+        assertThat(serializer.serialize(event)).isEqualTo(serializer.serialize(event));
+    }
+
+    @Test
+    public void shouldRoundTripEnumsListsValueTypesAndNulls() {
+        Event event = new RichEvent(Kind.LARGE, Collections.unmodifiableList(Arrays.asList("a", "b")),
+                Amount.of(12, 50), null);
+
+        assertThat(serializer.deserialize(ByteBuffer.wrap(serializer.serialize(event)))).isEqualTo(event);
+    }
+
+    @Test
+    public void shouldRejectPayloadOfAClassWhoseFieldsChanged() {
+        byte[] payload = serializer.serialize(CompactEvent.sample());
+        int nameLength = CompactEvent.class.getName().getBytes(StandardCharsets.UTF_8).length;
+        int fingerprintAt = 4 + 2 + 2 + nameLength + 8;
+        payload[fingerprintAt] ^= 1;
+
+        assertThatThrownBy(() -> serializer.deserialize(ByteBuffer.wrap(payload)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(InvalidClassException.class);
+    }
+
+    private enum Kind {
+        SMALL, LARGE
+    }
+
+    @Value
+    private static class RichEvent implements Event {
+        private static final long serialVersionUID = 1L;
+
+        Kind kind;
+        List<String> toppings;
+        Amount amount;
+        String note;
+    }
+}
@@ -0,0 +1,176 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import lombok.Value;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Mailboxes here are drained by a manual executor, so each test decides when the subscriber runs.
+ *
+ * @author Matt Stine
+ */
+public class MailboxTests {
+    private final ManualExecutor executor = new ManualExecutor();
+    private final List<Integer> received = new ArrayList<>();
+
+    @Test
+    public void unbounded_mailbox_delivers_in_order() {
+        Mailbox mailbox = new Mailbox(this::receive, executor);
+        for (int i = 0; i < 100; i++) {
+            mailbox.handleEvent(new NumberedEvent(i));
+        }
+
+        executor.runAll();
+
+        assertThat(received).hasSize(100).isSorted();
+        assertThat(mailbox.lag()).isEqualTo(new SubscriberLag(mailbox.handler(), 0, 0, 100, 0, false));
+    }
+
+    @Test
+    public void blocking_mailbox_holds_publisher_until_subscriber_makes_room() throws Exception {
+        Mailbox mailbox = new Mailbox(this::receive, executor, false, MailboxPolicy.block(2));
+        mailbox.handleEvent(new NumberedEvent(0));
+        mailbox.handleEvent(new NumberedEvent(1));
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> mailbox.handleEvent(new NumberedEvent(2)));
+        Thread.sleep(50);
+        assertThat(third).isNotDone();
+        assertThat(mailbox.lag().getQueued()).isEqualTo(2);
+
+        executor.runAll();
+        third.get(5, TimeUnit.SECONDS);
+        executor.runAll();
+
+        assertThat(received).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void dropping_mailbox_loses_overflow_and_marks_subscriber_lagging() {
+        Mailbox mailbox = new Mailbox(this::receive, executor, false, MailboxPolicy.dropAndMarkLagging(2));
+        for (int i = 0; i < 5; i++) {
+            mailbox.handleEvent(new NumberedEvent(i));
+        }
+
+        executor.runAll();
+
+        assertThat(received).containsExactly(0, 1);
+        SubscriberLag lag = mailbox.lag();
+        assertThat(lag.getDropped()).isEqualTo(3);
+        assertThat(lag.isLagging()).isTrue();
+    }
+
+    @Test
+    public void spilling_mailbox_reads_overflow_back_from_source_in_order() {
+        Mailbox mailbox = new Mailbox(this::receive, executor, false, MailboxPolicy.spillToLog(2));
+        LogSource source = new LogSource();
+        for (int i = 0; i < 6; i++) {
+            source.append(mailbox, new NumberedEvent(i));
+        }
+        SubscriberLag lag = mailbox.lag();
+        assertThat(lag.getQueued()).isEqualTo(2);
+        assertThat(lag.getSpilled()).isEqualTo(4);
+        assertThat(lag.isLagging()).isTrue();
+
+        executor.runAll();
+
+        assertThat(received).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(mailbox.lag()).isEqualTo(new SubscriberLag(mailbox.handler(), 0, 0, 6, 0, false));
+
+        source.append(mailbox, new NumberedEvent(6));
+        executor.runAll();
+        assertThat(received).endsWith(6);
+    }
+
+    @Test
+    public void held_mailbox_spills_until_released() {
+        Mailbox mailbox = new Mailbox(this::receive, executor, true, MailboxPolicy.spillToLog(1));
+        LogSource source = new LogSource();
+        for (int i = 0; i < 3; i++) {
+            source.append(mailbox, new NumberedEvent(i));
+        }
+        executor.runAll();
+        assertThat(received).isEmpty();
+
+        mailbox.release();
+        executor.runAll();
+
+        assertThat(received).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void spilling_mailbox_rejects_event_without_a_source_to_read_it_back_from() {
+        Mailbox mailbox = new Mailbox(this::receive, executor, false, MailboxPolicy.spillToLog(2));
+
+        assertThatIllegalStateException().isThrownBy(() -> mailbox.handleEvent(new NumberedEvent(0)));
+    }
+
+    @Test
+    public void blocking_mailbox_does_not_hold_back_publisher_offering_under_its_source_lock() {
+        Mailbox mailbox = new Mailbox(this::receive, executor, false, MailboxPolicy.block(2));
+        LogSource source = new LogSource();
+        for (int i = 0; i < 3; i++) {
+            source.append(mailbox, new NumberedEvent(i));
+        }
+        assertThat(mailbox.lag().getQueued()).isEqualTo(3);
+
+        executor.runAll();
+        mailbox.awaitRoom();
+
+        assertThat(received).containsExactly(0, 1, 2);
+    }
+
+    private void receive(Event event) {
+        received.add(((NumberedEvent) event).getNumber());
+    }
+
+    private static final class LogSource implements Mailbox.Source {
+        private final List<Event> events = new ArrayList<>();
+
+        private synchronized void append(Mailbox mailbox, Event event) {
+            events.add(event);
+            mailbox.offer(event, this, events.size() - 1);
+        }
+
+        @Override
+        public synchronized List<Event> resume(Mailbox mailbox, int offset) {
+            mailbox.endSpill(this);
+            return new ArrayList<>(events.subList(offset, events.size()));
+        }
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            Runnable task;
+            while ((task = poll()) != null) {
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+
+    @Value
+    private static class NumberedEvent implements Event {
+        int number;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import lombok.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * @author Matt Stine
+ */
+public class ParallelStartupReplayTests {
+    private InProcessEventLog eventLog;
+    private ParallelStartupReplay startupReplay;
+
+    @Before
+    public void setUp() {
+        eventLog = new InProcessEventLog();
+        startupReplay = new ParallelStartupReplay(eventLog, 4);
+    }
+
+    @Test
+    public void defers_catch_up_until_replay_then_delivers_every_event_once() {
+        Topic large = Topic.of("large");
+        Topic small = Topic.of("small");
+        int largeEvents = 3 * ParallelStartupReplay.PARTITION_SIZE + 17;
+        publish(large, 0, largeEvents);
+        publish(small, 0, 10);
+
+        SequenceIndex largeIndex = new SequenceIndex();
+        SequenceIndex smallIndex = new SequenceIndex();
+        startupReplay.subscribe(large, EventLog.FROM_BEGINNING, largeIndex);
+        startupReplay.subscribe(small, 5, smallIndex);
+        assertThat(largeIndex.sequences).isEmpty();
+        assertThat(startupReplay.getNumberOfSubscribers(large)).isEqualTo(1);
+
+        ParallelStartupReplay.Report report = startupReplay.replay();
+        assertThat(report.getSubscriptions()).isEqualTo(2);
+        assertThat(report.getPartitions()).isEqualTo(5);
+        assertThat(report.getEvents()).isEqualTo(largeEvents + 5);
+        assertThat(largeIndex.sequences).hasSize(largeEvents);
+        assertThat(smallIndex.sequences).hasSize(5).doesNotContain(0, 1, 2, 3, 4);
+
+        publish(large, largeEvents, 1);
+        assertThat(largeIndex.sequences).hasSize(largeEvents + 1);
+        assertThat(eventLog.getNumberOfSubscribers(large)).isEqualTo(1);
+    }
+
+    @Test
+    public void subscriptions_after_replay_go_straight_to_the_event_log() {
+        Topic topic = Topic.of("late");
+        publish(topic, 0, 3);
+        startupReplay.replay();
+
+        SequenceIndex index = new SequenceIndex();
+        startupReplay.subscribe(topic, EventLog.FROM_BEGINNING, index);
+        assertThat(index.sequences).hasSize(3);
+    }
+
+    @Test
+    public void rejects_offset_past_end_of_topic() {
+        Topic topic = Topic.of("short");
+        publish(topic, 0, 2);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> startupReplay.subscribe(topic, 3, new SequenceIndex()));
+    }
+
+    @Test
+    public void rethrows_handler_failure_and_does_not_go_live() {
+        Topic topic = Topic.of("failing");
+        publish(topic, 0, 10);
+        startupReplay.subscribe(topic, EventLog.FROM_BEGINNING, e -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> startupReplay.replay())
+                .withMessage("boom");
+        assertThat(eventLog.getNumberOfSubscribers(topic)).isZero();
+    }
+
+    @Test
+    public void replays_only_once() {
+        startupReplay.replay();
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> startupReplay.replay());
+    }
+
+    private void publish(Topic topic, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            eventLog.publish(topic, new SequencedEvent(i));
+        }
+    }
+
+    private static class SequenceIndex implements EventHandler {
+        final Set<Integer> sequences = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void handleEvent(Event event) {
+            sequences.add(((SequencedEvent) event).getSequence());
+        }
+    }
+
+    @Value
+    private static class SequencedEvent implements Event {
+        int sequence;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Single-publisher append throughput of {@link SegmentFileEventLog} per {@link FsyncPolicy}.
+ * The {@code compact} serializer isolates the log's own cost from Java serialization.
+ * Point {@code -Djava.io.tmpdir} at the disk under test.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SegmentFileEventLogAppendBenchmark {
+
+    @Param({"OS_MANAGED", "GROUP_COMMIT"})
+    String fsync;
+
+    @Param({"java", "compact"})
+    String serializer;
+
+    private Path directory;
+    private SegmentFileEventLog eventLog;
+    private final Topic topic = Topic.of("pizzas");
+    private final Event event = CompactEvent.sample();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segment-benchmark");
+        eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy("GROUP_COMMIT".equals(fsync) ? FsyncPolicy.groupCommit(10) : FsyncPolicy.osManaged())
+                .serializer("compact".equals(serializer) ? CompactEvent.SERIALIZER : EventSerializer.JAVA)
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        eventLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        eventLog.publish(topic, event);
+    }
+}
@@ -0,0 +1,73 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of storing a catering order's {@code batchSize} events in {@link SegmentFileEventLog}, one
+ * {@link SegmentFileEventLog#publish publish} at a time versus a single
+ * {@link SegmentFileEventLog#publishAll publishAll}, which writes the batch once and, under
+ * {@link FsyncPolicy#everyEvent}, forces it once. Point {@code -Djava.io.tmpdir} at the disk under test.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SegmentFileEventLogBatchBenchmark {
+
+    @Param({"EVERY_EVENT", "OS_MANAGED"})
+    String fsync;
+
+    @Param({"50"})
+    int batchSize;
+
+    private Path directory;
+    private SegmentFileEventLog eventLog;
+    private final Topic topic = Topic.of("pizzas");
+    private List<Event> batch;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segment-batch-benchmark");
+        eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy("EVERY_EVENT".equals(fsync) ? FsyncPolicy.everyEvent() : FsyncPolicy.osManaged())
+                .serializer(CompactEvent.SERIALIZER)
+                .build();
+        batch = Collections.nCopies(batchSize, CompactEvent.sample());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        eventLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void publishOneByOne() {
+        for (Event event : batch) {
+            eventLog.publish(topic, event);
+        }
+    }
+
+    @Benchmark
+    public void publishAll() {
+        eventLog.publishAll(topic, batch);
+    }
+}
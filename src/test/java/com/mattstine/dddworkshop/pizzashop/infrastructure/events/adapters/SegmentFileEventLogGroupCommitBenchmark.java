@@ -0,0 +1,83 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable publish under {@link FsyncPolicy#groupCommit} at 1, 8 and 64 concurrent publishers, and
+ * per-event fsync as the baseline. Throughput and sampled latency together give the
+ * throughput-vs-latency curve for each commit delay.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SegmentFileEventLogGroupCommitBenchmark {
+
+    @Param({"GROUP_COMMIT_0", "GROUP_COMMIT_2", "EVERY_EVENT"})
+    String fsync;
+
+    private Path directory;
+    private SegmentFileEventLog eventLog;
+    private final Topic topic = Topic.of("pizzas");
+    private final Event event = CompactEvent.sample();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("group-commit-benchmark");
+        eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy(fsyncPolicy())
+                .serializer(CompactEvent.SERIALIZER)
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        eventLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publishers01() {
+        eventLog.publish(topic, event);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void publishers08() {
+        eventLog.publish(topic, event);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void publishers64() {
+        eventLog.publish(topic, event);
+    }
+
+    private FsyncPolicy fsyncPolicy() {
+        switch (fsync) {
+            case "GROUP_COMMIT_0":
+                return FsyncPolicy.groupCommit(0);
+            case "GROUP_COMMIT_2":
+                return FsyncPolicy.groupCommit(2);
+            default:
+                return FsyncPolicy.everyEvent();
+        }
+    }
+}
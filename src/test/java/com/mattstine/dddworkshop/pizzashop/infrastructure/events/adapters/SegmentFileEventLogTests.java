@@ -0,0 +1,425 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.services.RefIdGenerator;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.IdRef;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Value;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Matt Stine
+ */
+public class SegmentFileEventLogTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Topic topic = Topic.of("pizzas");
+    private final TestRef ref = new TestRef("one");
+
+    @Test
+    public void shouldRecoverEventsAfterReopen() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            eventLog.publish(topic, new TestEvent(new TestRef("two"), 1));
+            eventLog.publish(topic, new TestEvent(ref, 2));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).hasSize(3);
+            assertThat(eventLog.eventsBy(topic, ref)).containsExactly(new TestEvent(ref, 1), new TestEvent(ref, 2));
+        }
+    }
+
+    @Test
+    public void shouldLookUpRecoveredEventsByIdRefWithoutFormattingIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        long id = RefIdGenerator.nextId();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new IdEvent(new FormattedIdRef(id, RefIdGenerator.node()), 1));
+            eventLog.publish(topic, new IdEvent(new FormattedIdRef(0, 0), 1));
+            eventLog.publish(topic, new IdEvent(new FormattedIdRef(id, RefIdGenerator.node()), 2));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic, new UnformattedIdRef(id, RefIdGenerator.node())))
+                    .extracting(event -> ((IdEvent) event).getSequence()).containsExactly(1, 2);
+            assertThat(eventLog.getVersion(topic, new UnformattedIdRef(0, 0))).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void shouldCombineRecoveredAndNewlyPublishedEvents() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 2));
+            eventLog.publish(topic, new UnownedEvent("x"));
+
+            assertThat(eventLog.eventsBy(topic)).containsExactly(new TestEvent(ref, 1), new TestEvent(ref, 2), new UnownedEvent("x"));
+            assertThat(eventLog.eventsBy(topic, ref)).containsExactly(new TestEvent(ref, 1), new TestEvent(ref, 2));
+        }
+    }
+
+    @Test
+    public void shouldReplayRecoveredEventsToCatchUpSubscriber() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            eventLog.publish(topic, new TestEvent(ref, 2));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            List<Event> received = new ArrayList<>();
+            eventLog.subscribe(topic, EventLog.FROM_BEGINNING, received::add);
+            eventLog.publish(topic, new TestEvent(ref, 3));
+
+            assertThat(received).containsExactly(new TestEvent(ref, 1), new TestEvent(ref, 2), new TestEvent(ref, 3));
+        }
+    }
+
+    @Test
+    public void shouldDeliverToOneGroupMemberAndHandOverWhenItLeaves() throws IOException {
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(folder.getRoot().toPath()).build()) {
+            List<Event> first = new ArrayList<>();
+            List<Event> second = new ArrayList<>();
+            EventHandler firstMember = first::add;
+            eventLog.subscribeToGroup(topic, "group", firstMember);
+            eventLog.subscribeToGroup(topic, "group", second::add);
+
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            eventLog.unsubscribeFromGroup(topic, "group", firstMember);
+            eventLog.publish(topic, new TestEvent(ref, 2));
+
+            assertThat(first).containsExactly(new TestEvent(ref, 1));
+            assertThat(second).containsExactly(new TestEvent(ref, 2));
+            assertThat(eventLog.getNumberOfSubscribers(topic)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void shouldRollSegmentsAndRecoverAcrossThem() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .segmentBytes(1024)
+                .fsyncPolicy(FsyncPolicy.osManaged())
+                .build()) {
+            for (int i = 0; i < 100; i++) {
+                eventLog.publish(topic, new TestEvent(ref, i));
+            }
+        }
+
+        assertThat(TopicSegments.segmentFiles(directory.resolve("pizzas")).size()).isGreaterThan(1);
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            List<Event> events = eventLog.eventsBy(topic);
+            assertThat(events).hasSize(100);
+            assertThat(events.get(99)).isEqualTo(new TestEvent(ref, 99));
+        }
+    }
+
+    @Test
+    public void shouldTruncateTornRecordAtTailOfNewestSegment() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            eventLog.publish(topic, new TestEvent(ref, 2));
+        }
+        Path segment = TopicSegments.segmentFiles(directory.resolve("pizzas")).get(0);
+        try (FileChannel channel = FileChannel.open(segment, WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).containsExactly(new TestEvent(ref, 1));
+            eventLog.publish(topic, new TestEvent(ref, 3));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).containsExactly(new TestEvent(ref, 1), new TestEvent(ref, 3));
+        }
+    }
+
+    @Test
+    public void shouldRejectCorruptSealedSegment() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .segmentBytes(256)
+                .build()) {
+            for (int i = 0; i < 10; i++) {
+                eventLog.publish(topic, new TestEvent(ref, i));
+            }
+        }
+        Path sealed = TopicSegments.segmentFiles(directory.resolve("pizzas")).get(0);
+        try (FileChannel channel = FileChannel.open(sealed, WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{0, 0, 0, 1, 0, 0, 0, 0}), TopicSegments.SEGMENT_HEADER_BYTES);
+        }
+
+        assertThatThrownBy(() -> SegmentFileEventLog.builder().directory(directory).build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("sealed segment");
+    }
+
+    @Test
+    public void shouldRejectSegmentOfAnotherFormatVersion() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+        }
+        Path segment = TopicSegments.segmentFiles(directory.resolve("pizzas")).get(0);
+        try (FileChannel channel = FileChannel.open(segment, WRITE)) {
+            channel.write(java.nio.ByteBuffer.allocate(4).putInt(0, TopicSegments.FORMAT_VERSION + 1), 4);
+        }
+
+        assertThatThrownBy(() -> SegmentFileEventLog.builder().directory(directory).build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("format version " + (TopicSegments.FORMAT_VERSION + 1));
+    }
+
+    @Test
+    public void groupCommitShouldMakeEventVisibleBeforePublishReturns() throws IOException {
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(folder.getRoot().toPath())
+                .fsyncPolicy(FsyncPolicy.groupCommit(5))
+                .build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            assertThat(eventLog.eventsBy(topic, ref)).containsExactly(new TestEvent(ref, 1));
+        }
+    }
+
+    @Test
+    public void groupCommitShouldPersistEveryConcurrentPublisher() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        int publishers = 16;
+        int eventsPerPublisher = 200;
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy(FsyncPolicy.groupCommit(1))
+                .build()) {
+            ExecutorService executor = Executors.newFixedThreadPool(publishers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < publishers; p++) {
+                TestRef publisherRef = new TestRef("publisher-" + p);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < eventsPerPublisher; i++) {
+                        eventLog.publish(topic, new TestEvent(publisherRef, i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).hasSize(publishers * eventsPerPublisher);
+            assertThat(eventLog.eventsBy(topic, new TestRef("publisher-3")))
+                    .extracting(e -> ((TestEvent) e).getSequence())
+                    .isSorted()
+                    .hasSize(eventsPerPublisher);
+        }
+    }
+
+    @Test
+    public void versionedAppendShouldCountRecoveredEvents() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            eventLog.publish(topic, new TestEvent(ref, 2));
+        }
+
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.getVersion(topic, ref)).isEqualTo(2);
+            eventLog.append(topic, 2, new TestEvent(ref, 3));
+
+            assertThatThrownBy(() -> eventLog.append(topic, 2, new TestEvent(ref, 4)))
+                    .isInstanceOf(VersionConflictException.class);
+            assertThat(eventLog.eventsBy(topic, ref)).hasSize(3);
+        }
+    }
+
+    @Test
+    public void groupCommitShouldCountQueuedEventsTowardsTheVersion() throws Exception {
+        int writers = 8;
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(folder.getRoot().toPath())
+                .fsyncPolicy(FsyncPolicy.groupCommit(5))
+                .build()) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                int writer = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        eventLog.append(topic, 0, new TestEvent(ref, writer));
+                    } catch (VersionConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertThat(conflicts).hasValue(writers - 1);
+            assertThat(eventLog.eventsBy(topic, ref)).hasSize(1);
+        }
+    }
+
+    @Test
+    public void publishAllShouldWriteTheBatchAndRecoverIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(new TestEvent(new TestRef("pizza-" + i), 0));
+        }
+        List<Event> delivered = new ArrayList<>();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            eventLog.subscribe(topic, delivered::add);
+            eventLog.publishAll(topic, batch);
+        }
+
+        assertThat(delivered).containsExactlyElementsOf(batch);
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).containsExactlyElementsOf(batch);
+        }
+    }
+
+    @Test
+    public void appendAllShouldWriteNothingWhenAnyStreamConflicts() throws IOException {
+        TestRef fresh = new TestRef("fresh");
+        Map<Ref, Long> expectedVersions = new HashMap<>();
+        expectedVersions.put(fresh, 0L);
+        expectedVersions.put(ref, 0L);
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(folder.getRoot().toPath())
+                .fsyncPolicy(FsyncPolicy.groupCommit(5))
+                .build()) {
+            eventLog.append(topic, 0, new TestEvent(ref, 1));
+
+            assertThatThrownBy(() -> eventLog.appendAll(topic, expectedVersions,
+                    Arrays.asList(new TestEvent(fresh, 1), new TestEvent(ref, 2))))
+                    .isInstanceOf(VersionConflictException.class);
+            assertThat(eventLog.eventsBy(topic)).hasSize(1);
+
+            expectedVersions.put(ref, 1L);
+            eventLog.appendAll(topic, expectedVersions, Arrays.asList(new TestEvent(fresh, 1), new TestEvent(ref, 2)));
+            assertThat(eventLog.eventsBy(topic)).hasSize(3);
+            assertThat(eventLog.getVersion(topic, fresh)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void failedBatchShouldLeaveNothingBehindAndKeepWholeBatchesInOneSegment() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(new TestEvent(new TestRef("pizza-" + i), 1));
+        }
+        Path blocker = directory.resolve("pizzas").resolve(String.format("%020d.segment", 1));
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .segmentBytes(1024)
+                .fsyncPolicy(FsyncPolicy.osManaged())
+                .build()) {
+            eventLog.publish(topic, new TestEvent(ref, 1));
+            Files.createFile(blocker);
+
+            assertThatThrownBy(() -> eventLog.publishAll(topic, batch))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(eventLog.eventsBy(topic)).hasSize(1);
+
+            Files.delete(blocker);
+            eventLog.publishAll(topic, batch);
+        }
+
+        assertThat(TopicSegments.segmentFiles(directory.resolve("pizzas"))).containsExactly(
+                directory.resolve("pizzas").resolve(String.format("%020d.segment", 0)), blocker);
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder().directory(directory).build()) {
+            assertThat(eventLog.eventsBy(topic)).hasSize(51);
+            assertThat(eventLog.eventsBy(topic).subList(1, 51)).containsExactlyElementsOf(batch);
+        }
+    }
+
+    @Value
+    private static class UnownedEvent implements Event {
+        String payload;
+    }
+
+    @Value
+    private static class TestRef implements Ref {
+        String reference;
+    }
+
+    @Value
+    private static class FormattedIdRef implements IdRef {
+        long id;
+        long node;
+
+        @Override
+        public String getReference() {
+            return RefIdGenerator.format(id, node);
+        }
+    }
+
+    @Value
+    private static class UnformattedIdRef implements IdRef {
+        long id;
+        long node;
+
+        @Override
+        public String getReference() {
+            throw new UnsupportedOperationException("Cannot format a lookup ref");
+        }
+    }
+
+    @Value
+    private static class IdEvent implements AggregateEvent {
+        FormattedIdRef ref;
+        int sequence;
+    }
+
+    @Value
+    private static class TestEvent implements AggregateEvent {
+        TestRef ref;
+        int sequence;
+    }
+}
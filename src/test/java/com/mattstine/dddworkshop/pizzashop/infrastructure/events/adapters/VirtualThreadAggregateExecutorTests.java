@@ -0,0 +1,158 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import lombok.Value;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Matt Stine
+ */
+public class VirtualThreadAggregateExecutorTests {
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private final VirtualThreadAggregateExecutor executor = new VirtualThreadAggregateExecutor(
+            Thread.ofVirtual().uncaughtExceptionHandler((thread, ex) -> failures.add(ex)).factory());
+
+    @Test
+    public void runs_one_aggregates_tasks_one_at_a_time_in_submission_order() throws Exception {
+        int aggregates = 100;
+        int tasksPerAggregate = 200;
+        Map<Ref, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<Ref, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(aggregates * tasksPerAggregate);
+
+        for (int i = 0; i < tasksPerAggregate; i++) {
+            for (int a = 0; a < aggregates; a++) {
+                TestRef ref = new TestRef("aggregate-" + a);
+                int task = i;
+                executor.execute(ref, () -> {
+                    if (running.computeIfAbsent(ref, r -> new AtomicInteger()).incrementAndGet() > 1) {
+                        overlapped.set(true);
+                    }
+                    Thread.yield();
+                    seen.computeIfAbsent(ref, r -> new ArrayList<>()).add(task);
+                    running.get(ref).decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlapped).isFalse();
+        assertThat(seen).hasSize(aggregates);
+        seen.values().forEach(tasks -> assertThat(tasks).hasSize(tasksPerAggregate).isSorted());
+        awaitIdle();
+    }
+
+    @Test
+    public void runs_different_aggregates_concurrently() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new TestRef("waiting"), () -> {
+            try {
+                if (released.await(5, TimeUnit.SECONDS)) {
+                    done.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(new TestRef("releasing"), released::countDown);
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void reports_failed_task_and_keeps_draining_the_aggregate() throws Exception {
+        TestRef ref = new TestRef("failing");
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(ref, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute(ref, done::countDown);
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0)).hasMessage("boom");
+    }
+
+    @Test
+    public void retires_lanes_once_drained() throws Exception {
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(new TestRef("aggregate-" + i), done::countDown);
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        awaitIdle();
+    }
+
+    @Test
+    public void executeAndWait_returns_after_the_aggregates_earlier_tasks_and_its_own() throws Exception {
+        TestRef ref = new TestRef("command");
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(ref, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add("event");
+        });
+        executor.execute(new TestRef("other"), release::countDown);
+
+        executor.executeAndWait(ref, () -> log.add("command"));
+
+        assertThat(log).containsExactly("event", "command");
+    }
+
+    @Test
+    public void executeAndWait_rethrows_to_the_caller() {
+        assertThatThrownBy(() -> executor.executeAndWait(new TestRef("failing"), () -> {
+            throw new IllegalStateException("Cannot do that");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("Cannot do that");
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    public void executeAndWait_from_the_aggregates_own_task_runs_inline() throws Exception {
+        TestRef ref = new TestRef("reentrant");
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(ref, () -> executor.executeAndWait(ref, done::countDown));
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_task_without_ref() {
+        executor.execute(null, () -> {
+        });
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getActiveAggregates() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(executor.getActiveAggregates()).isZero();
+    }
+
+    @Value
+    private static class TestRef implements Ref {
+        String reference;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports;
+
+import org.junit.Test;
+
+import java.lang.reflect.Modifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author Matt Stine
+ */
+public class TopicTests {
+
+    @Test
+    public void of_returns_the_interned_handle() {
+        assertThat(Topic.of("interned")).isSameAs(Topic.of("interned"));
+    }
+
+    @Test
+    public void topics_can_only_come_from_the_registry() {
+        assertThat(Topic.class.getDeclaredConstructors())
+                .allSatisfy(constructor -> assertThat(Modifier.isPrivate(constructor.getModifiers())).isTrue());
+    }
+
+    @Test
+    public void ids_are_dense_in_registration_order() {
+        int first = Topic.of("dense-first").getId();
+
+        assertThat(Topic.of("dense-second").getId()).isEqualTo(first + 1);
+        assertThat(Topic.of("dense-first").getId()).isEqualTo(first);
+    }
+
+    @Test
+    public void topics_with_different_names_are_not_equal() {
+        assertThat(Topic.of("one")).isNotEqualTo(Topic.of("two"));
+    }
+
+    @Test
+    public void rejects_missing_name() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Topic.of(null));
+    }
+}
@@ -0,0 +1,60 @@
+package com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateState;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CachePolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CacheStats;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Snapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Matt Stine
+ */
+public class AggregateCacheTests {
+
+    private AggregateCache cache;
+    private AggregateState state;
+
+    @Before
+    public void setUp() {
+        cache = new AggregateCache(CachePolicy.maximumSize(2));
+        state = mock(AggregateState.class);
+    }
+
+    @Test
+    public void evicts_least_recently_used() {
+        Ref first = mock(Ref.class);
+        Ref second = mock(Ref.class);
+        Ref third = mock(Ref.class);
+
+        cache.put(first, new Snapshot(1, state));
+        cache.put(second, new Snapshot(1, state));
+        cache.get(first);
+        cache.put(third, new Snapshot(1, state));
+
+        assertThat(cache.get(second)).isNull();
+        assertThat(cache.get(first)).isNotNull();
+        assertThat(cache.get(third)).isNotNull();
+        assertThat(cache.stats()).isEqualTo(new CacheStats(3, 1, 1, 2));
+    }
+
+    @Test
+    public void keeps_highest_version() {
+        Ref ref = mock(Ref.class);
+
+        cache.put(ref, new Snapshot(5, state));
+        cache.put(ref, new Snapshot(3, state));
+
+        assertThat(cache.get(ref).getVersion()).isEqualTo(5);
+    }
+
+    @Test
+    public void rejects_non_positive_maximum_size() {
+        assertThatIllegalArgumentException().isThrownBy(() -> CachePolicy.maximumSize(0));
+    }
+}
@@ -0,0 +1,53 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author Matt Stine
+ */
+public class HistogramTests {
+
+    @Test
+    public void buckets_values_by_power_of_two() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(5);
+        histogram.record(7);
+
+        assertThat(histogram.getCounts()).startsWith(1, 1, 0, 2);
+        assertThat(histogram.getSum()).isEqualTo(13);
+        assertThat(histogram.getCount()).isEqualTo(4);
+        assertThat(histogram.getMean()).isEqualTo(3.25);
+    }
+
+    @Test
+    public void percentiles_are_bucket_upper_bounds_capped_at_the_max() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10);
+        }
+        histogram.record(1_000);
+
+        assertThat(histogram.valueAtPercentile(50)).isEqualTo(15);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(1_000);
+        assertThat(new Histogram().valueAtPercentile(99)).isZero();
+    }
+
+    @Test
+    public void copies_are_independent() {
+        Histogram histogram = new Histogram();
+        Histogram copy = histogram.copy();
+        histogram.record(3);
+
+        assertThat(copy.getCount()).isZero();
+    }
+
+    @Test
+    public void rejects_negative_values() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new Histogram().record(-1));
+    }
+}
@@ -22,7 +22,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryIntegrationTests {
     public void setUp() {
         eventLog = InProcessEventLog.instance();
         repository = new InProcessEventSourcedKitchenOrderRepository(eventLog,
-                new Topic("kitchen_orders"));
+                Topic.of("kitchen_orders"));
         KitchenOrderRef ref = repository.nextIdentity();
         onlineOrderRef = new OnlineOrderRef();
         kitchenOrder = KitchenOrder.builder()
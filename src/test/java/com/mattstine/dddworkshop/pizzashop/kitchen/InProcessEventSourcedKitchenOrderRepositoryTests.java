@@ -26,7 +26,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
     public void setUp() {
         eventLog = mock(EventLog.class);
         repository = new InProcessEventSourcedKitchenOrderRepository(eventLog,
-                new Topic("kitchen_orders"));
+                Topic.of("kitchen_orders"));
         ref = repository.nextIdentity();
         kitchenOrder = KitchenOrder.builder()
                 .ref(ref)
@@ -48,7 +48,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
         repository.add(kitchenOrder);
         assertThat(kitchenOrder.state()).isNotNull();
         KitchenOrderAddedEvent event = new KitchenOrderAddedEvent(ref, kitchenOrder.state());
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), eq(event));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(0L), eq(event));
     }
 
 
@@ -57,7 +57,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
     public void find_by_ref_hydrates_added_order() {
         repository.add(kitchenOrder);
 
-        when(eventLog.eventsBy(new Topic("kitchen_orders")))
+        when(eventLog.eventsBy(Topic.of("kitchen_orders"), ref))
                 .thenReturn(Collections.singletonList(new KitchenOrderAddedEvent(ref, kitchenOrder.state())));
 
         assertThat(repository.findByRef(ref)).isEqualTo(kitchenOrder);
@@ -69,7 +69,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
         repository.add(kitchenOrder);
         kitchenOrder.startPrep();
 
-        when(eventLog.eventsBy(new Topic("kitchen_orders")))
+        when(eventLog.eventsBy(Topic.of("kitchen_orders"), ref))
                 .thenReturn(Arrays.asList(new KitchenOrderAddedEvent(ref, kitchenOrder.state()),
                         new KitchenOrderPrepStartedEvent(ref)));
 
@@ -83,7 +83,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
         kitchenOrder.startPrep();
         kitchenOrder.startBake();
 
-        when(eventLog.eventsBy(new Topic("kitchen_orders")))
+        when(eventLog.eventsBy(Topic.of("kitchen_orders"), ref))
                 .thenReturn(Arrays.asList(new KitchenOrderAddedEvent(ref, kitchenOrder.state()),
                         new KitchenOrderPrepStartedEvent(ref),
                         new KitchenOrderBakeStartedEvent(ref)));
@@ -99,7 +99,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
         kitchenOrder.startBake();
         kitchenOrder.startAssembly();
 
-        when(eventLog.eventsBy(new Topic("kitchen_orders")))
+        when(eventLog.eventsBy(Topic.of("kitchen_orders"), ref))
                 .thenReturn(Arrays.asList(new KitchenOrderAddedEvent(ref, kitchenOrder.state()),
                         new KitchenOrderPrepStartedEvent(ref),
                         new KitchenOrderBakeStartedEvent(ref),
@@ -117,7 +117,7 @@ public class InProcessEventSourcedKitchenOrderRepositoryTests {
         kitchenOrder.startAssembly();
         kitchenOrder.finishAssembly();
 
-        when(eventLog.eventsBy(new Topic("kitchen_orders")))
+        when(eventLog.eventsBy(Topic.of("kitchen_orders"), ref))
                 .thenReturn(Arrays.asList(new KitchenOrderAddedEvent(ref, kitchenOrder.state()),
                         new KitchenOrderPrepStartedEvent(ref),
                         new KitchenOrderBakeStartedEvent(ref),
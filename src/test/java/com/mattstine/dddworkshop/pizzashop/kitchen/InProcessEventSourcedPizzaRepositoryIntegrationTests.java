@@ -1,14 +1,23 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.ParallelStartupReplay;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
 import com.mattstine.lab.infrastructure.Lab5Tests;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Matt Stine
@@ -24,7 +33,7 @@ public class InProcessEventSourcedPizzaRepositoryIntegrationTests {
 	public void setUp() {
 		eventLog = InProcessEventLog.instance();
 		repository = new InProcessEventSourcedPizzaRepository(eventLog,
-				new Topic("pizzas"));
+				Topic.of("pizzas"));
 		PizzaRef ref = repository.nextIdentity();
 		kitchenOrderRef = new KitchenOrderRef();
 		pizza = Pizza.builder()
@@ -47,4 +56,86 @@ public class InProcessEventSourcedPizzaRepositoryIntegrationTests {
 
 		assertThat(repository.findPizzasByKitchenOrderRef(kitchenOrderRef)).contains(pizza);
 	}
+
+	@Test
+	public void add_all_adds_a_catering_order_in_one_batch() {
+		List<Pizza> pizzas = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			pizzas.add(Pizza.builder()
+					.ref(repository.nextIdentity())
+					.kitchenOrderRef(kitchenOrderRef)
+					.eventLog(eventLog)
+					.size(Pizza.Size.LARGE)
+					.build());
+		}
+
+		repository.addAll(pizzas);
+
+		assertThat(repository.findPizzasByKitchenOrderRef(kitchenOrderRef)).containsExactlyInAnyOrderElementsOf(pizzas);
+		assertThat(pizzas).allMatch(p -> p.version() == 1);
+	}
+
+	@Test
+	public void add_all_adds_none_when_one_pizza_was_already_added() {
+		repository.add(pizza);
+		Pizza another = Pizza.builder()
+				.ref(repository.nextIdentity())
+				.kitchenOrderRef(kitchenOrderRef)
+				.eventLog(eventLog)
+				.size(Pizza.Size.SMALL)
+				.build();
+		Pizza again = Pizza.builder()
+				.ref(pizza.getRef())
+				.kitchenOrderRef(kitchenOrderRef)
+				.eventLog(eventLog)
+				.size(Pizza.Size.MEDIUM)
+				.build();
+
+		assertThatThrownBy(() -> repository.addAll(Arrays.asList(another, again)))
+				.isInstanceOf(VersionConflictException.class);
+		assertThat(eventLog.getVersion(Topic.of("pizzas"), another.getRef())).isZero();
+	}
+
+	@Test
+	public void find_by_refs_hydrates_every_pizza_in_the_order_given() {
+		List<Pizza> pizzas = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Pizza p = Pizza.builder()
+					.ref(repository.nextIdentity())
+					.kitchenOrderRef(kitchenOrderRef)
+					.eventLog(eventLog)
+					.size(Pizza.Size.SMALL)
+					.build();
+			repository.add(p);
+			p.startPrep();
+			pizzas.add(p);
+		}
+		List<PizzaRef> refs = pizzas.stream().map(Pizza::getRef).collect(Collectors.toList());
+
+		Map<PizzaRef, Pizza> found = repository.findByRefs(refs);
+
+		assertThat(found.keySet()).containsExactlyElementsOf(refs);
+		assertThat(found.values()).containsExactlyElementsOf(pizzas).allMatch(Pizza::isPrepping);
+		assertThat(found.get(refs.get(0)).version()).isEqualTo(2);
+	}
+
+	@Test
+	public void startup_replay_indexes_history_before_going_live() {
+		repository.add(pizza);
+		ParallelStartupReplay startupReplay = new ParallelStartupReplay(eventLog);
+		PizzaRepository restarted = new InProcessEventSourcedPizzaRepository(startupReplay, Topic.of("pizzas"));
+		assertThat(restarted.findPizzasByKitchenOrderRef(kitchenOrderRef)).isEmpty();
+
+		startupReplay.replay();
+		assertThat(restarted.findPizzasByKitchenOrderRef(kitchenOrderRef)).contains(pizza);
+
+		Pizza another = Pizza.builder()
+				.ref(restarted.nextIdentity())
+				.kitchenOrderRef(kitchenOrderRef)
+				.eventLog(eventLog)
+				.size(Pizza.Size.SMALL)
+				.build();
+		restarted.add(another);
+		assertThat(restarted.findPizzasByKitchenOrderRef(kitchenOrderRef)).contains(pizza, another);
+	}
 }
@@ -1,8 +1,11 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CachePolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.CacheStats;
 import com.mattstine.lab.infrastructure.Lab3Tests;
 import com.mattstine.lab.infrastructure.Lab4Tests;
 import com.mattstine.lab.infrastructure.Lab5Tests;
@@ -12,6 +15,8 @@ import org.junit.experimental.categories.Category;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -27,7 +32,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
     public void setUp() {
         eventLog = mock(EventLog.class);
         repository = new InProcessEventSourcedPizzaRepository(eventLog,
-                new Topic("pizzas"));
+                Topic.of("pizzas"));
         ref = repository.nextIdentity();
         pizza = Pizza.builder()
                 .ref(ref)
@@ -49,7 +54,29 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         repository.add(pizza);
         assertThat(pizza.state()).isNotNull();
         PizzaAddedEvent event = new PizzaAddedEvent(ref, pizza.state());
-        verify(eventLog).publish(eq(new Topic("pizzas")), eq(event));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(0L), eq(event));
+    }
+
+    @Test
+    public void add_all_fires_every_event_in_one_append() {
+        Pizza another = Pizza.builder()
+                .ref(repository.nextIdentity())
+                .size(Pizza.Size.LARGE)
+                .kitchenOrderRef(pizza.getKitchenOrderRef())
+                .eventLog(eventLog)
+                .build();
+
+        repository.addAll(Arrays.asList(pizza, another));
+
+        Map<PizzaRef, Long> expectedVersions = new HashMap<>();
+        expectedVersions.put(ref, 0L);
+        expectedVersions.put(another.getRef(), 0L);
+        verify(eventLog).appendAll(eq(Topic.of("pizzas")), eq(expectedVersions), eq(Arrays.asList(
+                new PizzaAddedEvent(ref, pizza.state()),
+                new PizzaAddedEvent(another.getRef(), another.state()))));
+        verify(eventLog, never()).append(any(), anyLong(), any());
+        assertThat(pizza.version()).isEqualTo(1);
+        assertThat(another.version()).isEqualTo(1);
     }
 
     @Test
@@ -57,7 +84,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
     public void find_by_ref_hydrates_added_pizza() {
         repository.add(pizza);
 
-        when(eventLog.eventsBy(new Topic("pizzas")))
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
                 .thenReturn(Collections.singletonList(new PizzaAddedEvent(ref, pizza.state())));
 
         assertThat(repository.findByRef(ref)).isEqualTo(pizza);
@@ -69,7 +96,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         repository.add(pizza);
         pizza.startPrep();
 
-        when(eventLog.eventsBy(new Topic("pizzas")))
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
                 .thenReturn(Arrays.asList(new PizzaAddedEvent(ref, pizza.state()),
                         new PizzaPrepStartedEvent(ref)));
 
@@ -83,7 +110,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         pizza.startPrep();
         pizza.finishPrep();
 
-        when(eventLog.eventsBy(new Topic("pizzas")))
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
                 .thenReturn(Arrays.asList(new PizzaAddedEvent(ref, pizza.state()),
                         new PizzaPrepStartedEvent(ref),
                         new PizzaPrepFinishedEvent(ref)));
@@ -99,7 +126,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         pizza.finishPrep();
         pizza.startBake();
 
-        when(eventLog.eventsBy(new Topic("pizzas")))
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
                 .thenReturn(Arrays.asList(new PizzaAddedEvent(ref, pizza.state()),
                         new PizzaPrepStartedEvent(ref),
                         new PizzaPrepFinishedEvent(ref),
@@ -117,7 +144,7 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         pizza.startBake();
         pizza.finishBake();
 
-        when(eventLog.eventsBy(new Topic("pizzas")))
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
                 .thenReturn(Arrays.asList(new PizzaAddedEvent(ref, pizza.state()),
                         new PizzaPrepStartedEvent(ref),
                         new PizzaPrepFinishedEvent(ref),
@@ -127,9 +154,49 @@ public class InProcessEventSourcedPizzaRepositoryTests {
         assertThat(repository.findByRef(ref)).isEqualTo(pizza);
     }
 
+    @Test
+    public void find_by_ref_with_cache_applies_only_new_events() {
+        InProcessEventSourcedPizzaRepository cachingRepository = new InProcessEventSourcedPizzaRepository(eventLog,
+                Topic.of("pizzas"), CachePolicy.maximumSize(10));
+        cachingRepository.add(pizza);
+        PizzaAddedEvent addedEvent = new PizzaAddedEvent(ref, pizza.state());
+        pizza.startPrep();
+
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
+                .thenReturn(Arrays.asList(addedEvent, new PizzaPrepStartedEvent(ref)));
+        assertThat(cachingRepository.findByRef(ref)).isEqualTo(pizza);
+
+        pizza.finishPrep();
+        /*
+         * the cached pizza already reflects the first two events, so a full replay
+         * from these placeholders would not match
+         */
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref))
+                .thenReturn(Arrays.asList(new PizzaBakeFinishedEvent(ref),
+                        new PizzaBakeFinishedEvent(ref),
+                        new PizzaPrepFinishedEvent(ref)));
+        assertThat(cachingRepository.findByRef(ref)).isEqualTo(pizza);
+
+        assertThat(cachingRepository.cacheStats()).isEqualTo(new CacheStats(1, 1, 0, 1));
+    }
+
+    @Test
+    public void find_by_ref_with_cache_returns_independent_instances() {
+        InProcessEventSourcedPizzaRepository cachingRepository = new InProcessEventSourcedPizzaRepository(eventLog,
+                Topic.of("pizzas"), CachePolicy.maximumSize(10));
+        PizzaAddedEvent added = new PizzaAddedEvent(ref, pizza.state());
+        when(eventLog.eventsBy(Topic.of("pizzas"), ref)).thenReturn(Collections.singletonList(added));
+        // rehydrated pizzas append to the shared log, so their stream must be at the version they were loaded at
+        InProcessEventLog.instance().publish(Topic.of("pizzas"), added);
+
+        cachingRepository.findByRef(ref).startPrep();
+
+        assertThat(cachingRepository.findByRef(ref)).isEqualTo(pizza);
+    }
+
     @Test
     @Category(Lab5Tests.class)
     public void subscribes_to_pizzas_topic() {
-        verify(eventLog).subscribe(eq(new Topic("pizzas")), isA(EventHandler.class));
+        verify(eventLog).subscribe(eq(Topic.of("pizzas")), eq(EventLog.FROM_BEGINNING), isA(EventHandler.class));
     }
 }
@@ -0,0 +1,28 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
+
+/**
+ * Wires the kitchen context for benchmarks in other packages.
+ *
+ * @author Matt Stine
+ */
+public final class KitchenBenchmarkSupport {
+
+    private KitchenBenchmarkSupport() {
+    }
+
+    public static KitchenService kitchenService(EventLog eventLog, OrderingService orderingService) {
+        return kitchenService(eventLog, orderingService, AggregateExecutor.DIRECT);
+    }
+
+    public static KitchenService kitchenService(EventLog eventLog, OrderingService orderingService, AggregateExecutor aggregateExecutor) {
+        return new DefaultKitchenService(eventLog,
+                new InProcessEventSourcedKitchenOrderRepository(eventLog, KitchenOrder.TOPIC),
+                new InProcessEventSourcedPizzaRepository(eventLog, Pizza.TOPIC),
+                orderingService,
+                aggregateExecutor);
+    }
+}
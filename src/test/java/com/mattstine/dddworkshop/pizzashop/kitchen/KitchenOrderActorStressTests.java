@@ -0,0 +1,130 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.VirtualThreadAggregateExecutor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Thousands of kitchen orders whose pizzas are all taken through prep and bake at once, each pizza on
+ * its own virtual thread, so pizzas of one order race each other. With commands and handlers serialized
+ * per kitchen order, every transition must be recorded exactly once.
+ *
+ * @author Matt Stine
+ */
+public class KitchenOrderActorStressTests {
+    private static final int ORDERS = 2_000;
+    private static final int PIZZAS_PER_ORDER = 4;
+    private static final Topic KITCHEN_ORDERS = Topic.of("kitchen_orders");
+    private static final Topic PIZZAS = Topic.of("pizzas");
+
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private final InProcessEventLog eventLog = InProcessEventLog.instance();
+    private final KitchenOrderRepository kitchenOrderRepository =
+            new InProcessEventSourcedKitchenOrderRepository(eventLog, KITCHEN_ORDERS);
+    private final PizzaRepository pizzaRepository = new InProcessEventSourcedPizzaRepository(eventLog, PIZZAS);
+    private final KitchenService kitchenService = new DefaultKitchenService(eventLog, kitchenOrderRepository,
+            pizzaRepository, mock(OrderingService.class), new VirtualThreadAggregateExecutor(
+            Thread.ofVirtual().uncaughtExceptionHandler((thread, ex) -> failures.add(ex)).factory()));
+
+    @After
+    public void tearDown() {
+        eventLog.purgeSubscribers();
+    }
+
+    @Test
+    public void concurrent_pizza_commands_lose_no_kitchen_order_transitions() throws Exception {
+        List<KitchenOrderRef> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(startPrepOfNewOrder());
+        }
+        List<Pizza> pizzas = new ArrayList<>(ORDERS * PIZZAS_PER_ORDER);
+        for (KitchenOrderRef order : orders) {
+            pizzas.addAll(await(() -> {
+                List<Pizza> found = new ArrayList<>(kitchenService.findPizzasByKitchenOrderRef(order));
+                return found.size() == PIZZAS_PER_ORDER ? found : null;
+            }));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> cooks = new ArrayList<>(pizzas.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Pizza pizza : pizzas) {
+                cooks.add(executor.submit(() -> {
+                    start.await();
+                    kitchenService.finishPizzaPrep(pizza.getRef());
+                    await(() -> kitchenService.findPizzaByRef(pizza.getRef()).isBaking() ? pizza : null);
+                    kitchenService.removePizzaFromOven(pizza.getRef());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> cook : cooks) {
+                cook.get(2, TimeUnit.MINUTES);
+            }
+        }
+        for (KitchenOrderRef order : orders) {
+            await(() -> kitchenService.findKitchenOrderByRef(order).getState() == KitchenOrder.State.ASSEMBLED ? order : null);
+        }
+
+        assertThat(failures).isEmpty();
+        for (KitchenOrderRef order : orders) {
+            assertThat(count(KITCHEN_ORDERS, order, KitchenOrderBakeStartedEvent.class)).isEqualTo(1);
+            assertThat(count(KITCHEN_ORDERS, order, KitchenOrderAssemblyStartedEvent.class)).isEqualTo(1);
+            assertThat(count(KITCHEN_ORDERS, order, KitchenOrderAssemblyFinishedEvent.class)).isEqualTo(1);
+        }
+        for (Pizza pizza : pizzas) {
+            assertThat(count(PIZZAS, pizza.getRef(), PizzaPrepFinishedEvent.class)).isEqualTo(1);
+            assertThat(count(PIZZAS, pizza.getRef(), PizzaBakeStartedEvent.class)).isEqualTo(1);
+            assertThat(count(PIZZAS, pizza.getRef(), PizzaBakeFinishedEvent.class)).isEqualTo(1);
+        }
+    }
+
+    private KitchenOrderRef startPrepOfNewOrder() {
+        KitchenOrder.KitchenOrderBuilder builder = KitchenOrder.builder()
+                .ref(kitchenOrderRepository.nextIdentity())
+                .onlineOrderRef(new OnlineOrderRef())
+                .eventLog(eventLog);
+        for (int i = 0; i < PIZZAS_PER_ORDER; i++) {
+            builder.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build());
+        }
+        KitchenOrder order = builder.build();
+        kitchenOrderRepository.add(order);
+        kitchenService.startOrderPrep(order.getRef());
+        return order.getRef();
+    }
+
+    private long count(Topic topic, Ref ref, Class<? extends Event> type) {
+        return eventLog.eventsBy(topic, ref).stream().filter(type::isInstance).count();
+    }
+
+    private static <T> T await(Supplier<T> probe) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        T value;
+        while ((value = probe.get()) == null) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for the kitchen");
+            }
+            Thread.sleep(1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InProcessEventSourcedKitchenOrderRepository} operations against a topic already holding
+ * {@code aggregatesOnTopic} prepping kitchen orders.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KitchenOrderRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int aggregatesOnTopic;
+
+    private KitchenOrderRepository repository;
+    private KitchenOrderRef[] refs;
+    private OnlineOrderRef[] onlineOrderRefs;
+    private KitchenOrder newOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        repository = new InProcessEventSourcedKitchenOrderRepository(eventLog, Topic.of("kitchen_orders"));
+
+        refs = new KitchenOrderRef[aggregatesOnTopic];
+        onlineOrderRefs = new OnlineOrderRef[aggregatesOnTopic];
+        for (int i = 0; i < aggregatesOnTopic; i++) {
+            KitchenOrder kitchenOrder = kitchenOrder(eventLog);
+            repository.add(kitchenOrder);
+            kitchenOrder.startPrep();
+            refs[i] = kitchenOrder.getRef();
+            onlineOrderRefs[i] = kitchenOrder.getOnlineOrderRef();
+        }
+        newOrder = kitchenOrder(eventLog);
+    }
+
+    private KitchenOrder kitchenOrder(InProcessEventLog eventLog) {
+        return KitchenOrder.builder()
+                .ref(repository.nextIdentity())
+                .onlineOrderRef(new OnlineOrderRef())
+                .pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build())
+                .pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.LARGE).build())
+                .eventLog(eventLog)
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(newOrder);
+    }
+
+    @Benchmark
+    public KitchenOrder findByRef() {
+        return repository.findByRef(refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+    }
+
+    @Benchmark
+    public KitchenOrder findByOnlineOrderRef() {
+        return repository.findByOnlineOrderRef(onlineOrderRefs[ThreadLocalRandom.current().nextInt(onlineOrderRefs.length)]);
+    }
+}
@@ -113,7 +113,7 @@ public class KitchenOrderTests {
     @Category(Lab2Tests.class)
     public void start_order_prep_fires_event() {
         kitchenOrder.startPrep();
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(0L), isA(KitchenOrderPrepStartedEvent.class));
     }
 
     @Test
@@ -121,8 +121,8 @@ public class KitchenOrderTests {
     public void start_order_bake_fires_event() {
         kitchenOrder.startPrep();
         kitchenOrder.startBake();
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderBakeStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(0L), isA(KitchenOrderPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(1L), isA(KitchenOrderBakeStartedEvent.class));
     }
 
     @Test
@@ -131,9 +131,9 @@ public class KitchenOrderTests {
         kitchenOrder.startPrep();
         kitchenOrder.startBake();
         kitchenOrder.startAssembly();
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderBakeStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderAssemblyStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(0L), isA(KitchenOrderPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(1L), isA(KitchenOrderBakeStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(2L), isA(KitchenOrderAssemblyStartedEvent.class));
     }
 
     @Test
@@ -143,10 +143,10 @@ public class KitchenOrderTests {
         kitchenOrder.startBake();
         kitchenOrder.startAssembly();
         kitchenOrder.finishAssembly();
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderBakeStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderAssemblyStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("kitchen_orders")), isA(KitchenOrderAssemblyFinishedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(0L), isA(KitchenOrderPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(1L), isA(KitchenOrderBakeStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(2L), isA(KitchenOrderAssemblyStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("kitchen_orders")), eq(3L), isA(KitchenOrderAssemblyFinishedEvent.class));
     }
 
     @Test
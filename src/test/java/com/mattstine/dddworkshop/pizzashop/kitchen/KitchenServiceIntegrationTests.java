@@ -1,6 +1,7 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderPaidEvent;
@@ -12,7 +13,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
@@ -33,9 +42,9 @@ public class KitchenServiceIntegrationTests {
 	public void setUp() {
 		eventLog = InProcessEventLog.instance();
 		kitchenOrderRepository = new InProcessEventSourcedKitchenOrderRepository(eventLog,
-				new Topic("kitchen_orders"));
+				Topic.of("kitchen_orders"));
 		pizzaRepository = new InProcessEventSourcedPizzaRepository(eventLog,
-				new Topic("pizzas"));
+				Topic.of("pizzas"));
 		orderingService = mock(OrderingService.class);
 		kitchenService = new DefaultKitchenService(eventLog, kitchenOrderRepository, pizzaRepository, orderingService);
 		kitchenOrderRef = kitchenOrderRepository.nextIdentity();
@@ -72,7 +81,7 @@ public class KitchenServiceIntegrationTests {
 
 		when(orderingService.findByRef(eq(ref))).thenReturn(onlineOrder);
 
-		eventLog.publish(new Topic("ordering"), orderPaidEvent);
+		eventLog.publish(Topic.of("ordering"), orderPaidEvent);
 
 		KitchenOrder kitchenOrder = kitchenService.findKitchenOrderByOnlineOrderRef(ref);
 		assertThat(kitchenOrder).isNotNull();
@@ -206,5 +215,108 @@ public class KitchenServiceIntegrationTests {
 		assertThat(kitchenOrder.hasFinishedAssembly()).isTrue();
 	}
 
+	@Test
+	@Category(Lab6Tests.class)
+	public void concurrent_oven_removals_finish_assembly_exactly_once() throws Exception {
+		for (int round = 0; round < 300; round++) {
+			KitchenOrder.KitchenOrderBuilder builder = KitchenOrder.builder()
+					.ref(kitchenOrderRepository.nextIdentity())
+					.onlineOrderRef(new OnlineOrderRef())
+					.eventLog(eventLog);
+			for (int i = 0; i < 8; i++) {
+				builder.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build());
+			}
+			KitchenOrder order = builder.build();
+			kitchenOrderRepository.add(order);
+			kitchenService.startOrderPrep(order.getRef());
+			Set<Pizza> pizzas = kitchenService.findPizzasByKitchenOrderRef(order.getRef());
+			pizzas.forEach(pizza -> kitchenService.finishPizzaPrep(pizza.getRef()));
+
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(pizzas.size());
+			try {
+				List<Future<?>> removals = new ArrayList<>();
+				for (Pizza pizza : pizzas) {
+					removals.add(executor.submit(() -> {
+						start.await();
+						kitchenService.removePizzaFromOven(pizza.getRef());
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> removal : removals) {
+					removal.get(1, TimeUnit.MINUTES);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			assertThat(kitchenService.findKitchenOrderByRef(order.getRef()).hasFinishedAssembly()).isTrue();
+			assertThat(eventLog.eventsBy(Topic.of("kitchen_orders"), order.getRef()))
+					.filteredOn(e -> e instanceof KitchenOrderAssemblyStartedEvent || e instanceof KitchenOrderAssemblyFinishedEvent)
+					.hasSize(2);
+		}
+	}
+
+	@Test
+	public void prepped_pizzas_wait_for_a_free_oven_slot() {
+		eventLog.purgeSubscribers();
+		kitchenOrderRepository = new InProcessEventSourcedKitchenOrderRepository(eventLog,
+				Topic.of("kitchen_orders"));
+		pizzaRepository = new InProcessEventSourcedPizzaRepository(eventLog,
+				Topic.of("pizzas"));
+		DefaultKitchenService scheduledKitchen = new DefaultKitchenService(eventLog, kitchenOrderRepository,
+				pizzaRepository, orderingService, AggregateExecutor.DIRECT, OvenPolicy.fifo(1, 1));
+		scheduledKitchen.startOrderPrep(kitchenOrderRef);
+
+		scheduledKitchen.findPizzasByKitchenOrderRef(kitchenOrderRef)
+				.forEach(pizza -> scheduledKitchen.finishPizzaPrep(pizza.getRef()));
+
+		Pizza baking = onlyPizzaBaking(scheduledKitchen);
+		assertThat(scheduledKitchen.getOvenScheduler().stats().getQueued()).isEqualTo(1);
+
+		scheduledKitchen.removePizzaFromOven(baking.getRef());
+
+		Pizza next = onlyPizzaBaking(scheduledKitchen);
+		assertThat(next.getRef()).isNotEqualTo(baking.getRef());
+		scheduledKitchen.removePizzaFromOven(next.getRef());
+		assertThat(scheduledKitchen.findKitchenOrderByRef(kitchenOrderRef).hasFinishedAssembly()).isTrue();
+	}
 
+	@Test
+	public void pizzas_wait_for_a_free_prep_station() {
+		eventLog.purgeSubscribers();
+		kitchenOrderRepository = new InProcessEventSourcedKitchenOrderRepository(eventLog,
+				Topic.of("kitchen_orders"));
+		pizzaRepository = new InProcessEventSourcedPizzaRepository(eventLog,
+				Topic.of("pizzas"));
+		DefaultKitchenService stationedKitchen = new DefaultKitchenService(eventLog, kitchenOrderRepository,
+				pizzaRepository, orderingService, AggregateExecutor.DIRECT, OvenPolicy.unlimited(), 1);
+		stationedKitchen.startOrderPrep(kitchenOrderRef);
+
+		List<Pizza> prepping = pizzasPrepping(stationedKitchen);
+		assertThat(prepping).hasSize(1);
+		assertThat(stationedKitchen.getPrepDispatcher().stats().getQueued()).isEqualTo(1);
+
+		stationedKitchen.finishPizzaPrep(prepping.get(0).getRef());
+
+		List<Pizza> next = pizzasPrepping(stationedKitchen);
+		assertThat(next).hasSize(1);
+		assertThat(next.get(0).getRef()).isNotEqualTo(prepping.get(0).getRef());
+		assertThat(stationedKitchen.getPrepDispatcher().stats().getPrepared()).containsExactly(2);
+	}
+
+	private List<Pizza> pizzasPrepping(KitchenService kitchen) {
+		return kitchen.findPizzasByKitchenOrderRef(kitchenOrderRef).stream()
+				.filter(Pizza::isPrepping)
+				.collect(Collectors.toList());
+	}
+
+	private Pizza onlyPizzaBaking(KitchenService kitchen) {
+		List<Pizza> baking = kitchen.findPizzasByKitchenOrderRef(kitchenOrderRef).stream()
+				.filter(Pizza::isBaking)
+				.collect(Collectors.toList());
+		assertThat(baking).hasSize(1);
+		return baking.get(0);
+	}
 }
@@ -1,37 +1,43 @@
 package com.mattstine.dddworkshop.pizzashop.kitchen;
 
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
 import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
 import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
 import com.mattstine.lab.infrastructure.Lab6Tests;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 public class KitchenServiceTests {
 
 	private KitchenService service;
 	private KitchenOrderRepository kitchenOrderRepository;
+	private PizzaRepository pizzaRepository;
 	private EventLog eventLog;
+	private OrderingService orderingService;
 
 	@Before
 	public void setUp() {
 		eventLog = mock(EventLog.class);
 		kitchenOrderRepository = mock(KitchenOrderRepository.class);
-		PizzaRepository pizzaRepository = mock(PizzaRepository.class);
-		OrderingService orderingService = mock(OrderingService.class);
+		pizzaRepository = mock(PizzaRepository.class);
+		orderingService = mock(OrderingService.class);
 		service = new DefaultKitchenService(eventLog, kitchenOrderRepository, pizzaRepository, orderingService);
 	}
 
 	@Test
 	@Category(Lab6Tests.class)
 	public void subscribes_to_ordering_topic() {
-		verify(eventLog).subscribe(eq(new Topic("ordering")), isA(EventHandler.class));
+		verify(eventLog).subscribe(eq(Topic.of("ordering")), isA(EventHandler.class));
 	}
 
 	@Test
@@ -53,13 +59,137 @@ public class KitchenServiceTests {
 	@Test
 	@Category(Lab6Tests.class)
 	public void subscribes_to_kitchen_orders_topic() {
-		verify(eventLog).subscribe(eq(new Topic("kitchen_orders")), isA(EventHandler.class));
+		verify(eventLog).subscribe(eq(Topic.of("kitchen_orders")), isA(EventHandler.class));
 	}
 
 	@Test
 	@Category(Lab6Tests.class)
 	public void subscribes_to_pizzas_topic() {
-		verify(eventLog).subscribe(eq(new Topic("pizzas")), isA(EventHandler.class));
+		verify(eventLog).subscribe(eq(Topic.of("pizzas")), isA(EventHandler.class));
 	}
 
+	@Test
+	@Category(Lab6Tests.class)
+	public void last_pizza_out_of_the_oven_finishes_assembly_without_loading_the_orders_pizzas() {
+		KitchenOrder kitchenOrder = KitchenOrder.builder()
+				.eventLog(eventLog)
+				.onlineOrderRef(new OnlineOrderRef())
+				.ref(new KitchenOrderRef())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.LARGE).build())
+				.build();
+		kitchenOrder.startPrep();
+		kitchenOrder.startBake();
+		when(kitchenOrderRepository.findByRef(kitchenOrder.getRef())).thenReturn(kitchenOrder);
+		when(pizzaRepository.nextIdentity()).thenAnswer(invocation -> new PizzaRef());
+		PizzaRef first = new PizzaRef();
+		PizzaRef second = new PizzaRef();
+		when(pizzaRepository.findByRef(any(PizzaRef.class))).thenAnswer(invocation -> Pizza.builder()
+				.ref(invocation.getArgument(0))
+				.kitchenOrderRef(kitchenOrder.getRef())
+				.size(Pizza.Size.MEDIUM)
+				.eventLog(eventLog)
+				.build());
+
+		handlerOf(Topic.of("kitchen_orders")).handleEvent(new KitchenOrderPrepStartedEvent(kitchenOrder.getRef()));
+		EventHandler pizzaHandler = handlerOf(Topic.of("pizzas"));
+		pizzaHandler.handleEvent(new PizzaBakeFinishedEvent(first));
+		assertThat(kitchenOrder.hasStartedAssembly()).isTrue();
+		pizzaHandler.handleEvent(new PizzaBakeFinishedEvent(second));
+
+		assertThat(kitchenOrder.hasFinishedAssembly()).isTrue();
+		verify(pizzaRepository, never()).findPizzasByKitchenOrderRef(any());
+	}
+
+	@Test
+	@Category(Lab6Tests.class)
+	public void redelivered_events_do_not_count_a_pizza_twice() {
+		KitchenOrder kitchenOrder = KitchenOrder.builder()
+				.eventLog(eventLog)
+				.onlineOrderRef(new OnlineOrderRef())
+				.ref(new KitchenOrderRef())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.LARGE).build())
+				.build();
+		kitchenOrder.startPrep();
+		kitchenOrder.startBake();
+		when(kitchenOrderRepository.findByRef(kitchenOrder.getRef())).thenReturn(kitchenOrder);
+		when(pizzaRepository.nextIdentity()).thenAnswer(invocation -> new PizzaRef());
+		PizzaRef first = new PizzaRef();
+		when(pizzaRepository.findByRef(any(PizzaRef.class))).thenAnswer(invocation -> Pizza.builder()
+				.ref(invocation.getArgument(0))
+				.kitchenOrderRef(kitchenOrder.getRef())
+				.size(Pizza.Size.MEDIUM)
+				.eventLog(eventLog)
+				.build());
+
+		EventHandler kitchenOrderHandler = handlerOf(Topic.of("kitchen_orders"));
+		kitchenOrderHandler.handleEvent(new KitchenOrderPrepStartedEvent(kitchenOrder.getRef()));
+		kitchenOrderHandler.handleEvent(new KitchenOrderPrepStartedEvent(kitchenOrder.getRef()));
+		EventHandler pizzaHandler = handlerOf(Topic.of("pizzas"));
+		pizzaHandler.handleEvent(new PizzaBakeFinishedEvent(first));
+		pizzaHandler.handleEvent(new PizzaBakeFinishedEvent(first));
+
+		assertThat(kitchenOrder.hasStartedAssembly()).isTrue();
+		verify(pizzaRepository, times(1)).addAll(any());
+	}
+
+	@Test
+	@Category(Lab6Tests.class)
+	public void pizza_that_fails_to_go_into_the_oven_frees_its_slot() {
+		eventLog = mock(EventLog.class);
+		DefaultKitchenService scheduledKitchen = new DefaultKitchenService(eventLog, kitchenOrderRepository,
+				pizzaRepository, orderingService, AggregateExecutor.DIRECT, OvenPolicy.fifo(1, 1));
+		KitchenOrder kitchenOrder = KitchenOrder.builder()
+				.eventLog(eventLog)
+				.onlineOrderRef(new OnlineOrderRef())
+				.ref(new KitchenOrderRef())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build())
+				.build();
+		when(kitchenOrderRepository.findByRef(kitchenOrder.getRef())).thenReturn(kitchenOrder);
+		// A NEW pizza cannot start baking
+		when(pizzaRepository.findByRef(any(PizzaRef.class))).thenAnswer(invocation -> Pizza.builder()
+				.ref(invocation.getArgument(0))
+				.kitchenOrderRef(kitchenOrder.getRef())
+				.size(Pizza.Size.MEDIUM)
+				.eventLog(eventLog)
+				.build());
+
+		assertThatThrownBy(() -> handlerOf(Topic.of("pizzas")).handleEvent(new PizzaPrepFinishedEvent(new PizzaRef())))
+				.isInstanceOf(IllegalStateException.class);
+
+		assertThat(scheduledKitchen.getOvenScheduler().stats().getBaking()).isEqualTo(0);
+	}
+
+	@Test
+	@Category(Lab6Tests.class)
+	public void gives_up_on_an_order_that_keeps_conflicting() {
+		KitchenOrder kitchenOrder = KitchenOrder.builder()
+				.eventLog(eventLog)
+				.onlineOrderRef(new OnlineOrderRef())
+				.ref(new KitchenOrderRef())
+				.pizza(KitchenOrder.Pizza.builder().size(KitchenOrder.Pizza.Size.MEDIUM).build())
+				.build();
+		kitchenOrder.startPrep();
+		when(kitchenOrderRepository.findByRef(kitchenOrder.getRef())).thenReturn(kitchenOrder);
+		when(pizzaRepository.findByRef(any(PizzaRef.class))).thenAnswer(invocation -> Pizza.builder()
+				.ref(invocation.getArgument(0))
+				.kitchenOrderRef(kitchenOrder.getRef())
+				.size(Pizza.Size.MEDIUM)
+				.eventLog(eventLog)
+				.build());
+		doThrow(new VersionConflictException(kitchenOrder.getRef(), 1, 2))
+				.when(eventLog).append(any(Topic.class), anyLong(), any(KitchenOrderBakeStartedEvent.class));
+
+		assertThatThrownBy(() -> handlerOf(Topic.of("pizzas")).handleEvent(new PizzaBakeStartedEvent(new PizzaRef())))
+				.isInstanceOf(VersionConflictException.class);
+
+		verify(kitchenOrderRepository, times(DefaultKitchenService.MAX_CONFLICT_ATTEMPTS)).findByRef(kitchenOrder.getRef());
+	}
+
+	private EventHandler handlerOf(Topic topic) {
+		ArgumentCaptor<EventHandler> handler = ArgumentCaptor.forClass(EventHandler.class);
+		verify(eventLog).subscribe(eq(topic), handler.capture());
+		return handler.getValue();
+	}
 }
@@ -0,0 +1,78 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.ParallelStartupReplay;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-to-ready of the kitchen's secondary indexes over {@code events} historical events, three
+ * five-event pizzas per kitchen order. {@code sequentialCatchUp} is what the repositories do on their
+ * own; {@code parallelReplay} defers their catch-up to a {@link ParallelStartupReplay} with
+ * {@code parallelism} workers.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KitchenStartupReplayBenchmark {
+    private static final int PIZZAS_PER_ORDER = 3;
+
+    @Param({"2000000"})
+    int events;
+
+    @Param({"1", "8"})
+    int parallelism;
+
+    private final Topic kitchenOrders = Topic.of("startup_kitchen_orders");
+    private final Topic pizzas = Topic.of("startup_pizzas");
+    private InProcessEventLog eventLog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventLog = InProcessEventLog.instance();
+        for (int published = 0; published < events; ) {
+            KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+            eventLog.publish(kitchenOrders, new KitchenOrderAddedEvent(kitchenOrderRef,
+                    new KitchenOrder.OrderState(kitchenOrderRef, new OnlineOrderRef(), Collections.emptyList(), KitchenOrder.State.NEW)));
+            published++;
+            for (int i = 0; i < PIZZAS_PER_ORDER; i++) {
+                PizzaRef ref = new PizzaRef();
+                eventLog.publish(pizzas, new PizzaAddedEvent(ref,
+                        new Pizza.PizzaState(ref, kitchenOrderRef, Pizza.Size.MEDIUM, Pizza.State.NEW)));
+                eventLog.publish(pizzas, new PizzaPrepStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaPrepFinishedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeFinishedEvent(ref));
+                published += 5;
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void unsubscribe() {
+        eventLog.purgeSubscribers();
+    }
+
+    @Benchmark
+    public PizzaRepository sequentialCatchUp() {
+        new InProcessEventSourcedKitchenOrderRepository(eventLog, kitchenOrders);
+        return new InProcessEventSourcedPizzaRepository(eventLog, pizzas);
+    }
+
+    @Benchmark
+    public ParallelStartupReplay.Report parallelReplay() {
+        ParallelStartupReplay startupReplay = new ParallelStartupReplay(eventLog, parallelism);
+        new InProcessEventSourcedKitchenOrderRepository(startupReplay, kitchenOrders);
+        new InProcessEventSourcedPizzaRepository(startupReplay, pizzas);
+        return startupReplay.replay();
+    }
+}
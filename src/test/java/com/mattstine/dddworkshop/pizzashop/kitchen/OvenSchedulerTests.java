@@ -0,0 +1,135 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author Matt Stine
+ */
+public class OvenSchedulerTests {
+    private final List<BakeRequest> started = new ArrayList<>();
+    private long now;
+
+    @Test
+    public void unlimited_ovens_start_every_pizza_at_once() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.unlimited());
+        BakeRequest first = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest second = request(1, OnlineOrder.Type.PICKUP);
+
+        scheduler.enqueue(first);
+        scheduler.enqueue(second);
+
+        assertThat(started).containsExactly(first, second);
+        assertThat(scheduler.stats().getQueued()).isZero();
+    }
+
+    @Test
+    public void full_ovens_hold_pizzas_until_a_slot_is_released() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.fifo(1, 2));
+        BakeRequest first = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest second = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest third = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest fourth = request(1, OnlineOrder.Type.PICKUP);
+
+        scheduler.enqueue(first);
+        scheduler.enqueue(second);
+        scheduler.enqueue(third);
+        scheduler.enqueue(fourth);
+        assertThat(started).containsExactly(first, second);
+
+        scheduler.release(second.getPizzaRef());
+
+        assertThat(started).containsExactly(first, second, third);
+        assertThat(scheduler.stats().getBaking()).isEqualTo(2);
+        assertThat(scheduler.stats().getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    public void shortest_order_first_admits_small_orders_ahead_of_large_ones() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.shortestOrderFirst(1, 1));
+        BakeRequest baking = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest large = request(6, OnlineOrder.Type.PICKUP);
+        BakeRequest small = request(2, OnlineOrder.Type.PICKUP);
+        scheduler.enqueue(baking);
+        scheduler.enqueue(large);
+        scheduler.enqueue(small);
+
+        scheduler.release(baking.getPizzaRef());
+
+        assertThat(started).containsExactly(baking, small);
+    }
+
+    @Test
+    public void deadline_aware_admits_the_earliest_deadline_first() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.deadlineAware(1, 1, Duration.ofMinutes(5), Duration.ofMinutes(20)));
+        BakeRequest baking = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest pickup = request(1, OnlineOrder.Type.PICKUP);
+        scheduler.enqueue(baking);
+        scheduler.enqueue(pickup);
+        now += TimeUnit.MINUTES.toNanos(10);
+        BakeRequest delivery = request(1, OnlineOrder.Type.DELIVERY);
+        scheduler.enqueue(delivery);
+
+        scheduler.release(baking.getPizzaRef());
+
+        assertThat(started).containsExactly(baking, delivery);
+    }
+
+    @Test
+    public void releasing_a_pizza_it_did_not_admit_frees_no_slot() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.fifo(1, 1));
+        BakeRequest baking = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest waiting = request(1, OnlineOrder.Type.PICKUP);
+        scheduler.enqueue(baking);
+        scheduler.enqueue(waiting);
+
+        scheduler.release(new PizzaRef());
+        scheduler.release(waiting.getPizzaRef());
+
+        assertThat(started).containsExactly(baking);
+    }
+
+    @Test
+    public void stats_report_queue_depths_and_waits() {
+        OvenScheduler scheduler = scheduler(OvenPolicy.fifo(1, 1));
+        BakeRequest first = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest second = request(1, OnlineOrder.Type.PICKUP);
+        BakeRequest third = request(1, OnlineOrder.Type.PICKUP);
+        scheduler.enqueue(first);
+        scheduler.enqueue(second);
+        scheduler.enqueue(third);
+        now += TimeUnit.SECONDS.toNanos(90);
+        scheduler.release(first.getPizzaRef());
+
+        OvenStats stats = scheduler.stats();
+
+        assertThat(stats.getSlots()).isEqualTo(1);
+        assertThat(stats.getAdmitted()).isEqualTo(2);
+        assertThat(stats.getQueueDepths().getCount()).isEqualTo(3);
+        assertThat(stats.getQueueDepths().getMax()).isEqualTo(1);
+        assertThat(stats.getWaitMillis().getCount()).isEqualTo(2);
+        assertThat(stats.getWaitMillis().getMax()).isEqualTo(90_000);
+        assertThat(stats.getWaitMillis().valueAtPercentile(50)).isZero();
+    }
+
+    @Test
+    public void rejects_ovens_without_slots() {
+        assertThatIllegalArgumentException().isThrownBy(() -> OvenPolicy.fifo(2, 0));
+    }
+
+    private OvenScheduler scheduler(OvenPolicy policy) {
+        return new OvenScheduler(policy, () -> now, started::add);
+    }
+
+    private static BakeRequest request(int orderSize, OnlineOrder.Type type) {
+        return new BakeRequest(new PizzaRef(), new KitchenOrderRef(), orderSize, type);
+    }
+}
@@ -0,0 +1,167 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated hour of the kitchen at {@value #ORDERS_PER_HOUR} orders an hour, driving an
+ * {@link OvenScheduler} on a virtual clock: orders of one to four pizzas arrive at random, half of them
+ * for delivery, every pizza is prepped in {@code prepSeconds} and baked in {@code bakeSeconds}, and the
+ * ovens hold {@code ovens} times {@value #SLOTS_PER_OVEN} pizzas. The score is the cost of scheduling
+ * the hour; how many delivery and pickup pizzas waited longer than their allowance, and how deep the
+ * queue was and how long pizzas waited, come out as {@link Outcome} counters for each admission policy.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OvenSchedulingSimulationBenchmark {
+    private static final int ORDERS_PER_HOUR = 2_000;
+    private static final int SLOTS_PER_OVEN = 8;
+    private static final Duration DELIVERY_ALLOWANCE = Duration.ofSeconds(20);
+    private static final Duration PICKUP_ALLOWANCE = Duration.ofSeconds(60);
+
+    @Param({"FIFO", "SHORTEST_ORDER_FIRST", "DEADLINE_AWARE"})
+    String admission;
+
+    @Param({"16", "20"})
+    int ovens;
+
+    @Param({"240"})
+    int prepSeconds;
+
+    @Param({"90"})
+    int bakeSeconds;
+
+    @Benchmark
+    public long simulateOneHour(Outcome outcome) {
+        Simulation simulation = new Simulation(policy());
+        simulation.run();
+        OvenStats stats = simulation.scheduler.stats();
+        outcome.pizzas += stats.getAdmitted();
+        outcome.lateDeliveries += simulation.lateDeliveries;
+        outcome.latePickups += simulation.latePickups;
+        outcome.queuedAhead += stats.getQueueDepths().getSum();
+        outcome.waitMillis += stats.getWaitMillis().getSum();
+        return stats.getAdmitted();
+    }
+
+    /**
+     * What the simulated hours left behind, reported by JMH next to the score. JMH adds the counters up
+     * over the measured iterations, so they are totals: divide {@code queuedAhead} and {@code waitMillis}
+     * by {@code pizzas} for the mean queue depth and wait.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long pizzas;
+        public long lateDeliveries;
+        public long latePickups;
+        public long queuedAhead;
+        public long waitMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pizzas = 0;
+            lateDeliveries = 0;
+            latePickups = 0;
+            queuedAhead = 0;
+            waitMillis = 0;
+        }
+    }
+
+    private OvenPolicy policy() {
+        switch (OvenPolicy.Admission.valueOf(admission)) {
+            case SHORTEST_ORDER_FIRST:
+                return OvenPolicy.shortestOrderFirst(ovens, SLOTS_PER_OVEN);
+            case DEADLINE_AWARE:
+                return OvenPolicy.deadlineAware(ovens, SLOTS_PER_OVEN, DELIVERY_ALLOWANCE, PICKUP_ALLOWANCE);
+            default:
+                return OvenPolicy.fifo(ovens, SLOTS_PER_OVEN);
+        }
+    }
+
+    /**
+     * Discrete-event simulation: pizzas becoming ready and coming out of the oven are steps on a
+     * virtual timeline, taken in time order.
+     */
+    private final class Simulation {
+        private final Random random = new Random(42);
+        private final PriorityQueue<Step> timeline = new PriorityQueue<>(
+                Comparator.comparingLong((Step s) -> s.at).thenComparingLong(s -> s.sequence));
+        private final Map<PizzaRef, Long> readyAt = new HashMap<>();
+        private final OvenScheduler scheduler;
+        private long now;
+        private long sequence;
+        private int lateDeliveries;
+        private int latePickups;
+
+        private Simulation(OvenPolicy policy) {
+            this.scheduler = new OvenScheduler(policy, () -> now, this::bake);
+        }
+
+        private void run() {
+            long hour = TimeUnit.HOURS.toNanos(1);
+            double meanGap = (double) hour / ORDERS_PER_HOUR;
+            for (long arrival = 0; arrival < hour; arrival += (long) (-Math.log(1 - random.nextDouble()) * meanGap)) {
+                KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+                int pizzas = 1 + random.nextInt(4);
+                OnlineOrder.Type type = random.nextBoolean() ? OnlineOrder.Type.DELIVERY : OnlineOrder.Type.PICKUP;
+                for (int i = 0; i < pizzas; i++) {
+                    schedule(arrival + TimeUnit.SECONDS.toNanos(prepSeconds), false,
+                            new BakeRequest(new PizzaRef(), kitchenOrderRef, pizzas, type));
+                }
+            }
+            while (!timeline.isEmpty()) {
+                Step step = timeline.poll();
+                now = step.at;
+                if (step.outOfOven) {
+                    scheduler.release(step.request.getPizzaRef());
+                } else {
+                    readyAt.put(step.request.getPizzaRef(), now);
+                    scheduler.enqueue(step.request);
+                }
+            }
+        }
+
+        private void bake(BakeRequest request) {
+            long waited = now - readyAt.remove(request.getPizzaRef());
+            if (request.getOrderType() == OnlineOrder.Type.DELIVERY && waited > DELIVERY_ALLOWANCE.toNanos()) {
+                lateDeliveries++;
+            } else if (request.getOrderType() == OnlineOrder.Type.PICKUP && waited > PICKUP_ALLOWANCE.toNanos()) {
+                latePickups++;
+            }
+            schedule(now + TimeUnit.SECONDS.toNanos(bakeSeconds), true, request);
+        }
+
+        private void schedule(long at, boolean outOfOven, BakeRequest request) {
+            timeline.add(new Step(at, sequence++, outOfOven, request));
+        }
+    }
+
+    private static final class Step {
+        private final long at;
+        private final long sequence;
+        private final boolean outOfOven;
+        private final BakeRequest request;
+
+        private Step(long at, long sequence, boolean outOfOven, BakeRequest request) {
+            this.at = at;
+            this.sequence = sequence;
+            this.outOfOven = outOfOven;
+            this.request = request;
+        }
+    }
+}
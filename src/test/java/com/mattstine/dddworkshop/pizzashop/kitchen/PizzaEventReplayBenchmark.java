@@ -0,0 +1,98 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.FsyncPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.SegmentFileEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup cost of a {@link SegmentFileEventLog} holding 5M {@link PizzaEvent}s: {@code open} only
+ * indexes the mapped segments, {@code openAndReplay} also materializes every event, and
+ * {@code openAndRehydrateOnePizza} is the typical post-restart read.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PizzaEventReplayBenchmark {
+
+    @Param({"5000000"})
+    int events;
+
+    private final Topic pizzas = Topic.of("pizzas");
+    private Path directory;
+    private PizzaRef lastRef;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pizza-replay");
+        KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+        try (SegmentFileEventLog eventLog = SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy(FsyncPolicy.osManaged())
+                .build()) {
+            for (int i = 0; i < events / 5; i++) {
+                PizzaRef ref = new PizzaRef();
+                eventLog.publish(pizzas, new PizzaAddedEvent(ref,
+                        new Pizza.PizzaState(ref, kitchenOrderRef, Pizza.Size.MEDIUM, Pizza.State.NEW)));
+                eventLog.publish(pizzas, new PizzaPrepStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaPrepFinishedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeFinishedEvent(ref));
+                lastRef = ref;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        try (SegmentFileEventLog eventLog = open(directory)) {
+            return eventLog.eventsBy(pizzas).size();
+        }
+    }
+
+    @Benchmark
+    public void openAndReplay(Blackhole blackhole) throws IOException {
+        try (SegmentFileEventLog eventLog = open(directory)) {
+            List<Event> replayed = eventLog.eventsBy(pizzas);
+            for (Event event : replayed) {
+                blackhole.consume(event);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Event> openAndRehydrateOnePizza() throws IOException {
+        try (SegmentFileEventLog eventLog = open(directory)) {
+            return eventLog.eventsBy(pizzas, lastRef);
+        }
+    }
+
+    private static SegmentFileEventLog open(Path directory) {
+        return SegmentFileEventLog.builder()
+                .directory(directory)
+                .fsyncPolicy(FsyncPolicy.osManaged())
+                .build();
+    }
+}
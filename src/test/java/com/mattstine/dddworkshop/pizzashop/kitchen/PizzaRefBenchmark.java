@@ -0,0 +1,80 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minting and {@link HashMap} lookup of {@link PizzaRef}s against the upper-case random UUID strings
+ * refs used to wrap. Lookups probe with equal but distinct key instances, as a rehydrated or
+ * deserialized ref would be. Run with {@code -t} above one to compare generation under contention.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PizzaRefBenchmark {
+
+    @Param({"100000"})
+    int mapSize;
+
+    private PizzaRef[] probeRefs;
+    private String[] probeUuidStrings;
+    private Map<PizzaRef, Integer> byRef;
+    private Map<String, Integer> byUuidString;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ClassNotFoundException {
+        probeRefs = new PizzaRef[mapSize];
+        probeUuidStrings = new String[mapSize];
+        byRef = new HashMap<>();
+        byUuidString = new HashMap<>();
+        for (int i = 0; i < mapSize; i++) {
+            PizzaRef ref = new PizzaRef();
+            String uuidString = UUID.randomUUID().toString().toUpperCase();
+            byRef.put(ref, i);
+            byUuidString.put(uuidString, i);
+            probeRefs[i] = copy(ref);
+            probeUuidStrings[i] = new String(uuidString);
+        }
+    }
+
+    private static PizzaRef copy(PizzaRef ref) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(ref);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (PizzaRef) in.readObject();
+        }
+    }
+
+    @Benchmark
+    public PizzaRef newRef() {
+        return new PizzaRef();
+    }
+
+    @Benchmark
+    public String newUuidString() {
+        return UUID.randomUUID().toString().toUpperCase();
+    }
+
+    @Benchmark
+    public Integer lookupByRef() {
+        return byRef.get(probeRefs[ThreadLocalRandom.current().nextInt(mapSize)]);
+    }
+
+    @Benchmark
+    public Integer lookupByUuidString() {
+        return byUuidString.get(probeUuidStrings[ThreadLocalRandom.current().nextInt(mapSize)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InProcessEventSourcedPizzaRepository#add} and the kitchen-order secondary lookup against a
+ * topic already holding {@code aggregatesOnTopic} baked pizzas, three per kitchen order. See
+ * {@link PizzaRepositoryFindByRefBenchmark} for {@code findByRef}.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PizzaRepositoryBenchmark {
+    private static final int PIZZAS_PER_ORDER = 3;
+
+    @Param({"1000", "100000"})
+    int aggregatesOnTopic;
+
+    private PizzaRepository repository;
+    private KitchenOrderRef[] kitchenOrderRefs;
+    private Pizza newPizza;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        repository = new InProcessEventSourcedPizzaRepository(eventLog, Topic.of("pizzas"));
+
+        kitchenOrderRefs = new KitchenOrderRef[aggregatesOnTopic / PIZZAS_PER_ORDER];
+        for (int i = 0; i < kitchenOrderRefs.length; i++) {
+            kitchenOrderRefs[i] = new KitchenOrderRef();
+            for (int j = 0; j < PIZZAS_PER_ORDER; j++) {
+                Pizza pizza = pizza(eventLog, kitchenOrderRefs[i]);
+                repository.add(pizza);
+                pizza.startPrep();
+                pizza.finishPrep();
+                pizza.startBake();
+                pizza.finishBake();
+            }
+        }
+        newPizza = pizza(eventLog, new KitchenOrderRef());
+    }
+
+    private Pizza pizza(InProcessEventLog eventLog, KitchenOrderRef kitchenOrderRef) {
+        return Pizza.builder()
+                .ref(repository.nextIdentity())
+                .kitchenOrderRef(kitchenOrderRef)
+                .size(Pizza.Size.MEDIUM)
+                .eventLog(eventLog)
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(newPizza);
+    }
+
+    @Benchmark
+    public Set<Pizza> findPizzasByKitchenOrderRef() {
+        return repository.findPizzasByKitchenOrderRef(kitchenOrderRefs[ThreadLocalRandom.current().nextInt(kitchenOrderRefs.length)]);
+    }
+}
@@ -0,0 +1,55 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InProcessEventSourcedPizzaRepository#findByRef} as the {@code pizzas} topic grows.
+ * Each pizza contributes its full five-event lifecycle, so latency should stay flat across sizes.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PizzaRepositoryFindByRefBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int eventsOnTopic;
+
+    private PizzaRepository repository;
+    private PizzaRef[] refs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        Topic pizzas = Topic.of("pizzas");
+        repository = new InProcessEventSourcedPizzaRepository(eventLog, pizzas);
+        eventLog.purgeSubscribers();
+
+        KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+        refs = new PizzaRef[eventsOnTopic / 5];
+        for (int i = 0; i < refs.length; i++) {
+            PizzaRef ref = repository.nextIdentity();
+            refs[i] = ref;
+            eventLog.publish(pizzas, new PizzaAddedEvent(ref,
+                    new Pizza.PizzaState(ref, kitchenOrderRef, Pizza.Size.MEDIUM, Pizza.State.NEW)));
+            eventLog.publish(pizzas, new PizzaPrepStartedEvent(ref));
+            eventLog.publish(pizzas, new PizzaPrepFinishedEvent(ref));
+            eventLog.publish(pizzas, new PizzaBakeStartedEvent(ref));
+            eventLog.publish(pizzas, new PizzaBakeFinishedEvent(ref));
+        }
+    }
+
+    @Benchmark
+    public Pizza findByRef() {
+        return repository.findByRef(refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Loading all pizzas of a kitchen order of {@code pizzasPerOrder} pizzas, each with its full five-event
+ * lifecycle, from a topic holding {@value #ORDERS} such orders: one {@link PizzaRepository#findByRef} per
+ * pizza, as {@link PizzaRepository#findPizzasByKitchenOrderRef} used to do, against a single
+ * {@link PizzaRepository#findByRefs}.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PizzaRepositoryFindByRefsBenchmark {
+    private static final int ORDERS = 1_000;
+
+    @Param({"1", "8", "64"})
+    int pizzasPerOrder;
+
+    private PizzaRepository repository;
+    private List<List<PizzaRef>> orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        Topic pizzas = Topic.of("pizzas");
+        repository = new InProcessEventSourcedPizzaRepository(eventLog, pizzas);
+        eventLog.purgeSubscribers();
+
+        orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+            List<PizzaRef> refs = new ArrayList<>(pizzasPerOrder);
+            for (int j = 0; j < pizzasPerOrder; j++) {
+                PizzaRef ref = repository.nextIdentity();
+                refs.add(ref);
+                eventLog.publish(pizzas, new PizzaAddedEvent(ref,
+                        new Pizza.PizzaState(ref, kitchenOrderRef, Pizza.Size.MEDIUM, Pizza.State.NEW)));
+                eventLog.publish(pizzas, new PizzaPrepStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaPrepFinishedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeStartedEvent(ref));
+                eventLog.publish(pizzas, new PizzaBakeFinishedEvent(ref));
+            }
+            orders.add(refs);
+        }
+    }
+
+    @Benchmark
+    public Set<Pizza> findByRefEach() {
+        return order().stream().map(repository::findByRef).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Map<PizzaRef, Pizza> findByRefs() {
+        return repository.findByRefs(order());
+    }
+
+    private List<PizzaRef> order() {
+        return orders.get(ThreadLocalRandom.current().nextInt(ORDERS));
+    }
+}
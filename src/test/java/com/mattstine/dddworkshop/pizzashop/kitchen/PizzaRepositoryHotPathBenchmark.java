@@ -0,0 +1,138 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Event;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.AggregateEvent;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-call overhead of {@link InProcessEventSourcedPizzaRepository#nextIdentity},
+ * {@link InProcessEventSourcedPizzaRepository#add} and {@link InProcessEventSourcedPizzaRepository#findByRef}
+ * against an event log that does no work, so that only the repository's own cost is visible.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PizzaRepositoryHotPathBenchmark {
+
+    private PizzaRepository repository;
+    private PizzaRef ref;
+    private Pizza pizza;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ref = new PizzaRef();
+        KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+        List<Event> lifecycle = Arrays.asList(
+                new PizzaAddedEvent(ref, new Pizza.PizzaState(ref, kitchenOrderRef, Pizza.Size.MEDIUM, Pizza.State.NEW)),
+                new PizzaPrepStartedEvent(ref),
+                new PizzaPrepFinishedEvent(ref),
+                new PizzaBakeStartedEvent(ref),
+                new PizzaBakeFinishedEvent(ref));
+        repository = new InProcessEventSourcedPizzaRepository(new FixedEventLog(lifecycle), Topic.of("pizzas"));
+        pizza = Pizza.builder()
+                .ref(ref)
+                .kitchenOrderRef(kitchenOrderRef)
+                .size(Pizza.Size.MEDIUM)
+                .eventLog(InProcessEventLog.instance())
+                .build();
+    }
+
+    @Benchmark
+    public PizzaRef nextIdentity() {
+        return repository.nextIdentity();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(pizza);
+    }
+
+    @Benchmark
+    public Pizza findByRef() {
+        return repository.findByRef(ref);
+    }
+
+    private static final class FixedEventLog implements EventLog {
+        private final List<Event> events;
+
+        private FixedEventLog(List<Event> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void publish(Topic topic, Event event) {
+        }
+
+        @Override
+        public void append(Topic topic, Ref ref, long expectedVersion, List<? extends AggregateEvent> events) {
+        }
+
+        @Override
+        public void publishAll(Topic topic, List<? extends Event> events) {
+        }
+
+        @Override
+        public void appendAll(Topic topic, Map<? extends Ref, Long> expectedVersions, List<? extends AggregateEvent> events) {
+        }
+
+        @Override
+        public long getVersion(Topic topic, Ref ref) {
+            return events.size();
+        }
+
+        @Override
+        public void subscribe(Topic topic, EventHandler handler) {
+        }
+
+        @Override
+        public void subscribe(Topic topic, long fromOffset, EventHandler handler) {
+        }
+
+        @Override
+        public void subscribeToPartition(Topic topic, int partition, EventHandler handler) {
+        }
+
+        @Override
+        public void subscribeToGroup(Topic topic, String group, EventHandler handler) {
+        }
+
+        @Override
+        public void unsubscribeFromGroup(Topic topic, String group, EventHandler handler) {
+        }
+
+        @Override
+        public int getNumberOfSubscribers(Topic topic) {
+            return 0;
+        }
+
+        @Override
+        public int getNumberOfPartitions(Topic topic) {
+            return 1;
+        }
+
+        @Override
+        public List<Event> eventsBy(Topic topic) {
+            return events;
+        }
+
+        @Override
+        public List<Event> eventsBy(Topic topic, Ref ref) {
+            return events;
+        }
+    }
+}
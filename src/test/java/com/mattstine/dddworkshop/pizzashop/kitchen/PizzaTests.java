@@ -112,7 +112,7 @@ public class PizzaTests {
 	@Category(Lab2Tests.class)
     public void start_pizza_prep_fires_event() {
         pizza.startPrep();
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(0L), isA(PizzaPrepStartedEvent.class));
     }
 
     @Test
@@ -121,8 +121,8 @@ public class PizzaTests {
         pizza.startPrep();
         pizza.finishPrep();
 
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepFinishedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(0L), isA(PizzaPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(1L), isA(PizzaPrepFinishedEvent.class));
     }
 
     @Test
@@ -132,9 +132,9 @@ public class PizzaTests {
         pizza.finishPrep();
         pizza.startBake();
 
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepFinishedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaBakeStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(0L), isA(PizzaPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(1L), isA(PizzaPrepFinishedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(2L), isA(PizzaBakeStartedEvent.class));
     }
 
     @Test
@@ -145,10 +145,10 @@ public class PizzaTests {
         pizza.startBake();
         pizza.finishBake();
 
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaPrepFinishedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaBakeStartedEvent.class));
-        verify(eventLog).publish(eq(new Topic("pizzas")), isA(PizzaBakeFinishedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(0L), isA(PizzaPrepStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(1L), isA(PizzaPrepFinishedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(2L), isA(PizzaBakeStartedEvent.class));
+        verify(eventLog).append(eq(Topic.of("pizzas")), eq(3L), isA(PizzaBakeFinishedEvent.class));
     }
 
     @Test
@@ -0,0 +1,119 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author Matt Stine
+ */
+public class PrepDispatcherTests {
+    private final List<PrepRequest> started = new ArrayList<>();
+    private long now;
+
+    @Test
+    public void unlimited_stations_start_every_pizza_at_once() {
+        PrepDispatcher dispatcher = dispatcher(PrepDispatcher.UNLIMITED, true);
+        List<PrepRequest> order = order(3);
+
+        dispatcher.dispatch(order);
+
+        assertThat(started).containsExactlyElementsOf(order);
+        assertThat(dispatcher.stats().getQueued()).isZero();
+    }
+
+    @Test
+    public void idle_stations_steal_from_a_large_order() {
+        PrepDispatcher dispatcher = dispatcher(3, true);
+        List<PrepRequest> order = order(5);
+
+        dispatcher.dispatch(order);
+
+        assertThat(started).containsExactly(order.get(0), order.get(4), order.get(3));
+        PrepStats stats = dispatcher.stats();
+        assertThat(stats.getPreparing()).isEqualTo(3);
+        assertThat(stats.getQueued()).isEqualTo(2);
+        assertThat(stats.getSteals()).isEqualTo(2);
+    }
+
+    @Test
+    public void without_stealing_an_order_stays_at_its_station() {
+        PrepDispatcher dispatcher = dispatcher(3, false);
+        List<PrepRequest> order = order(5);
+
+        dispatcher.dispatch(order);
+
+        assertThat(started).containsExactly(order.get(0));
+        assertThat(dispatcher.stats().getSteals()).isZero();
+    }
+
+    @Test
+    public void orders_go_to_the_least_loaded_station() {
+        PrepDispatcher dispatcher = dispatcher(2, false);
+        List<PrepRequest> large = order(3);
+        List<PrepRequest> small = order(1);
+
+        dispatcher.dispatch(large);
+        dispatcher.dispatch(small);
+
+        assertThat(started).containsExactly(large.get(0), small.get(0));
+    }
+
+    @Test
+    public void finishing_prep_frees_the_station_for_its_next_pizza() {
+        PrepDispatcher dispatcher = dispatcher(1, true);
+        List<PrepRequest> order = order(2);
+        dispatcher.dispatch(order);
+
+        dispatcher.release(new PizzaRef());
+        dispatcher.release(order.get(1).getPizzaRef());
+        assertThat(started).containsExactly(order.get(0));
+
+        dispatcher.release(order.get(0).getPizzaRef());
+        assertThat(started).containsExactly(order.get(0), order.get(1));
+    }
+
+    @Test
+    public void stats_report_utilization_and_waits() {
+        PrepDispatcher dispatcher = dispatcher(2, true);
+        List<PrepRequest> order = order(3);
+        dispatcher.dispatch(order);
+        now += TimeUnit.SECONDS.toNanos(60);
+        dispatcher.release(order.get(0).getPizzaRef());
+        now += TimeUnit.SECONDS.toNanos(60);
+        dispatcher.release(order.get(1).getPizzaRef());
+        dispatcher.release(order.get(2).getPizzaRef());
+
+        PrepStats stats = dispatcher.stats();
+
+        assertThat(stats.getDispatched()).isEqualTo(3);
+        assertThat(stats.getPrepared()).containsExactly(2, 1);
+        assertThat(stats.getUtilization()).containsExactly(1.0, 1.0);
+        assertThat(stats.getMeanUtilization()).isEqualTo(1.0);
+        assertThat(stats.getWaitMillis().getCount()).isEqualTo(3);
+        assertThat(stats.getWaitMillis().getMax()).isEqualTo(60_000);
+    }
+
+    @Test
+    public void rejects_dispatcher_without_stations() {
+        assertThatIllegalArgumentException().isThrownBy(() -> dispatcher(0, true));
+    }
+
+    private PrepDispatcher dispatcher(int stations, boolean stealing) {
+        return new PrepDispatcher(stations, stealing, () -> now, started::add);
+    }
+
+    private static List<PrepRequest> order(int pizzas) {
+        KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+        List<PrepRequest> order = new ArrayList<>(pizzas);
+        for (int i = 0; i < pizzas; i++) {
+            order.add(new PrepRequest(new PizzaRef(), kitchenOrderRef));
+        }
+        return order;
+    }
+}
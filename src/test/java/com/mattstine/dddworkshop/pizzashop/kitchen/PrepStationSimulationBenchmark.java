@@ -0,0 +1,147 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated hour of the kitchen at {@value #ORDERS_PER_HOUR} orders an hour, driving a
+ * {@link PrepDispatcher} on a virtual clock to tune the number of prep stations: orders of one to
+ * {@code maxPizzas} pizzas arrive at random and every pizza takes {@code prepSeconds} at a station. The
+ * same seed gives the same hour for every setting, so runs with and without work stealing compare like
+ * for like. The score is the cost of dispatching the hour; the waits, the number of steals, and how
+ * busy and how evenly loaded the stations were come out as {@link Outcome} counters.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrepStationSimulationBenchmark {
+    private static final int ORDERS_PER_HOUR = 160;
+
+    @Param({"6", "8", "10"})
+    int stations;
+
+    @Param({"true", "false"})
+    boolean stealing;
+
+    @Param({"8"})
+    int maxPizzas;
+
+    @Param({"30"})
+    int prepSeconds;
+
+    @Benchmark
+    public long simulateOneHour(Outcome outcome) {
+        Simulation simulation = new Simulation();
+        simulation.run();
+        PrepStats stats = simulation.dispatcher.stats();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(simulation.now);
+        long mostPrepared = Arrays.stream(stats.getPrepared()).max().orElse(0);
+        long leastPrepared = Arrays.stream(stats.getPrepared()).min().orElse(0);
+        outcome.pizzas += stats.getDispatched();
+        outcome.steals += stats.getSteals();
+        outcome.waitMillis += stats.getWaitMillis().getSum();
+        outcome.busyMillis += Math.round(stats.getMeanUtilization() * stats.getStations() * elapsedMillis);
+        outcome.stationMillis += stats.getStations() * elapsedMillis;
+        outcome.preparedSpread += mostPrepared - leastPrepared;
+        return stats.getDispatched();
+    }
+
+    /**
+     * What the simulated hours left behind, reported by JMH next to the score. JMH adds the counters up
+     * over the measured iterations, so they are totals: {@code waitMillis} over {@code pizzas} is the
+     * mean wait, {@code busyMillis} over {@code stationMillis} the mean utilization, and
+     * {@code preparedSpread} is how many more pizzas the busiest station prepped than the idlest.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long pizzas;
+        public long steals;
+        public long waitMillis;
+        public long busyMillis;
+        public long stationMillis;
+        public long preparedSpread;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pizzas = 0;
+            steals = 0;
+            waitMillis = 0;
+            busyMillis = 0;
+            stationMillis = 0;
+            preparedSpread = 0;
+        }
+    }
+
+    /**
+     * Discrete-event simulation: orders arriving and pizzas finishing prep are steps on a virtual
+     * timeline, taken in time order. The clock stops at the last step, so utilization covers the hour
+     * plus the time taken to clear the backlog.
+     */
+    private final class Simulation {
+        private final Random random = new Random(42);
+        private final PriorityQueue<Step> timeline = new PriorityQueue<>(
+                Comparator.comparingLong((Step s) -> s.at).thenComparingLong(s -> s.sequence));
+        private final PrepDispatcher dispatcher;
+        private long now;
+        private long sequence;
+
+        private Simulation() {
+            this.dispatcher = new PrepDispatcher(stations, stealing, () -> now, this::prep);
+        }
+
+        private void run() {
+            long hour = TimeUnit.HOURS.toNanos(1);
+            double meanGap = (double) hour / ORDERS_PER_HOUR;
+            for (long arrival = 0; arrival < hour; arrival += (long) (-Math.log(1 - random.nextDouble()) * meanGap)) {
+                KitchenOrderRef kitchenOrderRef = new KitchenOrderRef();
+                int pizzas = 1 + random.nextInt(maxPizzas);
+                List<PrepRequest> order = new ArrayList<>(pizzas);
+                for (int i = 0; i < pizzas; i++) {
+                    order.add(new PrepRequest(new PizzaRef(), kitchenOrderRef));
+                }
+                timeline.add(new Step(arrival, sequence++, order, null));
+            }
+            while (!timeline.isEmpty()) {
+                Step step = timeline.poll();
+                now = step.at;
+                if (step.order != null) {
+                    dispatcher.dispatch(step.order);
+                } else {
+                    dispatcher.release(step.prepped);
+                }
+            }
+        }
+
+        private void prep(PrepRequest request) {
+            long at = now + TimeUnit.SECONDS.toNanos(prepSeconds);
+            timeline.add(new Step(at, sequence++, null, request.getPizzaRef()));
+        }
+    }
+
+    private static final class Step {
+        private final long at;
+        private final long sequence;
+        private final List<PrepRequest> order;
+        private final PizzaRef prepped;
+
+        private Step(long at, long sequence, List<PrepRequest> order, PizzaRef prepped) {
+            this.at = at;
+            this.sequence = sequence;
+            this.order = order;
+            this.prepped = prepped;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mattstine.dddworkshop.pizzashop.kitchen;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.VirtualThreadAggregateExecutor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrder;
+import com.mattstine.dddworkshop.pizzashop.ordering.OnlineOrderRef;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingBenchmarkSupport;
+import com.mattstine.dddworkshop.pizzashop.ordering.OrderingService;
+import com.mattstine.dddworkshop.pizzashop.payments.PaymentsBenchmarkSupport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives pickup orders through ordering, payment and the kitchen at once, each customer on its own
+ * virtual thread. Events are delivered on the publishing customer's thread and handled on a virtual
+ * thread per aggregate. Every order is placed and paid for before any of them is approved, so all of
+ * them are in flight together. The regular build runs {@value #DEFAULT_ORDERS} orders; the full load of
+ * 100,000 takes half a minute and is run by setting the {@value #ORDERS_PROPERTY} system property, as in
+ * {@code mvn test -Dtest=VirtualThreadOrderFlowLoadTests -Dpizzashop.loadtest.orders=100000}.
+ *
+ * @author Matt Stine
+ */
+public class VirtualThreadOrderFlowLoadTests {
+    private static final String ORDERS_PROPERTY = "pizzashop.loadtest.orders";
+    private static final int DEFAULT_ORDERS = 1_000;
+    private static final long TIMEOUT_MINUTES = 10;
+    private static final com.mattstine.dddworkshop.pizzashop.ordering.Pizza MEDIUM_PIZZA =
+            com.mattstine.dddworkshop.pizzashop.ordering.Pizza.builder()
+                    .size(com.mattstine.dddworkshop.pizzashop.ordering.Pizza.Size.MEDIUM)
+                    .build();
+
+    private final int orders = Integer.getInteger(ORDERS_PROPERTY, DEFAULT_ORDERS);
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private final InProcessEventLog eventLog = InProcessEventLog.instance();
+    private final VirtualThreadAggregateExecutor aggregateExecutor = new VirtualThreadAggregateExecutor(
+            Thread.ofVirtual().uncaughtExceptionHandler((thread, ex) -> failures.add(ex)).factory());
+    private final OrderingService orderingService = OrderingBenchmarkSupport.orderingService(eventLog,
+            PaymentsBenchmarkSupport.paymentService(eventLog), aggregateExecutor);
+    private final KitchenService kitchenService = KitchenBenchmarkSupport.kitchenService(eventLog,
+            orderingService, aggregateExecutor);
+
+    @After
+    public void tearDown() {
+        eventLog.purgeSubscribers();
+    }
+
+    @Test
+    public void kitchen_assembles_every_order_with_all_orders_in_flight_at_once() throws Exception {
+        long assembledBefore = assembled();
+        CountDownLatch allPlaced = new CountDownLatch(orders);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+
+        List<Future<?>> customers = new ArrayList<>(orders);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < orders; i++) {
+                customers.add(executor.submit(() -> {
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    orderAndCollect(allPlaced);
+                    inFlight.decrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> customer : customers) {
+                customer.get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            }
+        }
+
+        assertThat(failures).isEmpty();
+        assertThat(peakInFlight.get()).isEqualTo(orders);
+        assertThat(assembled() - assembledBefore).isEqualTo(orders);
+    }
+
+    private long assembled() {
+        return eventLog.eventsBy(Topic.of("kitchen_orders")).stream()
+                .filter(e -> e instanceof KitchenOrderAssemblyFinishedEvent)
+                .count();
+    }
+
+    private void orderAndCollect(CountDownLatch allPlaced) throws InterruptedException {
+        OnlineOrderRef ref = orderingService.createOrder(OnlineOrder.Type.PICKUP);
+        orderingService.addPizza(ref, MEDIUM_PIZZA);
+        orderingService.addPizza(ref, MEDIUM_PIZZA);
+        OrderingBenchmarkSupport.submit(orderingService.findByRef(ref));
+        orderingService.requestPayment(ref);
+
+        allPlaced.countDown();
+        allPlaced.await();
+        PaymentsBenchmarkSupport.approve(eventLog, orderingService.findByRef(ref).getPaymentRef());
+
+        KitchenOrderRef kitchenOrderRef = await(() -> kitchenService.findKitchenOrderByOnlineOrderRef(ref)).getRef();
+        // Pizzas are added before their prep is started, in a task queued behind the one adding them
+        Set<Pizza> pizzas = await(() -> {
+            Set<Pizza> found = kitchenService.findPizzasByKitchenOrderRef(kitchenOrderRef);
+            return found.size() == 2 && found.stream().allMatch(Pizza::isPrepping) ? found : null;
+        });
+        for (Pizza pizza : pizzas) {
+            kitchenService.finishPizzaPrep(pizza.getRef());
+        }
+        for (Pizza pizza : pizzas) {
+            await(() -> kitchenService.findPizzaByRef(pizza.getRef()).isBaking() ? pizza : null);
+            kitchenService.removePizzaFromOven(pizza.getRef());
+        }
+        await(() -> kitchenService.findKitchenOrderByRef(kitchenOrderRef).getState() == KitchenOrder.State.ASSEMBLED
+                ? kitchenOrderRef : null);
+    }
+
+    /*
+     * Polls with a growing pause; the pause parks only the customer's virtual thread.
+     */
+    private static <T> T await(Supplier<T> probe) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(TIMEOUT_MINUTES);
+        long pause = 1;
+        T value;
+        while ((value = probe.get()) == null) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for the kitchen");
+            }
+            Thread.sleep(pause);
+            pause = Math.min(pause * 2, 100);
+        }
+        return value;
+    }
+}
@@ -1,14 +1,19 @@
 package com.mattstine.dddworkshop.pizzashop.ordering;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
-import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Ref;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentService;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentSuccessfulEvent;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
@@ -17,19 +22,24 @@ import static org.mockito.Mockito.mock;
  */
 public class DefaultOrderingServiceIntegrationTests {
 
-    private EventLog eventLog;
+    private InProcessEventLog eventLog;
     private OnlineOrderRepository repository;
 
     @Before
     public void setUp() {
         eventLog = InProcessEventLog.instance();
         repository = new InProcessEventSourcedOnlineOrderRepository(eventLog,
-                new Topic("ordering"));
-        new DefaultOrderingService(eventLog, repository, mock(PaymentService.class));
+                Topic.of("ordering"));
+    }
+
+    @After
+    public void tearDown() {
+        eventLog.purgeSubscribers();
     }
 
     @Test
     public void on_successful_payment_mark_paid() {
+        new DefaultOrderingService(eventLog, repository, mock(PaymentService.class));
         OnlineOrderRef onlineOrderRef = new OnlineOrderRef();
         OnlineOrder onlineOrder = OnlineOrder.builder()
                 .type(OnlineOrder.Type.PICKUP)
@@ -42,9 +52,39 @@ public class DefaultOrderingServiceIntegrationTests {
         PaymentRef paymentRef = new PaymentRef();
         onlineOrder.assignPaymentRef(paymentRef);
 
-        eventLog.publish(new Topic("payments"), new PaymentSuccessfulEvent(paymentRef));
+        eventLog.publish(Topic.of("payments"), new PaymentSuccessfulEvent(paymentRef));
 
         onlineOrder = repository.findByRef(onlineOrderRef);
         assertThat(onlineOrder.isPaid()).isTrue();
     }
+
+    @Test
+    public void marks_paid_the_order_as_it_is_when_its_turn_comes() {
+        List<Runnable> queued = new ArrayList<>();
+        AggregateExecutor queueing = new AggregateExecutor() {
+            @Override
+            public void execute(Ref ref, Runnable task) {
+                queued.add(task);
+            }
+        };
+        new DefaultOrderingService(eventLog, repository, mock(PaymentService.class), queueing);
+        OnlineOrderRef onlineOrderRef = new OnlineOrderRef();
+        OnlineOrder onlineOrder = OnlineOrder.builder()
+                .type(OnlineOrder.Type.PICKUP)
+                .eventLog(eventLog)
+                .ref(onlineOrderRef)
+                .build();
+        repository.add(onlineOrder);
+        onlineOrder.addPizza(Pizza.builder().size(Pizza.Size.MEDIUM).build());
+        onlineOrder.submit();
+        PaymentRef paymentRef = new PaymentRef();
+        onlineOrder.assignPaymentRef(paymentRef);
+
+        eventLog.publish(Topic.of("payments"), new PaymentSuccessfulEvent(paymentRef));
+        // A command queued ahead of the payment outcome changes the order first
+        onlineOrder.assignPaymentRef(paymentRef);
+        queued.forEach(Runnable::run);
+
+        assertThat(repository.findByRef(onlineOrderRef).isPaid()).isTrue();
+    }
 }
@@ -32,7 +32,7 @@ public class DefaultOrderingServiceTests {
 
     @Test
     public void subscribes_to_payments_topic() {
-        verify(eventLog).subscribe(eq(new Topic("payments")), isA(EventHandler.class));
+        verify(eventLog).subscribe(eq(Topic.of("payments")), isA(EventHandler.class));
     }
 
     @Test
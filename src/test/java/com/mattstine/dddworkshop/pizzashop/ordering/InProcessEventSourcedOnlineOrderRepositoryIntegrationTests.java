@@ -1,18 +1,27 @@
 package com.mattstine.dddworkshop.pizzashop.ordering;
 
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.SegmentFileEventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.VersionConflictException;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Matt Stine
  */
 public class InProcessEventSourcedOnlineOrderRepositoryIntegrationTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     private OnlineOrderRepository repository;
     private OnlineOrder onlineOrder;
@@ -23,7 +32,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryIntegrationTests {
     public void setUp() {
         eventLog = InProcessEventLog.instance();
         repository = new InProcessEventSourcedOnlineOrderRepository(eventLog,
-                new Topic("ordering"));
+                Topic.of("ordering"));
         OnlineOrderRef ref = repository.nextIdentity();
         onlineOrder = OnlineOrder.builder()
                 .ref(ref)
@@ -49,4 +58,56 @@ public class InProcessEventSourcedOnlineOrderRepositoryIntegrationTests {
 
         assertThat(repository.findByPaymentRef(paymentRef)).isEqualTo(onlineOrder);
     }
+
+    @Test
+    public void find_by_ref_loads_order_at_its_stream_version() {
+        repository.add(onlineOrder);
+        onlineOrder.addPizza(pizza);
+
+        assertThat(onlineOrder.version()).isEqualTo(2);
+        assertThat(repository.findByRef(onlineOrder.getRef()).version()).isEqualTo(2);
+    }
+
+    @Test
+    public void second_writer_of_a_loaded_order_is_rejected() {
+        repository.add(onlineOrder);
+        onlineOrder.addPizza(pizza);
+        onlineOrder.submit();
+        OnlineOrder first = repository.findByRef(onlineOrder.getRef());
+        OnlineOrder second = repository.findByRef(onlineOrder.getRef());
+
+        first.markPaid();
+
+        assertThatThrownBy(second::markPaid).isInstanceOf(VersionConflictException.class);
+        assertThat(second.isSubmitted()).isTrue();
+        assertThat(second.version()).isEqualTo(3);
+        assertThat(eventLog.eventsBy(Topic.of("ordering"), onlineOrder.getRef()))
+                .filteredOn(e -> e instanceof OnlineOrderPaidEvent)
+                .hasSize(1);
+    }
+
+    @Test
+    public void loaded_order_appends_to_the_repositorys_own_log() throws IOException {
+        Topic ordering = Topic.of("ordering");
+        try (SegmentFileEventLog segmentLog = SegmentFileEventLog.builder()
+                .directory(folder.getRoot().toPath())
+                .build()) {
+            OnlineOrderRepository segmentRepository = new InProcessEventSourcedOnlineOrderRepository(segmentLog, ordering);
+            OnlineOrder order = OnlineOrder.builder()
+                    .ref(segmentRepository.nextIdentity())
+                    .type(OnlineOrder.Type.PICKUP)
+                    .eventLog(segmentLog)
+                    .build();
+            segmentRepository.add(order);
+
+            OnlineOrder loaded = segmentRepository.findByRef(order.getRef());
+            loaded.addPizza(pizza);
+            loaded.submit();
+
+            assertThat(loaded.version()).isEqualTo(3);
+            assertThat(segmentLog.eventsBy(ordering, order.getRef())).hasSize(3);
+            assertThat(eventLog.eventsBy(ordering, order.getRef())).isEmpty();
+            assertThat(segmentRepository.findByRef(order.getRef()).getState()).isEqualTo(OnlineOrder.State.SUBMITTED);
+        }
+    }
 }
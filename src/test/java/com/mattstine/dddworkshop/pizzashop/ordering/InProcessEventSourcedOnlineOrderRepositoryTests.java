@@ -2,6 +2,10 @@ package com.mattstine.dddworkshop.pizzashop.ordering;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventHandler;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
 import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters.InProcessSnapshotStore;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.Snapshot;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
 import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,7 +31,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
     public void setUp() {
         eventLog = mock(EventLog.class);
         repository = new InProcessEventSourcedOnlineOrderRepository(eventLog,
-                new Topic("ordering"));
+                Topic.of("ordering"));
         ref = repository.nextIdentity();
         onlineOrder = OnlineOrder.builder()
                 .ref(ref)
@@ -46,14 +50,14 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
     public void add_fires_event() {
         repository.add(onlineOrder);
         OnlineOrderAddedEvent event = new OnlineOrderAddedEvent(onlineOrder.getRef(), onlineOrder.state());
-        verify(eventLog).publish(eq(new Topic("ordering")), eq(event));
+        verify(eventLog).append(eq(Topic.of("ordering")), eq(0L), eq(event));
     }
 
     @Test
     public void find_by_ref_hydrates_added_order() {
         repository.add(onlineOrder);
 
-        when(eventLog.eventsBy(new Topic("ordering")))
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
                 .thenReturn(Collections.singletonList(new OnlineOrderAddedEvent(ref, onlineOrder.state())));
 
         assertThat(repository.findByRef(ref)).isEqualTo(onlineOrder);
@@ -64,7 +68,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
         repository.add(onlineOrder);
         onlineOrder.addPizza(pizza);
 
-        when(eventLog.eventsBy(new Topic("ordering")))
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
                 .thenReturn(Arrays.asList(new OnlineOrderAddedEvent(ref, onlineOrder.state()),
                         new PizzaAddedEvent(ref, pizza)));
 
@@ -77,7 +81,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
         onlineOrder.addPizza(pizza);
         onlineOrder.submit();
 
-        when(eventLog.eventsBy(new Topic("ordering")))
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
                 .thenReturn(Arrays.asList(new OnlineOrderAddedEvent(ref, onlineOrder.state()),
                         new PizzaAddedEvent(ref, pizza),
                         new OnlineOrderSubmittedEvent(ref)));
@@ -94,7 +98,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
         PaymentRef paymentRef = new PaymentRef();
         onlineOrder.assignPaymentRef(paymentRef);
 
-        when(eventLog.eventsBy(new Topic("ordering")))
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
                 .thenReturn(Arrays.asList(new OnlineOrderAddedEvent(ref, onlineOrder.state()),
                         new PizzaAddedEvent(ref, pizza),
                         new OnlineOrderSubmittedEvent(ref),
@@ -114,7 +118,7 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
 
         onlineOrder.markPaid();
 
-        when(eventLog.eventsBy(new Topic("ordering")))
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
                 .thenReturn(Arrays.asList(new OnlineOrderAddedEvent(ref, onlineOrder.state()),
                         new PizzaAddedEvent(ref, pizza),
                         new OnlineOrderSubmittedEvent(ref),
@@ -124,9 +128,46 @@ public class InProcessEventSourcedOnlineOrderRepositoryTests {
         assertThat(repository.findByRef(ref)).isEqualTo(onlineOrder);
     }
 
+    @Test
+    public void find_by_ref_snapshots_per_policy() {
+        SnapshotStore snapshotStore = new InProcessSnapshotStore();
+        repository = new InProcessEventSourcedOnlineOrderRepository(eventLog, Topic.of("ordering"),
+                snapshotStore, SnapshotPolicy.everyEvents(2));
+        repository.add(onlineOrder);
+        onlineOrder.addPizza(pizza);
+
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
+                .thenReturn(Arrays.asList(new OnlineOrderAddedEvent(ref, onlineOrder.state()),
+                        new PizzaAddedEvent(ref, pizza)));
+
+        assertThat(repository.findByRef(ref)).isEqualTo(onlineOrder);
+        assertThat(snapshotStore.latest(ref)).isEqualTo(new Snapshot(2, onlineOrder.state()));
+    }
+
+    @Test
+    public void find_by_ref_applies_only_events_after_snapshot() {
+        SnapshotStore snapshotStore = new InProcessSnapshotStore();
+        repository = new InProcessEventSourcedOnlineOrderRepository(eventLog, Topic.of("ordering"),
+                snapshotStore, SnapshotPolicy.everyEvents(100));
+        repository.add(onlineOrder);
+        onlineOrder.addPizza(pizza);
+        snapshotStore.save(ref, new Snapshot(2, onlineOrder.state()));
+        onlineOrder.submit();
+
+        /*
+         * the events covered by the snapshot cannot rebuild this order, so a full replay would not match
+         */
+        when(eventLog.eventsBy(Topic.of("ordering"), ref))
+                .thenReturn(Arrays.asList(new OnlineOrderPaidEvent(ref),
+                        new OnlineOrderPaidEvent(ref),
+                        new OnlineOrderSubmittedEvent(ref)));
+
+        assertThat(repository.findByRef(ref)).isEqualTo(onlineOrder);
+    }
+
     @Test
     public void subscribes_to_ordering_topic() {
-        verify(eventLog).subscribe(eq(new Topic("ordering")), isA(EventHandler.class));
+        verify(eventLog).subscribe(eq(Topic.of("ordering")), eq(EventLog.FROM_BEGINNING), isA(EventHandler.class));
     }
 
 }
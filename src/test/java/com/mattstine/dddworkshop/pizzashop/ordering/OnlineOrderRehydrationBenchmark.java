@@ -0,0 +1,59 @@
+package com.mattstine.dddworkshop.pizzashop.ordering;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.adapters.InProcessSnapshotStore;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotPolicy;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.repository.ports.SnapshotStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rehydration of an {@link OnlineOrder} whose stream holds 10k events, with and without snapshots.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OnlineOrderRehydrationBenchmark {
+
+    @Param({"10000"})
+    int events;
+
+    @Param({"0", "100"})
+    int snapshotEvery;
+
+    private OnlineOrderRepository repository;
+    private OnlineOrderRef ref;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        SnapshotStore snapshotStore = snapshotEvery > 0 ? new InProcessSnapshotStore() : SnapshotStore.NONE;
+        SnapshotPolicy snapshotPolicy = snapshotEvery > 0 ? SnapshotPolicy.everyEvents(snapshotEvery) : SnapshotPolicy.never();
+        repository = new InProcessEventSourcedOnlineOrderRepository(eventLog, Topic.of("ordering"), snapshotStore, snapshotPolicy);
+
+        ref = repository.nextIdentity();
+        OnlineOrder onlineOrder = OnlineOrder.builder()
+                .type(OnlineOrder.Type.DELIVERY)
+                .eventLog(eventLog)
+                .ref(ref)
+                .build();
+        repository.add(onlineOrder);
+        Pizza pizza = Pizza.builder().size(Pizza.Size.MEDIUM).build();
+        for (int i = 1; i < events; i++) {
+            onlineOrder.addPizza(pizza);
+        }
+        repository.findByRef(ref);
+    }
+
+    @Benchmark
+    public OnlineOrder findByRef() {
+        return repository.findByRef(ref);
+    }
+}
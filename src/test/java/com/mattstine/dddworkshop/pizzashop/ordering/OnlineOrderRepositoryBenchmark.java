@@ -0,0 +1,74 @@
+package com.mattstine.dddworkshop.pizzashop.ordering;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import com.mattstine.dddworkshop.pizzashop.payments.PaymentRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InProcessEventSourcedOnlineOrderRepository} operations against a topic already holding
+ * {@code aggregatesOnTopic} submitted orders with assigned payments.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OnlineOrderRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int aggregatesOnTopic;
+
+    private OnlineOrderRepository repository;
+    private OnlineOrderRef[] refs;
+    private PaymentRef[] paymentRefs;
+    private OnlineOrder newOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        repository = new InProcessEventSourcedOnlineOrderRepository(eventLog, Topic.of("ordering"));
+
+        refs = new OnlineOrderRef[aggregatesOnTopic];
+        paymentRefs = new PaymentRef[aggregatesOnTopic];
+        for (int i = 0; i < aggregatesOnTopic; i++) {
+            OnlineOrder onlineOrder = onlineOrder(eventLog);
+            repository.add(onlineOrder);
+            onlineOrder.addPizza(Pizza.builder().size(Pizza.Size.MEDIUM).build());
+            onlineOrder.submit();
+            onlineOrder.assignPaymentRef(new PaymentRef());
+            refs[i] = onlineOrder.getRef();
+            paymentRefs[i] = onlineOrder.getPaymentRef();
+        }
+        newOrder = onlineOrder(eventLog);
+    }
+
+    private OnlineOrder onlineOrder(InProcessEventLog eventLog) {
+        return OnlineOrder.builder()
+                .type(OnlineOrder.Type.DELIVERY)
+                .eventLog(eventLog)
+                .ref(repository.nextIdentity())
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(newOrder);
+    }
+
+    @Benchmark
+    public OnlineOrder findByRef() {
+        return repository.findByRef(refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+    }
+
+    @Benchmark
+    public OnlineOrder findByPaymentRef() {
+        return repository.findByPaymentRef(paymentRefs[ThreadLocalRandom.current().nextInt(paymentRefs.length)]);
+    }
+}
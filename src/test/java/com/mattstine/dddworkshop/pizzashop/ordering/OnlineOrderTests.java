@@ -65,7 +65,8 @@ public class OnlineOrderTests {
     public void adding_pizza_fires_event() {
         onlineOrder.addPizza(pizza);
         verify(eventLog)
-                .publish(eq(new Topic("ordering")),
+                .append(eq(Topic.of("ordering")),
+                        eq(0L),
                         eq(new PizzaAddedEvent(ref, pizza)));
     }
 
@@ -88,7 +89,8 @@ public class OnlineOrderTests {
         onlineOrder.addPizza(Pizza.builder().size(Pizza.Size.MEDIUM).build());
         onlineOrder.submit();
         verify(eventLog)
-                .publish(eq(new Topic("ordering")),
+                .append(eq(Topic.of("ordering")),
+                        eq(1L),
                         isA(OnlineOrderSubmittedEvent.class));
     }
 
@@ -122,11 +124,11 @@ public class OnlineOrderTests {
     @Test
     public void mark_paid_fires_event() {
         onlineOrder.addPizza(pizza);
-        verify(eventLog).publish(eq(new Topic("ordering")), isA(PizzaAddedEvent.class));
+        verify(eventLog).append(eq(Topic.of("ordering")), eq(0L), isA(PizzaAddedEvent.class));
         onlineOrder.submit();
-        verify(eventLog).publish(eq(new Topic("ordering")), isA(OnlineOrderSubmittedEvent.class));
+        verify(eventLog).append(eq(Topic.of("ordering")), eq(1L), isA(OnlineOrderSubmittedEvent.class));
         onlineOrder.markPaid();
-        verify(eventLog).publish(eq(new Topic("ordering")), isA(OnlineOrderPaidEvent.class));
+        verify(eventLog).append(eq(Topic.of("ordering")), eq(2L), isA(OnlineOrderPaidEvent.class));
     }
 
     @Test
@@ -139,7 +141,7 @@ public class OnlineOrderTests {
         PaymentRef paymentRef = new PaymentRef();
         onlineOrder.assignPaymentRef(paymentRef);
 
-        verify(eventLog).publish(eq(new Topic("ordering")), isA(PaymentRefAssignedEvent.class));
+        verify(eventLog).append(eq(Topic.of("ordering")), eq(0L), isA(PaymentRefAssignedEvent.class));
     }
 
     @Test
@@ -0,0 +1,31 @@
+package com.mattstine.dddworkshop.pizzashop.ordering;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.AggregateExecutor;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+import com.mattstine.dddworkshop.pizzashop.payments.PaymentService;
+
+/**
+ * Wires the ordering context for benchmarks in other packages.
+ *
+ * @author Matt Stine
+ */
+public final class OrderingBenchmarkSupport {
+
+    private OrderingBenchmarkSupport() {
+    }
+
+    public static OrderingService orderingService(EventLog eventLog, PaymentService paymentService) {
+        return orderingService(eventLog, paymentService, AggregateExecutor.DIRECT);
+    }
+
+    public static OrderingService orderingService(EventLog eventLog, PaymentService paymentService, AggregateExecutor aggregateExecutor) {
+        return new DefaultOrderingService(eventLog,
+                new InProcessEventSourcedOnlineOrderRepository(eventLog, OnlineOrder.TOPIC),
+                paymentService,
+                aggregateExecutor);
+    }
+
+    public static void submit(OnlineOrder onlineOrder) {
+        onlineOrder.submit();
+    }
+}
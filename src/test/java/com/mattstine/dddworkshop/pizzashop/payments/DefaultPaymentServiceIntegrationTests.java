@@ -23,7 +23,7 @@ public class DefaultPaymentServiceIntegrationTests {
     public void setUp() {
         eventLog = InProcessEventLog.instance();
         repository = new InProcessEventSourcedPaymentRepository(eventLog,
-                new Topic("payments"));
+                Topic.of("payments"));
         processor = mock(PaymentProcessor.class);
         new DefaultPaymentService(processor,
                 repository,
@@ -47,7 +47,7 @@ public class DefaultPaymentServiceIntegrationTests {
         repository.add(payment);
         payment.request();
 
-        eventLog.publish(new Topic("payment_processor"), new PaymentProcessedEvent(ref, PaymentProcessedEvent.Status.SUCCESSFUL));
+        eventLog.publish(Topic.of("payment_processor"), new PaymentProcessedEvent(ref, PaymentProcessedEvent.Status.SUCCESSFUL));
 
         payment = repository.findByRef(ref);
         assertThat(payment.isSuccessful()).isTrue();
@@ -65,7 +65,7 @@ public class DefaultPaymentServiceIntegrationTests {
         repository.add(payment);
         payment.request();
 
-        eventLog.publish(new Topic("payment_processor"), new PaymentProcessedEvent(ref, PaymentProcessedEvent.Status.FAILED));
+        eventLog.publish(Topic.of("payment_processor"), new PaymentProcessedEvent(ref, PaymentProcessedEvent.Status.FAILED));
 
         payment = repository.findByRef(ref);
         assertThat(payment.isFailed()).isTrue();
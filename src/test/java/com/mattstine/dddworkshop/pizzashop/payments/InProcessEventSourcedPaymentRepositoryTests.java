@@ -26,7 +26,7 @@ public class InProcessEventSourcedPaymentRepositoryTests {
     public void setUp() {
         eventLog = mock(EventLog.class);
         repository = new InProcessEventSourcedPaymentRepository(eventLog,
-                new Topic("payments"));
+                Topic.of("payments"));
         ref = repository.nextIdentity();
         payment = Payment.builder()
                 .ref(ref)
@@ -45,14 +45,14 @@ public class InProcessEventSourcedPaymentRepositoryTests {
     public void add_fires_event() {
         repository.add(payment);
         PaymentAddedEvent event = new PaymentAddedEvent(payment.getRef(), payment.state());
-        verify(eventLog).publish(eq(new Topic("payments")), eq(event));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(0L), eq(event));
     }
 
     @Test
     public void find_by_ref_hydrates_added_payment() {
         repository.add(payment);
 
-        when(eventLog.eventsBy(new Topic("payments")))
+        when(eventLog.eventsBy(Topic.of("payments"), ref))
                 .thenReturn(Collections.singletonList(new PaymentAddedEvent(ref, payment.state())));
 
 
@@ -64,7 +64,7 @@ public class InProcessEventSourcedPaymentRepositoryTests {
         repository.add(payment);
         payment.request();
 
-        when(eventLog.eventsBy(new Topic("payments")))
+        when(eventLog.eventsBy(Topic.of("payments"), ref))
                 .thenReturn(Arrays.asList(new PaymentAddedEvent(ref, payment.state()),
                         new PaymentRequestedEvent(ref)));
 
@@ -77,7 +77,7 @@ public class InProcessEventSourcedPaymentRepositoryTests {
         payment.request();
         payment.markSuccessful();
 
-        when(eventLog.eventsBy(new Topic("payments")))
+        when(eventLog.eventsBy(Topic.of("payments"), ref))
                 .thenReturn(Arrays.asList(new PaymentAddedEvent(ref, payment.state()),
                         new PaymentRequestedEvent(ref),
                         new PaymentSuccessfulEvent(ref)));
@@ -91,7 +91,7 @@ public class InProcessEventSourcedPaymentRepositoryTests {
         payment.request();
         payment.markFailed();
 
-        when(eventLog.eventsBy(new Topic("payments")))
+        when(eventLog.eventsBy(Topic.of("payments"), ref))
                 .thenReturn(Arrays.asList(new PaymentAddedEvent(ref, payment.state()),
                         new PaymentRequestedEvent(ref),
                         new PaymentFailedEvent(ref)));
@@ -0,0 +1,66 @@
+package com.mattstine.dddworkshop.pizzashop.payments;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.domain.valuetypes.Amount;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.adapters.InProcessEventLog;
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.Topic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InProcessEventSourcedPaymentRepository} operations against a topic already holding
+ * {@code aggregatesOnTopic} successful payments.
+ *
+ * @author Matt Stine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PaymentRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int aggregatesOnTopic;
+
+    private PaymentRepository repository;
+    private PaymentRef[] refs;
+    private Payment newPayment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InProcessEventLog eventLog = InProcessEventLog.instance();
+        repository = new InProcessEventSourcedPaymentRepository(eventLog, Topic.of("payments"));
+
+        refs = new PaymentRef[aggregatesOnTopic];
+        for (int i = 0; i < aggregatesOnTopic; i++) {
+            Payment payment = payment(eventLog);
+            repository.add(payment);
+            payment.request();
+            payment.markSuccessful();
+            refs[i] = payment.getRef();
+        }
+        newPayment = payment(eventLog);
+    }
+
+    private Payment payment(InProcessEventLog eventLog) {
+        return Payment.builder()
+                .amount(Amount.of(10, 0))
+                .paymentProcessor(DummyPaymentProcessor.instance())
+                .ref(repository.nextIdentity())
+                .eventLog(eventLog)
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        repository.add(newPayment);
+    }
+
+    @Benchmark
+    public Payment findByRef() {
+        return repository.findByRef(refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+    }
+}
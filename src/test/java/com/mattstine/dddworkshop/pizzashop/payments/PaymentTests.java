@@ -51,7 +51,7 @@ public class PaymentTests {
     @Test
     public void payment_request_should_fire_event() {
         payment.request();
-        verify(eventLog).publish(eq(new Topic("payments")), isA(PaymentRequestedEvent.class));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(0L), isA(PaymentRequestedEvent.class));
     }
 
     @Test
@@ -64,9 +64,9 @@ public class PaymentTests {
     @Test
     public void payment_success_should_fire_event() {
         payment.request();
-        verify(eventLog).publish(eq(new Topic("payments")), isA(PaymentRequestedEvent.class));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(0L), isA(PaymentRequestedEvent.class));
         payment.markSuccessful();
-        verify(eventLog).publish(eq(new Topic("payments")), isA(PaymentSuccessfulEvent.class));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(1L), isA(PaymentSuccessfulEvent.class));
     }
 
     @Test
@@ -79,9 +79,9 @@ public class PaymentTests {
     @Test
     public void payment_failure_should_fire_event() {
         payment.request();
-        verify(eventLog).publish(eq(new Topic("payments")), isA(PaymentRequestedEvent.class));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(0L), isA(PaymentRequestedEvent.class));
         payment.markFailed();
-        verify(eventLog).publish(eq(new Topic("payments")), isA(PaymentFailedEvent.class));
+        verify(eventLog).append(eq(Topic.of("payments")), eq(1L), isA(PaymentFailedEvent.class));
     }
 
     @Test
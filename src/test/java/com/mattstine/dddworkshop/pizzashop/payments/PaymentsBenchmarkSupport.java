@@ -0,0 +1,28 @@
+package com.mattstine.dddworkshop.pizzashop.payments;
+
+import com.mattstine.dddworkshop.pizzashop.infrastructure.events.ports.EventLog;
+
+/**
+ * Wires the payments context for benchmarks in other packages.
+ *
+ * @author Matt Stine
+ */
+public final class PaymentsBenchmarkSupport {
+
+    private PaymentsBenchmarkSupport() {
+    }
+
+    public static PaymentService paymentService(EventLog eventLog) {
+        return new DefaultPaymentService(DummyPaymentProcessor.instance(),
+                new InProcessEventSourcedPaymentRepository(eventLog, Payment.TOPIC),
+                eventLog);
+    }
+
+    /**
+     * Stands in for the external processor approving a requested payment.
+     */
+    public static void approve(EventLog eventLog, PaymentRef ref) {
+        eventLog.publish(PaymentProcessor.TOPIC,
+                new PaymentProcessedEvent(ref, PaymentProcessedEvent.Status.SUCCESSFUL));
+    }
+}